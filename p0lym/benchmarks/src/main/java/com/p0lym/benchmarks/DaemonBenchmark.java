@@ -0,0 +1,91 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.ProgramGenerator;
+import com.p0lym.ValidatorClient;
+import com.p0lym.ValidatorDaemon;
+
+// Time from sending a generated program to a ValidatorDaemon in this JVM to reading its
+// answer, over a Unix domain socket or loopback TCP, with the connection kept open the way
+// an editor plugin would. "connect" opens a new connection for every request.
+//
+//   java -jar target/benchmarks.jar DaemonBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaemonBenchmark {
+    @Param({"unix", "tcp"})
+    public String transport;
+
+    private Path directory;
+    private ValidatorDaemon daemon;
+    private Thread serving;
+    private SocketAddress address;
+    private ValidatorClient client;
+    private String source;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(100);
+        source = generator.generate();
+
+        directory = Files.createTempDirectory("daemon-benchmark");
+        daemon = new ValidatorDaemon(transport.equals("unix")
+                ? UnixDomainSocketAddress.of(directory.resolve("validator.sock"))
+                : ValidatorDaemon.address("0"), 1);
+        address = daemon.getAddress();
+        serving = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serving.start();
+        client = new ValidatorClient(address);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, InterruptedException {
+        client.close();
+        daemon.close();
+        serving.join();
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public String roundTrip() throws IOException {
+        return client.validateSource(source);
+    }
+
+    @Benchmark
+    public String connect() throws IOException {
+        try (ValidatorClient once = new ValidatorClient(address)) {
+            return once.validateSource(source);
+        }
+    }
+}
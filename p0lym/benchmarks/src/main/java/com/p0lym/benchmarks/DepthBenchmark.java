@@ -0,0 +1,80 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.AstParser;
+import com.p0lym.MappedLexer;
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotValidator;
+import com.p0lym.TokenStream;
+import com.p0lym.ValidationContext;
+
+// Parsing a single chain of if/while/for blocks nested depth levels deep. The program grows
+// linearly with the depth, so if parsing stays linear the tokens counter (tokens per second)
+// is about the same for every depth. The flat shape has the same statements without nesting:
+// large programs of both shapes slow down alike (the tree no longer fits in cache), not
+// because of the depth.
+//
+//   java -jar target/benchmarks.jar DepthBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class DepthBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int depth;
+
+    @Param({"nested", "flat"})
+    public String shape;
+
+    private final RobotValidator validator = new RobotValidator();
+    private ByteBuffer source;
+    private TokenStream tokens;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        // One statement per block, and enough of them for every if on the way down
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(2 * depth);
+        generator.setDepth(shape.equals("flat") ? 0 : depth);
+        generator.setProcedures(0);
+        generator.setFanOut(1);
+        source = ByteBuffer.wrap(generator.generate().getBytes(StandardCharsets.UTF_8));
+        tokens = new MappedLexer(source).tokenize();
+        ValidationContext context = validator.validate(source);
+        if (!context.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + context.getError());
+        }
+    }
+
+    @Benchmark
+    public boolean parse(TokenCounter counter) throws IOException {
+        counter.tokens += tokens.size();
+        return new AstParser(tokens, validator.newContext()).parse() != null;
+    }
+
+    // Lexer and parser together
+    @Benchmark
+    public boolean validate(TokenCounter counter) {
+        counter.tokens += tokens.size();
+        return validator.validate(source).isValid();
+    }
+}
@@ -0,0 +1,128 @@
+package com.p0lym.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.GridWorld;
+import com.p0lym.World;
+
+// Condition checks per second on a square board with a fifth of its cells walled, from
+// random cells, directions and distances up to the board size. "cellByCell" answers canMove
+// the way a board of booleans would, one cell at a time, as the baseline for the bitboards.
+//
+//   java -jar target/benchmarks.jar GridWorldBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridWorldBenchmark {
+    private static final int QUERIES = 4096;
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    private GridWorld world;
+    private final int[] xs = new int[QUERIES];
+    private final int[] ys = new int[QUERIES];
+    private final int[] orientations = new int[QUERIES];
+    private final int[] steps = new int[QUERIES];
+
+    @Setup(Level.Trial)
+    public void board() {
+        Random random = new Random(1);
+        world = new GridWorld(size, size);
+        for (int i = 0; i < size * size / 5; i++) {
+            world.setObstacle(random.nextInt(size), random.nextInt(size), true);
+        }
+        for (int i = 0; i < size * size / 3; i++) {
+            world.setCount(random.nextInt(2), random.nextInt(size), random.nextInt(size), random.nextInt(5));
+        }
+        world.setCarried(World.CHIPS, 10);
+        world.setCarried(World.BALLOONS, 10);
+        for (int i = 0; i < QUERIES; i++) {
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+            orientations[i] = random.nextInt(4);
+            steps[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int canMove() {
+        int yes = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            world.place(xs[i], ys[i]);
+            if (world.canMove(orientations[i], steps[i])) {
+                yes++;
+            }
+        }
+        return yes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int cellByCell() {
+        int yes = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            int orientation = orientations[i];
+            int dx = orientation == World.EAST ? 1 : orientation == World.WEST ? -1 : 0;
+            int dy = orientation == World.SOUTH ? 1 : orientation == World.NORTH ? -1 : 0;
+            boolean free = true;
+            for (int k = 1; k <= steps[i] && free; k++) {
+                int x = xs[i] + dx * k;
+                int y = ys[i] + dy * k;
+                free = world.inside(x, y) && !world.isObstacle(x, y);
+            }
+            if (free) {
+                yes++;
+            }
+        }
+        return yes;
+    }
+
+    // canMove, canJump, canPut and canPick in turn
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int conditions() {
+        int yes = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            world.place(xs[i], ys[i]);
+            boolean holds;
+            switch (i & 3) {
+                case 0:
+                    holds = world.canMove(orientations[i], steps[i]);
+                    break;
+                case 1:
+                    holds = world.canJump(orientations[i], steps[i]);
+                    break;
+                case 2:
+                    holds = world.canPut(orientations[i] & 1, steps[i] & 7);
+                    break;
+                default:
+                    holds = world.canPick(orientations[i] & 1, steps[i] & 7);
+                    break;
+            }
+            if (holds) {
+                yes++;
+            }
+        }
+        return yes;
+    }
+}
@@ -0,0 +1,158 @@
+package com.p0lym.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.Bytecode;
+import com.p0lym.BytecodeCompiler;
+import com.p0lym.Interpreter;
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotValidator;
+import com.p0lym.ValidationContext;
+import com.p0lym.World;
+
+// Runs a compiled generated program for a fixed number of instructions on a board with no
+// walls, so every action succeeds and loops go on until the budget runs out. The steps
+// counter is instructions per second; with -prof gc, gc.alloc.rate.norm should be about 0.
+//
+//   java -jar target/benchmarks.jar InterpreterBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpreterBenchmark {
+    private static final long BUDGET = 100_000;
+
+    @Param({"100", "1000"})
+    public int statements;
+
+    private Interpreter interpreter;
+    private final OpenWorld world = new OpenWorld();
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class StepCounter {
+        public long steps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void compile() {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(statements);
+        generator.setDepth(4);
+        generator.setProcedures(4);
+        generator.setFanOut(3);
+        ValidationContext context = new RobotValidator().validate(generator.generate());
+        if (!context.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + context.getError());
+        }
+        Bytecode bytecode = BytecodeCompiler.compile(context.getProgram());
+        interpreter = new Interpreter(bytecode, world);
+    }
+
+    @Benchmark
+    public int run(StepCounter counter) {
+        interpreter.reset(world);
+        // Short programs end early: run them again until the budget is spent
+        long left = BUDGET;
+        int status = Interpreter.RUNNING;
+        while (left > 0) {
+            status = interpreter.run(left);
+            left -= Math.max(1, interpreter.getSteps());
+            counter.steps += interpreter.getSteps();
+            interpreter.reset(world);
+        }
+        return status;
+    }
+
+    // Unbounded board: the robot can always move, jump, put and pick
+    static class OpenWorld implements World {
+        private int facing;
+        private int x;
+        private int y;
+
+        @Override
+        public int getFacing() {
+            return facing;
+        }
+
+        @Override
+        public void setFacing(int orientation) {
+            facing = orientation;
+        }
+
+        @Override
+        public boolean move(int orientation, int steps) {
+            x += orientation == EAST ? steps : orientation == WEST ? -steps : 0;
+            y += orientation == NORTH ? steps : orientation == SOUTH ? -steps : 0;
+            return true;
+        }
+
+        @Override
+        public boolean jump(int orientation, int steps) {
+            return move(orientation, steps);
+        }
+
+        @Override
+        public boolean canMove(int orientation, int steps) {
+            return true;
+        }
+
+        @Override
+        public boolean canJump(int orientation, int steps) {
+            return true;
+        }
+
+        @Override
+        public boolean goTo(int x, int y) {
+            this.x = x;
+            this.y = y;
+            return true;
+        }
+
+        @Override
+        public boolean put(int type, int n) {
+            return true;
+        }
+
+        @Override
+        public boolean pick(int type, int n) {
+            return true;
+        }
+
+        @Override
+        public boolean canPut(int type, int n) {
+            return true;
+        }
+
+        @Override
+        public boolean canPick(int type, int n) {
+            return true;
+        }
+
+        @Override
+        public boolean pop(int n) {
+            return true;
+        }
+    }
+}
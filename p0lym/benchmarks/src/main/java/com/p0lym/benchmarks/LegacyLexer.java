@@ -0,0 +1,128 @@
+package com.p0lym.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// The scanning core of RobotLexerParser.nextToken() before the ASCII class table and the
+// keyword switch, kept verbatim as the baseline for NextTokenBenchmark.
+public class LegacyLexer {
+    private Reader reader;
+    private int currentLine;
+    private int currentColumn;
+    private boolean pushBack;
+    private char lastChar;
+
+    public LegacyLexer(Reader input) {
+        this.reader = new BufferedReader(input);
+        this.currentLine = 1;
+        this.currentColumn = 0;
+        this.pushBack = false;
+    }
+
+    private char nextChar() throws IOException {
+        if (pushBack) {
+            pushBack = false;
+            return lastChar;
+        }
+
+        int c = reader.read();
+        if (c == -1) {
+            return '\0';
+        }
+
+        lastChar = (char) c;
+        currentColumn++;
+
+        if (lastChar == '\n') {
+            currentLine++;
+            currentColumn = 0;
+        }
+
+        return lastChar;
+    }
+
+    private void pushBack() {
+        pushBack = true;
+    }
+
+    public Token nextToken() throws IOException {
+        char ch;
+        do {
+            ch = nextChar();
+        } while (Character.isWhitespace(ch));
+
+        int tokenLine = currentLine;
+        int tokenColumn = currentColumn;
+
+        if (ch == '\0') {
+            return new Token(TokenType.EOF, "", tokenLine, tokenColumn);
+        }
+
+        if (Character.isLetter(ch)) {
+            StringBuilder sb = new StringBuilder();
+            do {
+                sb.append(ch);
+                ch = nextChar();
+            } while (Character.isLetterOrDigit(ch) || ch == '_');
+            pushBack();
+
+            String word = sb.toString();
+
+            for (TokenType type : TokenType.values()) {
+                if (type.getText() != null && type.getText().equals(word)) {
+                    return new Token(type, word, tokenLine, tokenColumn);
+                }
+            }
+
+            return new Token(TokenType.IDENTIFIER, word, tokenLine, tokenColumn);
+        }
+
+        if (Character.isDigit(ch)) {
+            StringBuilder sb = new StringBuilder();
+            do {
+                sb.append(ch);
+                ch = nextChar();
+            } while (Character.isDigit(ch));
+            pushBack();
+
+            return new Token(TokenType.NUMBER, sb.toString(), tokenLine, tokenColumn);
+        }
+
+        if (ch == '#') {
+            StringBuilder sb = new StringBuilder();
+            sb.append(ch);
+            ch = nextChar();
+            while (Character.isLetterOrDigit(ch)) {
+                sb.append(ch);
+                ch = nextChar();
+            }
+            pushBack();
+
+            return new Token(TokenType.CONSTANT, sb.toString(), tokenLine, tokenColumn);
+        }
+
+        switch (ch) {
+            case '|':
+                return new Token(TokenType.PIPE, "|", tokenLine, tokenColumn);
+            case '[':
+                return new Token(TokenType.BRACKET_OPEN, "[", tokenLine, tokenColumn);
+            case ']':
+                return new Token(TokenType.BRACKET_CLOSE, "]", tokenLine, tokenColumn);
+            case '.':
+                return new Token(TokenType.PERIOD, ".", tokenLine, tokenColumn);
+            case ':':
+                ch = nextChar();
+                if (ch == '=') {
+                    return new Token(TokenType.ASSIGN, ":=", tokenLine, tokenColumn);
+                }
+                pushBack();
+                return new Token(TokenType.COLON, ":", tokenLine, tokenColumn);
+        }
+
+        return new Token(TokenType.INVALID, Character.toString(ch), tokenLine, tokenColumn);
+    }
+}
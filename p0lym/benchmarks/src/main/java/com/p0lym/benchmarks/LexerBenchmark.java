@@ -0,0 +1,103 @@
+package com.p0lym.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.p0lym.MappedLexer;
+import com.p0lym.RobotLexerParser;
+import com.p0lym.TokenStream;
+
+// Compares the Reader based lexer path used by Main before (readLine -> StringBuilder ->
+// StringReader -> BufferedReader) with MappedLexer over a memory-mapped file.
+// Run with -prof gc: gc.alloc.rate.norm shows the bytes copied per lexed file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class LexerBenchmark {
+    private static final String UNIT = String.join("\n",
+            "proc moveAndTurn: steps and: direction [",
+            "    |a b|",
+            "    a := steps .",
+            "    move: a inDir: #north .",
+            "    turn: #left .",
+            "]",
+            "");
+
+    @Param({"1", "16"})
+    public int megabytes;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeProgram() throws IOException {
+        file = Files.createTempFile("lexer-bench", ".txt");
+        long target = megabytes * 1024L * 1024L;
+        StringBuilder sb = new StringBuilder((int) target + UNIT.length());
+        sb.append("|x y z|\n");
+        while (sb.length() < target) {
+            sb.append(UNIT);
+        }
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProgram() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ArrayList<RobotLexerParser.Token> readerLexer() throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(file.toFile(), StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) {
+                sb.append(line).append("\n");
+            }
+            return new RobotLexerParser(new StringReader(sb.toString())).lexer();
+        }
+    }
+
+    @Benchmark
+    public ArrayList<RobotLexerParser.Token> mappedLexer() throws IOException {
+        return new MappedLexer(file).lexer();
+    }
+
+    @Benchmark
+    public TokenStream mappedTokenStream() throws IOException {
+        return new MappedLexer(file).tokenize();
+    }
+
+    @Benchmark
+    public void mappedScan(Blackhole blackhole) throws IOException {
+        MappedLexer lexer = new MappedLexer(file);
+        RobotLexerParser.Token token;
+        while ((token = lexer.nextToken()).getType() != RobotLexerParser.TokenType.EOF) {
+            blackhole.consume(token);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.p0lym.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.Bytecode;
+import com.p0lym.BytecodeCompiler;
+import com.p0lym.MonteCarloRunner;
+import com.p0lym.RandomBoards;
+import com.p0lym.RobotValidator;
+import com.p0lym.ValidationContext;
+
+// Runs per second of one program on random 16x16 boards, by number of threads. Threads share
+// nothing while they run, so this should grow about linearly up to the number of cores. With
+// -prof gc, gc.alloc.rate.norm is bytes per run: only the pool, one interpreter and board per
+// thread and the merged totals, spread over every run of the invocation.
+//
+//   java -jar target/benchmarks.jar MonteCarloBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonteCarloBenchmark {
+    private static final int RUNS = 50_000;
+
+    // A robot sweeping the board, picking what it finds on the way
+    private static final String PROGRAM = String.join("\n",
+            "proc sweep: k [",
+            "    while: canMove: 1 toThe: #front do: [",
+            "        M .",
+            "        if: canPick: 1 ofType: #chips then: [ c . ] else: [ nop . ]",
+            "    ]",
+            "    R .",
+            "]",
+            "for: 4 repeat: [",
+            "    sweep: 0 .",
+            "    if: canPick: 1 ofType: #balloons then: [ b . ] else: [ nop . ]",
+            "]");
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private MonteCarloRunner runner;
+    private final RandomBoards boards = new RandomBoards(16, 16, 1);
+
+    @Setup(Level.Trial)
+    public void compile() {
+        ValidationContext context = new RobotValidator().validate(PROGRAM);
+        if (!context.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + context.getError());
+        }
+        Bytecode bytecode = BytecodeCompiler.compile(context.getProgram());
+        runner = new MonteCarloRunner(bytecode, threads);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RUNS)
+    public long run() {
+        return runner.run(boards, RUNS).getSuccesses();
+    }
+}
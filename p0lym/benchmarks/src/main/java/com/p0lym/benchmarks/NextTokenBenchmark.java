@@ -0,0 +1,87 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.p0lym.MappedLexer;
+import com.p0lym.RobotLexerParser;
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Scanning cost per program: the old nextToken() (Character.* checks, StringBuilder per
+// token, keyword loop over TokenType.values()) against the ASCII table and keyword switch.
+// Every benchmark lexes the same keyword heavy program; compare gc.alloc.rate.norm with -prof gc.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NextTokenBenchmark {
+    private static final String UNIT = String.join("\n",
+            "proc goNorth: n [",
+            "    |steps|",
+            "    steps := n .",
+            "    while: canMove: 1 inDir: #north do: [",
+            "        if: facing: #north then: [ move: steps inDir: #north . ] else: [ nop . ]",
+            "    ]",
+            "    for: 3 repeat: [ put: 1 ofType: #chips . ]",
+            "]",
+            "");
+
+    private String source;
+    private ByteBuffer bytes;
+
+    @Setup(Level.Trial)
+    public void buildProgram() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append(UNIT);
+        }
+        source = sb.toString();
+        bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void legacyNextToken(Blackhole blackhole) throws IOException {
+        LegacyLexer lexer = new LegacyLexer(new StringReader(source));
+        Token token;
+        while ((token = lexer.nextToken()).getType() != TokenType.EOF) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void nextToken(Blackhole blackhole) throws IOException {
+        RobotLexerParser lexer = new RobotLexerParser(new StringReader(source));
+        Token token;
+        while ((token = lexer.nextToken()).getType() != TokenType.EOF) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void mappedNextToken(Blackhole blackhole) {
+        MappedLexer lexer = new MappedLexer(bytes.duplicate());
+        Token token;
+        while ((token = lexer.nextToken()).getType() != TokenType.EOF) {
+            blackhole.consume(token);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.p0lym.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.Ast;
+import com.p0lym.AstOptimizer;
+import com.p0lym.BytecodeCompiler;
+import com.p0lym.MonteCarloRunner;
+import com.p0lym.RandomBoards;
+import com.p0lym.RobotValidator;
+import com.p0lym.ValidationContext;
+
+// Runs per second on random 16x16 boards of a program written the way generated ones are:
+// turns that cancel out, small procedures, loops run once and checks of nothing. The
+// optimized program leaves every board the same way in fewer steps.
+//
+//   java -jar target/benchmarks.jar OptimizerBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimizerBenchmark {
+    private static final int RUNS = 20_000;
+
+    private static final String PROGRAM = String.join("\n",
+            "proc step: k [ move: k toThe: #front . nop . ]",
+            "proc around: k [ turn: #left . turn: #left . turn: #left . turn: #left . ]",
+            "for: 8 repeat: [",
+            "    while: canMove: 1 toThe: #front do: [",
+            "        step: 1 .",
+            "        around: 0 .",
+            "        for: 1 repeat: [ if: canPick: 0 ofType: #chips then: [ nop . ] else: [ nop . ] ]",
+            "        if: canPick: 1 ofType: #chips then: [ c . ] else: [ nop . ]",
+            "    ]",
+            "    turn: #left . turn: #around .",
+            "]");
+
+    @Param({"false", "true"})
+    public boolean optimize;
+
+    private MonteCarloRunner runner;
+    private final RandomBoards boards = new RandomBoards(16, 16, 1);
+
+    @Setup(Level.Trial)
+    public void compile() {
+        ValidationContext context = new RobotValidator().validate(PROGRAM);
+        if (!context.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + context.getError());
+        }
+        Ast.Program program = context.getProgram();
+        if (optimize) {
+            program = new AstOptimizer().optimize(program);
+        }
+        runner = new MonteCarloRunner(BytecodeCompiler.compile(program), 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RUNS)
+    public long run() {
+        return runner.run(boards, RUNS).getTotalSteps();
+    }
+}
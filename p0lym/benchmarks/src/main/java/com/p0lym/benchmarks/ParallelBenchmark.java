@@ -0,0 +1,67 @@
+package com.p0lym.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.ParallelValidator;
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotValidator;
+
+// Time to validate one generated program with thousands of procedures: "sequential" is
+// RobotValidator, "parallel" splits it at its procedures with ParallelValidator. With one
+// thread the difference is what the split and the merge cost.
+//
+//   java -jar target/benchmarks.jar ParallelBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelBenchmark {
+    @Param({"5000"})
+    public int procedures;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private final RobotValidator validator = new RobotValidator();
+    private ParallelValidator parallel;
+    private ByteBuffer source;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setProcedures(procedures);
+        generator.setStatements(1000);
+        source = ByteBuffer.wrap(generator.generate().getBytes(StandardCharsets.UTF_8));
+        parallel = new ParallelValidator(validator, threads);
+        if (!parallel.validate(source).isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid");
+        }
+    }
+
+    @Benchmark
+    public boolean sequential() {
+        return validator.validate(source).isValid();
+    }
+
+    @Benchmark
+    public boolean parallel() {
+        return parallel.validate(source).isValid();
+    }
+}
@@ -0,0 +1,71 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.Ast;
+import com.p0lym.AstParser;
+import com.p0lym.MappedLexer;
+import com.p0lym.RobotValidator;
+import com.p0lym.TokenStream;
+
+// The AstParser over an already lexed TokenStream: "parse" builds the tree of the whole
+// program, "validate" runs the same checks but drops each top level item once it is checked.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    private static final String UNIT = String.join("\n",
+            "proc moveAndTurn%1$d: steps and: direction [",
+            "    move: steps inDir: #north .",
+            "    turn: #left .",
+            "]",
+            "if: facing: #north then: [ moveAndTurn%1$d: 2 and: #north . ] else: [ nop . ]",
+            "");
+
+    @Param({"10", "1000"})
+    public int units;
+
+    private final RobotValidator validator = new RobotValidator();
+    private TokenStream tokens;
+
+    @Setup(Level.Trial)
+    public void lexProgram() throws IOException {
+        StringBuilder sb = new StringBuilder("|x y z|\n");
+        for (int i = 0; i < units; i++) {
+            sb.append(String.format(UNIT, i));
+        }
+        tokens = new MappedLexer(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8))).tokenize();
+        if (parse() == null || !validate()) {
+            throw new IllegalStateException("Benchmark program is not valid");
+        }
+    }
+
+    @Benchmark
+    public Ast.Program parse() throws IOException {
+        return new AstParser(tokens, validator.newContext()).parse();
+    }
+
+    @Benchmark
+    public boolean validate() throws IOException {
+        return new AstParser(tokens, validator.newContext()).validate();
+    }
+}
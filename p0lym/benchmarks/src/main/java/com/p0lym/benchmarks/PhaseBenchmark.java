@@ -0,0 +1,106 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.p0lym.MappedLexer;
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotLexerParser;
+import com.p0lym.RobotValidator;
+import com.p0lym.TokenStream;
+
+// Each phase on its own over programs of different size, nesting depth and procedure count.
+// The primary score is programs per second; the tokens counter gives tokens per second.
+//
+//   java -jar target/benchmarks.jar PhaseBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhaseBenchmark {
+    @Param({"100", "10000"})
+    public int statements;
+
+    @Param({"1", "16"})
+    public int depth;
+
+    @Param({"1", "50"})
+    public int procedures;
+
+    private final RobotValidator validator = new RobotValidator();
+    private String program;
+    private ByteBuffer source;
+    private TokenStream tokens;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(statements);
+        generator.setDepth(depth);
+        generator.setProcedures(procedures);
+        program = generator.generate();
+        source = ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8));
+        tokens = new MappedLexer(source).tokenize();
+        if (!validator.validate(source).isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + validator.validate(source).getError());
+        }
+    }
+
+    @Benchmark
+    public void readerNextToken(TokenCounter counter, Blackhole blackhole) throws IOException {
+        RobotLexerParser lexer = new RobotLexerParser(new StringReader(program));
+        RobotLexerParser.Token token;
+        while ((token = lexer.nextToken()).getType() != RobotLexerParser.TokenType.EOF) {
+            blackhole.consume(token);
+        }
+        counter.tokens += tokens.size();
+    }
+
+    @Benchmark
+    public void mappedNextToken(TokenCounter counter, Blackhole blackhole) {
+        MappedLexer lexer = new MappedLexer(source);
+        RobotLexerParser.Token token;
+        while ((token = lexer.nextToken()).getType() != RobotLexerParser.TokenType.EOF) {
+            blackhole.consume(token);
+        }
+        counter.tokens += tokens.size();
+    }
+
+    @Benchmark
+    public TokenStream tokenize(TokenCounter counter) {
+        counter.tokens += tokens.size();
+        return new MappedLexer(source).tokenize();
+    }
+
+    @Benchmark
+    public boolean parser(TokenCounter counter) {
+        counter.tokens += tokens.size();
+        return validator.validate(tokens).isValid();
+    }
+
+    // Lexer and parser together, as RobotValidator runs them
+    @Benchmark
+    public boolean validate(TokenCounter counter) {
+        counter.tokens += tokens.size();
+        return validator.validate(source).isValid();
+    }
+}
@@ -0,0 +1,85 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.Bytecode;
+import com.p0lym.BytecodeCompiler;
+import com.p0lym.MappedLexer;
+import com.p0lym.ProgramFile;
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotValidator;
+import com.p0lym.TokenStream;
+import com.p0lym.ValidationContext;
+
+// Time to get a generated program ready to run again: "lexerParser" is what Main does for a
+// text file (lex and check it, nothing to run yet), "compile" validates and compiles it, and
+// "load" reads the .robc written for it.
+//
+//   java -jar target/benchmarks.jar ProgramFileBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgramFileBenchmark {
+    @Param({"1000", "100000"})
+    public int statements;
+
+    private final RobotValidator validator = new RobotValidator();
+    private Path text;
+    private Path compiled;
+
+    @Setup(Level.Trial)
+    public void writeProgram() throws IOException {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(statements);
+        text = Files.createTempFile("program-bench", ".txt");
+        compiled = Files.createTempFile("program-bench", ".robc");
+        Files.writeString(text, generator.generate());
+        ValidationContext context = validator.validate(text);
+        if (!context.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid");
+        }
+        ProgramFile.write(compiled, context.getProgram(), BytecodeCompiler.compile(context.getProgram()));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProgram() throws IOException {
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(compiled);
+    }
+
+    @Benchmark
+    public boolean lexerParser() throws IOException {
+        TokenStream tokens = new MappedLexer(text).tokenize();
+        return validator.validate(tokens).isValid();
+    }
+
+    @Benchmark
+    public Bytecode compile() throws IOException {
+        return BytecodeCompiler.compile(validator.validate(text).getProgram());
+    }
+
+    @Benchmark
+    public Bytecode load() throws IOException {
+        return ProgramFile.load(compiled).getBytecode();
+    }
+}
@@ -0,0 +1,65 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.MappedLexer;
+import com.p0lym.RobotValidator;
+import com.p0lym.TokenStream;
+
+// Baseline over the resources/Valid*.txt programs (copied into the jar under programs/), to
+// compare releases on the same real inputs.
+//
+//   java -jar target/benchmarks.jar ResourcesBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourcesBenchmark {
+    @Param({"Valid1.txt", "Valid2.txt", "Valid3.txt"})
+    public String file;
+
+    private final RobotValidator validator = new RobotValidator();
+    private ByteBuffer source;
+    private int tokens;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        try (InputStream in = ResourcesBenchmark.class.getResourceAsStream("/programs/" + file)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing program " + file);
+            }
+            source = ByteBuffer.wrap(in.readAllBytes());
+        }
+        tokens = new MappedLexer(source).tokenize().size();
+    }
+
+    @Benchmark
+    public TokenStream tokenize(TokenCounter counter) {
+        counter.tokens += tokens;
+        return new MappedLexer(source).tokenize();
+    }
+
+    @Benchmark
+    public boolean validate(TokenCounter counter) {
+        counter.tokens += tokens;
+        return validator.validate(source).isValid();
+    }
+}
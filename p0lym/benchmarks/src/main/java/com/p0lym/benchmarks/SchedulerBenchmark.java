@@ -0,0 +1,98 @@
+package com.p0lym.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.Bytecode;
+import com.p0lym.BytecodeCompiler;
+import com.p0lym.GridWorld;
+import com.p0lym.Interpreter;
+import com.p0lym.ProgramScheduler;
+import com.p0lym.RobotValidator;
+import com.p0lym.ValidationContext;
+
+// Instructions per second of programs that never end, each stopped after STEPS instructions,
+// run through the scheduler in slices of the given size. "direct" runs them one after another
+// on this thread without slicing, so the gap is what the turns cost.
+//
+//   java -jar target/benchmarks.jar SchedulerBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+    private static final int JOBS = 64;
+    private static final int STEPS = 100_000;
+
+    // Turns in place forever
+    private static final String PROGRAM = "while: canMove: 1 toThe: #front do: [ R . ]";
+
+    @Param({"100", "1000", "10000"})
+    public long slice;
+
+    @Param({"1", "4"})
+    public int carriers;
+
+    private Bytecode bytecode;
+    private final GridWorld board = new GridWorld(8, 8);
+    private final ProgramScheduler.Job[] jobs = new ProgramScheduler.Job[JOBS];
+    private ProgramScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        ValidationContext context = new RobotValidator().validate(PROGRAM);
+        if (!context.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + context.getError());
+        }
+        bytecode = BytecodeCompiler.compile(context.getProgram());
+        board.place(4, 4);
+        scheduler = new ProgramScheduler(carriers, slice);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws InterruptedException {
+        scheduler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JOBS * STEPS)
+    public long scheduled() throws InterruptedException {
+        for (int i = 0; i < JOBS; i++) {
+            jobs[i] = scheduler.submit(bytecode, board.copy(), STEPS, 1, TimeUnit.HOURS);
+        }
+        long steps = 0;
+        for (ProgramScheduler.Job job : jobs) {
+            job.await();
+            steps += job.getSteps();
+        }
+        return steps;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JOBS * STEPS)
+    public long direct() {
+        long steps = 0;
+        for (int i = 0; i < JOBS; i++) {
+            Interpreter interpreter = new Interpreter(bytecode, board.copy());
+            interpreter.run(STEPS);
+            steps += interpreter.getSteps();
+        }
+        return steps;
+    }
+}
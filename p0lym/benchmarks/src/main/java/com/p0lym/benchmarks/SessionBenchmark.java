@@ -0,0 +1,74 @@
+package com.p0lym.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotValidator;
+import com.p0lym.ValidationSession;
+
+// Time to get the errors of a generated program again after typing a statement into one of
+// its procedures and deleting it: "incremental" edits a ValidationSession, "full" validates
+// the whole text each time, the way the daemon does.
+//
+//   java -jar target/benchmarks.jar SessionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBenchmark {
+    private static final String TYPED = "nop . ";
+
+    @Param({"1000", "100000"})
+    public int statements;
+
+    private final RobotValidator validator = new RobotValidator(null, true);
+    private String source;
+    private String edited;
+    private int offset;
+    private ValidationSession session;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(statements);
+        source = generator.generate();
+        // Just inside the body of the first procedure
+        offset = source.indexOf('[', source.indexOf("proc ")) + 1;
+        edited = source.substring(0, offset) + TYPED + source.substring(offset);
+        session = new ValidationSession(validator, source);
+        if (!session.isValid()) {
+            throw new IllegalStateException("Benchmark program is not valid: " + session.getError());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public int incremental() {
+        session.edit(offset, 0, TYPED);
+        int errors = session.getDiagnostics().size();
+        session.edit(offset, TYPED.length(), "");
+        return errors + session.getDiagnostics().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public int full() {
+        return validator.validate(edited).getDiagnostics().size() + validator.validate(source).getDiagnostics().size();
+    }
+}
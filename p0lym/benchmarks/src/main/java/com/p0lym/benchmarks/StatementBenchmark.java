@@ -0,0 +1,110 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.p0lym.AstParser;
+import com.p0lym.MappedLexer;
+import com.p0lym.RobotValidator;
+import com.p0lym.SignatureIndex.Signature;
+import com.p0lym.TokenStream;
+import com.p0lym.ValidationContext;
+
+// One benchmark per kind of statement AstParser checks (the ones the old check* methods of
+// RobotLexerParser covered), each parsed on its own, with body statements in the blocks of
+// if/while/for. Every call gets a fresh context in which the walk procedure is already declared.
+//
+//   java -jar target/benchmarks.jar StatementBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark {
+    @Param({"1", "32"})
+    public int body;
+
+    private final RobotValidator validator = new RobotValidator();
+    private Signature walk;
+
+    private TokenStream ifStatement;
+    private TokenStream whileStatement;
+    private TokenStream forStatement;
+    private TokenStream procCall;
+    private TokenStream builtinCall;
+
+    @Setup(Level.Trial)
+    public void lex() {
+        String block = "[ " + "turn: #left . ".repeat(body) + "]";
+        ifStatement = lex("if: facing: #north then: " + block + " else: [ nop . ]");
+        whileStatement = lex("while: canMove: 1 inDir: #north do: " + block);
+        forStatement = lex("for: 3 repeat: " + block);
+        procCall = lex("walk: 1 inDir: #north .");
+        builtinCall = lex("move: 1 inDir: #north .");
+
+        walk = validator.validate("proc walk: steps inDir: direction [ nop . ]").getProcedures().first("walk");
+
+        TokenCounter counter = new TokenCounter();
+        if (!ifStatement(counter) || !whileStatement(counter) || !forStatement(counter)
+                || !procCall(counter) || !builtinCall(counter)) {
+            throw new IllegalStateException("A benchmark statement is not valid");
+        }
+    }
+
+    private static TokenStream lex(String statement) {
+        return new MappedLexer(ByteBuffer.wrap(statement.getBytes(StandardCharsets.UTF_8))).tokenize();
+    }
+
+    private boolean parse(TokenStream statement, TokenCounter counter) {
+        counter.tokens += statement.size();
+        ValidationContext context = validator.newContext();
+        context.declareProcedure(walk);
+        try {
+            return new AstParser(statement, context).parse() != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public boolean ifStatement(TokenCounter counter) {
+        return parse(ifStatement, counter);
+    }
+
+    @Benchmark
+    public boolean whileStatement(TokenCounter counter) {
+        return parse(whileStatement, counter);
+    }
+
+    @Benchmark
+    public boolean forStatement(TokenCounter counter) {
+        return parse(forStatement, counter);
+    }
+
+    @Benchmark
+    public boolean procCall(TokenCounter counter) {
+        return parse(procCall, counter);
+    }
+
+    @Benchmark
+    public boolean builtinCall(TokenCounter counter) {
+        return parse(builtinCall, counter);
+    }
+}
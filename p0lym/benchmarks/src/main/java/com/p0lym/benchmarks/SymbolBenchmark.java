@@ -0,0 +1,105 @@
+package com.p0lym.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.p0lym.MappedLexer;
+import com.p0lym.ProgramGenerator;
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+import com.p0lym.RobotValidator;
+import com.p0lym.SymbolTable;
+
+// Cost of the names of a generated program: "newStrings" makes a String for every identifier
+// and constant token as the lexer used to, "intern" looks their bytes up in a SymbolTable, and
+// "validate" is the whole validation. Compare gc.alloc.rate.norm with -prof gc.
+//
+//   java -jar target/benchmarks.jar SymbolBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SymbolBenchmark {
+    @Param({"10000"})
+    public int statements;
+
+    private final RobotValidator validator = new RobotValidator();
+    private ByteBuffer source;
+    // Start and length of every token that is not fixed text
+    private int[] names;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(statements);
+        source = ByteBuffer.wrap(generator.generate().getBytes(StandardCharsets.UTF_8));
+
+        // Columns count from 0 and the generated program is ASCII, so a token starts at the
+        // start of its line plus its column
+        int[] lines = new int[16];
+        int lineCount = 1;
+        for (int i = 0; i < source.limit(); i++) {
+            if (source.get(i) == '\n') {
+                if (lineCount == lines.length) {
+                    lines = Arrays.copyOf(lines, lineCount * 2);
+                }
+                lines[lineCount++] = i + 1;
+            }
+        }
+        int[] found = new int[1024];
+        int count = 0;
+        MappedLexer lexer = new MappedLexer(source.duplicate());
+        Token token;
+        while ((token = lexer.nextToken()).getType() != TokenType.EOF) {
+            if (token.getType().getText() != null) {
+                continue;
+            }
+            if (count + 2 > found.length) {
+                found = Arrays.copyOf(found, found.length * 2);
+            }
+            found[count++] = lines[token.getLine() - 1] + token.getColumn();
+            found[count++] = token.getValue().length();
+        }
+        names = Arrays.copyOf(found, count);
+    }
+
+    @Benchmark
+    public void newStrings(Blackhole blackhole) {
+        for (int i = 0; i < names.length; i += 2) {
+            byte[] bytes = new byte[names[i + 1]];
+            source.get(names[i], bytes);
+            blackhole.consume(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public void intern(Blackhole blackhole) {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < names.length; i += 2) {
+            blackhole.consume(symbols.intern(source, names[i], names[i + 1]));
+        }
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return validator.validate(source).isValid();
+    }
+}
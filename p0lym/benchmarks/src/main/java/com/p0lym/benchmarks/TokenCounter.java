@@ -0,0 +1,20 @@
+package com.p0lym.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Secondary result with the tokens handled per second. With -prof gc, bytes allocated per
+// token are gc.alloc.rate.norm / (tokens / primary score).
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class TokenCounter {
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        tokens = 0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.p0lym.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.p0lym.MappedLexer;
+import com.p0lym.RobotValidator;
+import com.p0lym.ValidationContext;
+
+// Runs the programs of a directory through one shared RobotValidator from 1, 2, 4, ... threads.
+// Every result (verdict and first error) must match the single threaded one; the throughput per
+// thread count shows how it scales.
+//
+//   java -cp target/benchmarks.jar com.p0lym.benchmarks.ValidatorStress ../resources [rounds]
+public class ValidatorStress {
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "resources");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        List<ByteBuffer> sources = new ArrayList<>();
+        for (Path file : files) {
+            sources.add(MappedLexer.map(file));
+        }
+
+        RobotValidator validator = new RobotValidator();
+        List<String> expected = results(validator, sources);
+        for (int i = 0; i < files.size(); i++) {
+            System.out.println(files.get(i).getFileName() + ": " + expected.get(i));
+        }
+
+        // Warm up so the single threaded run is not measured while still being compiled
+        run(validator, sources, expected, 1, rounds);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double rate = run(validator, sources, expected, threads, rounds);
+            if (threads == 1) {
+                single = rate;
+            }
+            System.out.printf("threads=%d programs/s=%.0f speedup=%.2f%n", threads, rate, rate / single);
+        }
+    }
+
+    private static List<String> results(RobotValidator validator, List<ByteBuffer> sources) {
+        List<String> results = new ArrayList<>();
+        for (ByteBuffer source : sources) {
+            ValidationContext context = validator.validate(source);
+            results.add(context.isValid() + " " + context.getError());
+        }
+        return results;
+    }
+
+    // Programs validated per second with every thread doing the given rounds over the corpus
+    private static double run(RobotValidator validator, List<ByteBuffer> sources, List<String> expected, int threads, int rounds)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        List<String> results = results(validator, sources);
+                        if (!Objects.equals(results, expected)) {
+                            throw new IllegalStateException("Different results from " + threads + " threads: " + results);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            return (double) threads * rounds * sources.size() / (elapsed / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
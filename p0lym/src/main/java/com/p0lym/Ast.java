@@ -0,0 +1,317 @@
+package com.p0lym;
+
+import java.util.List;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Syntax tree built by AstParser. Every node keeps the tokens it was parsed from, so later
+// stages (execution, analysis, caching) can report positions without going back to the source.
+public final class Ast {
+    private Ast() {
+    }
+
+    public abstract static class Node {
+        private final int line;
+        private final int column;
+
+        protected Node(Token token) {
+            this.line = token.getLine();
+            this.column = token.getColumn();
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+    }
+
+    // Top level items in source order: variable and procedure declarations and statements
+    public static class Program extends Node {
+        private final List<Node> items;
+        private final int globalCount;
+
+        // globalCount is the number of Scope slots taken by global variables
+        public Program(Token first, List<Node> items, int globalCount) {
+            super(first);
+            this.items = items;
+            this.globalCount = globalCount;
+        }
+
+        public List<Node> getItems() {
+            return items;
+        }
+
+        public int getGlobalCount() {
+            return globalCount;
+        }
+    }
+
+    // |a b c|, global at the top level and local inside a procedure
+    public static class VarDecl extends Node {
+        private final List<Token> names;
+        private final boolean local;
+
+        public VarDecl(Token pipe, List<Token> names, boolean local) {
+            super(pipe);
+            this.names = names;
+            this.local = local;
+        }
+
+        public List<Token> getNames() {
+            return names;
+        }
+
+        public boolean isLocal() {
+            return local;
+        }
+    }
+
+    // proc putChips: n andBalloons: m [ ... ]
+    public static class ProcDecl extends Node {
+        private final Token[] parts;
+        private final Token[] params;
+        private final int localCount;
+        private final Block body;
+
+        // localCount is the number of Scope slots taken by the parameters and locals
+        public ProcDecl(Token proc, Token[] parts, Token[] params, int localCount, Block body) {
+            super(proc);
+            this.parts = parts;
+            this.params = params;
+            this.localCount = localCount;
+            this.body = body;
+        }
+
+        public String getName() {
+            return parts[0].getValue();
+        }
+
+        public Token[] getParts() {
+            return parts;
+        }
+
+        public Token[] getParams() {
+            return params;
+        }
+
+        public int getLocalCount() {
+            return localCount;
+        }
+
+        public Block getBody() {
+            return body;
+        }
+    }
+
+    public static class Block extends Node {
+        private final List<Node> statements;
+
+        public Block(Token open, List<Node> statements) {
+            super(open);
+            this.statements = statements;
+        }
+
+        public List<Node> getStatements() {
+            return statements;
+        }
+    }
+
+    // name := value .
+    public static class Assign extends Node {
+        private final Token name;
+        private final int slot;
+        private final Token value;
+        private final int valueSlot;
+
+        // slot and valueSlot are the Scope slots of the variables, valueSlot is
+        // Scope.UNDEFINED when the value is not a variable
+        public Assign(Token name, int slot, Token value, int valueSlot) {
+            super(name);
+            this.name = name;
+            this.slot = slot;
+            this.value = value;
+            this.valueSlot = valueSlot;
+        }
+
+        public Token getName() {
+            return name;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public Token getValue() {
+            return value;
+        }
+
+        public int getValueSlot() {
+            return valueSlot;
+        }
+    }
+
+    // "keyword [:] [argument]" groups shared by calls and conditions. args[i] belongs to
+    // parts[i] and is null when it was left out.
+    public abstract static class Invocation extends Node {
+        private final Token[] parts;
+        private final Token[] args;
+        private final int colons;
+        private int[] slots;
+
+        protected Invocation(Token[] parts, Token[] args, int colons) {
+            super(parts[0]);
+            this.parts = parts;
+            this.args = args;
+            this.colons = colons;
+        }
+
+        public String getName() {
+            return parts[0].getValue();
+        }
+
+        public Token[] getParts() {
+            return parts;
+        }
+
+        public Token[] getArgs() {
+            return args;
+        }
+
+        public int getColons() {
+            return colons;
+        }
+
+        // Number of arguments actually written
+        public int getArgCount() {
+            int count = 0;
+            for (Token arg : args) {
+                if (arg != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Slot of each argument that names a variable, Scope.UNDEFINED for the rest. Looked
+        // up the first time the call is matched and reused for every candidate signature.
+        public int getSlot(int i) {
+            return slots == null ? Scope.UNDEFINED : slots[i];
+        }
+
+        int[] bind(SignatureIndex.Variables variables) {
+            if (slots == null) {
+                slots = new int[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    Token arg = args[i];
+                    slots[i] = arg != null && arg.getType() == TokenType.IDENTIFIER ? variables.slot(arg.getValue()) : Scope.UNDEFINED;
+                }
+            }
+            return slots;
+        }
+
+        // Slots of a node built after validation, such as the AstOptimizer's
+        void setSlots(int[] slots) {
+            this.slots = slots;
+        }
+    }
+
+    public static class Call extends Invocation {
+        private boolean builtin;
+
+        public Call(Token[] parts, Token[] args, int colons) {
+            super(parts, args, colons);
+        }
+
+        // Set once the call is resolved: true for a built-in, false for a user procedure
+        public boolean isBuiltin() {
+            return builtin;
+        }
+
+        void setBuiltin(boolean builtin) {
+            this.builtin = builtin;
+        }
+    }
+
+    public static class Condition extends Invocation {
+        public Condition(Token[] parts, Token[] args, int colons) {
+            super(parts, args, colons);
+        }
+    }
+
+    // if: condition then: [ ... ] else: [ ... ]
+    public static class If extends Node {
+        private final Condition condition;
+        private final Block then;
+        private final Block otherwise;
+
+        public If(Token keyword, Condition condition, Block then, Block otherwise) {
+            super(keyword);
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        public Condition getCondition() {
+            return condition;
+        }
+
+        public Block getThen() {
+            return then;
+        }
+
+        public Block getOtherwise() {
+            return otherwise;
+        }
+    }
+
+    // while: condition do: [ ... ]
+    public static class While extends Node {
+        private final Condition condition;
+        private final Block body;
+
+        public While(Token keyword, Condition condition, Block body) {
+            super(keyword);
+            this.condition = condition;
+            this.body = body;
+        }
+
+        public Condition getCondition() {
+            return condition;
+        }
+
+        public Block getBody() {
+            return body;
+        }
+    }
+
+    // for: times repeat: [ ... ], times is a number or a variable
+    public static class Repeat extends Node {
+        private final Token times;
+        private final int slot;
+        private final Block body;
+
+        // slot is the Scope slot of times, or Scope.UNDEFINED when it is a number
+        public Repeat(Token keyword, Token times, int slot, Block body) {
+            super(keyword);
+            this.times = times;
+            this.slot = slot;
+            this.body = body;
+        }
+
+        public Token getTimes() {
+            return times;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public Block getBody() {
+            return body;
+        }
+    }
+}
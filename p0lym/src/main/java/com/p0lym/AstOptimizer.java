@@ -0,0 +1,632 @@
+package com.p0lym;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Rewrites a validated program so it leaves every board the same way in fewer steps. Each
+// pass walks the tree bottom up with an explicit stack, like AstParser and BytecodeCompiler,
+// and hands every rebuilt statement to the pass, which puts it (or what replaces it) at the
+// end of its block:
+//   INLINE      calls to small procedures without calls, assignments or locals become their
+//               bodies, and procedures no call reaches any more are dropped
+//   UNROLL      for: with a small number repeats its body in place
+//   CONDITIONS  if: and while: with a known condition become the branch taken: a count of 0
+//               always holds, and facing: is known after face: in the same block
+//   FOLD        a run of turn: and face: becomes one (or none) and nop is dropped
+// With setMergeMoves, FOLD also adds up moves the same way by numbers. That is the only
+// rewrite that can change a result: a merged move that is blocked does not move at all,
+// while the moves it replaced would have gone part of the way.
+public class AstOptimizer {
+    public enum Pass {
+        INLINE, UNROLL, CONDITIONS, FOLD
+    }
+
+    // Instructions a procedure body may take to be inlined
+    private static final int INLINE_LIMIT = 8;
+    // Times a loop may be unrolled, and instructions it may take once unrolled
+    private static final int UNROLL_TIMES = 8;
+    private static final int UNROLL_LIMIT = 16;
+
+    private static final String[] ORIENTATIONS = {"#north", "#east", "#south", "#west"};
+    private static final String[] RELATIVE = {"#front", "#right", "#back", "#left"};
+    // Quarter turns to the right, by how turn: names them
+    private static final String[] TURNS = {null, "#right", "#around", "#left"};
+    private static final int UNKNOWN = -1;
+    private static final Ast.Block[] NO_BLOCKS = new Ast.Block[0];
+
+    private boolean mergeMoves;
+    private final int[] removed = new int[Pass.values().length];
+    private int before;
+    private int after;
+
+    public void setMergeMoves(boolean mergeMoves) {
+        this.mergeMoves = mergeMoves;
+    }
+
+    public Ast.Program optimize(Ast.Program program) {
+        before = size(program, Integer.MAX_VALUE);
+        int size = before;
+        for (Pass pass : Pass.values()) {
+            program = rewrite(program, rewriter(pass));
+            int next = size(program, Integer.MAX_VALUE);
+            removed[pass.ordinal()] = size - next;
+            size = next;
+        }
+        after = size;
+        return program;
+    }
+
+    // Instructions the pass took out of the last program optimized (negative when inlining
+    // or unrolling made it longer to save the steps of calls and loops)
+    public int getRemoved(Pass pass) {
+        return removed[pass.ordinal()];
+    }
+
+    // Instructions of the last program optimized, counted as BytecodeCompiler emits them
+    public int getBefore() {
+        return before;
+    }
+
+    public int getAfter() {
+        return after;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Optimización: de %d a %d instrucciones (en línea %d, desenrollado %d, condiciones %d, plegado %d)%n",
+                before, after, getRemoved(Pass.INLINE), getRemoved(Pass.UNROLL),
+                getRemoved(Pass.CONDITIONS), getRemoved(Pass.FOLD));
+    }
+
+    private Rewriter rewriter(Pass pass) {
+        switch (pass) {
+            case INLINE:
+                return new Inliner();
+            case UNROLL:
+                return new Unroller();
+            case CONDITIONS:
+                return new Decider();
+            default:
+                return new Folder(mergeMoves);
+        }
+    }
+
+    // A block being rebuilt: its statements so far, and the blocks of the one being worked on
+    private static class Frame {
+        private final Ast.Node at;
+        private final List<Ast.Node> source;
+        private int index;
+        private Ast.Block[] children;
+        private int child;
+        // What gets added to the block
+        private final List<Ast.Node> out = new ArrayList<>();
+        // What the pass knows at the end of out
+        private int state = UNKNOWN;
+
+        Frame(Ast.Node at, List<Ast.Node> source) {
+            this.at = at;
+            this.source = source;
+        }
+    }
+
+    private abstract static class Rewriter {
+        // Before the blocks of node are rewritten
+        void enter(Ast.Node node) {
+        }
+
+        // node, with its blocks rewritten, goes at the end of frame.out
+        abstract void add(Ast.Node node, Frame frame);
+
+        // The top level once every item was added
+        List<Ast.Node> finish(List<Ast.Node> items) {
+            return items;
+        }
+    }
+
+    private static Ast.Program rewrite(Ast.Program program, Rewriter rewriter) {
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(program, program.getItems()));
+        while (true) {
+            Frame frame = stack.peek();
+            if (frame.index == frame.source.size()) {
+                stack.pop();
+                if (stack.isEmpty()) {
+                    return new Ast.Program(token(program, TokenType.IDENTIFIER, ""), rewriter.finish(frame.out),
+                            program.getGlobalCount());
+                }
+                Frame parent = stack.peek();
+                parent.children[parent.child++] = new Ast.Block(token(frame.at, TokenType.BRACKET_OPEN, "["), frame.out);
+                continue;
+            }
+
+            Ast.Node node = frame.source.get(frame.index);
+            Ast.Block[] blocks = blocks(node);
+            if (frame.children == null) {
+                rewriter.enter(node);
+                frame.children = blocks.length == 0 ? NO_BLOCKS : new Ast.Block[blocks.length];
+                frame.child = 0;
+            }
+            if (frame.child < blocks.length) {
+                Ast.Block block = blocks[frame.child];
+                if (block == null) {
+                    frame.children[frame.child++] = null;
+                } else {
+                    stack.push(new Frame(block, block.getStatements()));
+                }
+                continue;
+            }
+            Ast.Node rebuilt = rebuild(node, frame.children);
+            frame.children = null;
+            frame.index++;
+            rewriter.add(rebuilt, frame);
+        }
+    }
+
+    private static Ast.Block[] blocks(Ast.Node node) {
+        if (node instanceof Ast.If) {
+            return new Ast.Block[] {((Ast.If) node).getThen(), ((Ast.If) node).getOtherwise()};
+        } else if (node instanceof Ast.While) {
+            return new Ast.Block[] {((Ast.While) node).getBody()};
+        } else if (node instanceof Ast.Repeat) {
+            return new Ast.Block[] {((Ast.Repeat) node).getBody()};
+        } else if (node instanceof Ast.ProcDecl) {
+            return new Ast.Block[] {((Ast.ProcDecl) node).getBody()};
+        } else if (node instanceof Ast.Block) {
+            return new Ast.Block[] {(Ast.Block) node};
+        }
+        return NO_BLOCKS;
+    }
+
+    private static Ast.Node rebuild(Ast.Node node, Ast.Block[] blocks) {
+        if (node instanceof Ast.If) {
+            Ast.If ifNode = (Ast.If) node;
+            return new Ast.If(token(node, TokenType.IF, "if"), ifNode.getCondition(), blocks[0], blocks[1]);
+        } else if (node instanceof Ast.While) {
+            return new Ast.While(token(node, TokenType.WHILE, "while"), ((Ast.While) node).getCondition(), blocks[0]);
+        } else if (node instanceof Ast.Repeat) {
+            Ast.Repeat repeat = (Ast.Repeat) node;
+            return new Ast.Repeat(token(node, TokenType.FOR, "for"), repeat.getTimes(), repeat.getSlot(), blocks[0]);
+        } else if (node instanceof Ast.ProcDecl) {
+            Ast.ProcDecl procDecl = (Ast.ProcDecl) node;
+            return new Ast.ProcDecl(token(node, TokenType.PROC, "proc"), procDecl.getParts(), procDecl.getParams(),
+                    procDecl.getLocalCount(), blocks[0]);
+        } else if (node instanceof Ast.Block) {
+            return blocks[0];
+        }
+        return node;
+    }
+
+    // Procedures by "name part ...", the last one declared as the compiler resolves calls
+    private static class Inliner extends Rewriter {
+        private static class Procedure {
+            private Ast.ProcDecl decl;
+            private Ast.Block body; // null when calls are kept
+            private int calls;
+        }
+
+        private final HashMap<String, Procedure> procedures = new HashMap<>();
+        private final IdentityHashMap<Ast.ProcDecl, Procedure> declared = new IdentityHashMap<>();
+
+        @Override
+        void enter(Ast.Node node) {
+            // Declared before its body, so a call to itself is never inlined
+            if (node instanceof Ast.ProcDecl) {
+                procedures.put(BytecodeCompiler.key(((Ast.ProcDecl) node).getParts()), new Procedure());
+            }
+        }
+
+        @Override
+        void add(Ast.Node node, Frame frame) {
+            if (node instanceof Ast.ProcDecl) {
+                Ast.ProcDecl procDecl = (Ast.ProcDecl) node;
+                Procedure procedure = procedures.get(BytecodeCompiler.key(procDecl.getParts()));
+                procedure.decl = procDecl;
+                if (inlinable(procDecl)) {
+                    procedure.body = procDecl.getBody();
+                }
+                declared.put(procDecl, procedure);
+            } else if (node instanceof Ast.Call && !((Ast.Call) node).isBuiltin()) {
+                Ast.Call call = (Ast.Call) node;
+                Procedure procedure = procedures.get(BytecodeCompiler.key(call.getParts()));
+                if (procedure != null && procedure.body != null) {
+                    for (Ast.Node statement : procedure.body.getStatements()) {
+                        frame.out.add(substitute(statement, call));
+                    }
+                    return;
+                }
+                if (procedure != null) {
+                    procedure.calls++;
+                }
+            }
+            frame.out.add(node);
+        }
+
+        @Override
+        List<Ast.Node> finish(List<Ast.Node> items) {
+            List<Ast.Node> kept = new ArrayList<>(items.size());
+            for (Ast.Node item : items) {
+                if (!(item instanceof Ast.ProcDecl) || declared.get(item).calls > 0) {
+                    kept.add(item);
+                }
+            }
+            return kept;
+        }
+
+        // Only parameters as locals, nothing assigned and no calls to procedures
+        private static boolean inlinable(Ast.ProcDecl procDecl) {
+            if (procDecl.getLocalCount() != procDecl.getParams().length
+                    || size(procDecl.getBody(), INLINE_LIMIT + 1) > INLINE_LIMIT) {
+                return false;
+            }
+            ArrayDeque<Ast.Node> work = new ArrayDeque<>();
+            work.push(procDecl.getBody());
+            while (!work.isEmpty()) {
+                Ast.Node node = work.pop();
+                if (node instanceof Ast.Assign || node instanceof Ast.VarDecl || node instanceof Ast.ProcDecl
+                        || node instanceof Ast.Call && !((Ast.Call) node).isBuiltin()) {
+                    return false;
+                }
+                for (Ast.Block block : blocks(node)) {
+                    if (block != null && block != node) {
+                        work.push(block);
+                    }
+                }
+                if (node instanceof Ast.Block) {
+                    for (Ast.Node statement : ((Ast.Block) node).getStatements()) {
+                        work.push(statement);
+                    }
+                }
+            }
+            return true;
+        }
+
+        // The statement with every parameter replaced by the argument of call. Bodies are
+        // small (INLINE_LIMIT), so this recursion is shallow.
+        private static Ast.Node substitute(Ast.Node node, Ast.Call call) {
+            if (node instanceof Ast.Call) {
+                Ast.Call original = (Ast.Call) node;
+                Ast.Call copy = new Ast.Call(original.getParts(), original.getArgs().clone(), original.getColons());
+                copy.setBuiltin(true);
+                copy.setSlots(substitute(original, copy.getArgs(), call));
+                return copy;
+            } else if (node instanceof Ast.If) {
+                Ast.If ifNode = (Ast.If) node;
+                return new Ast.If(token(node, TokenType.IF, "if"), substitute(ifNode.getCondition(), call),
+                        substitute(ifNode.getThen(), call), substitute(ifNode.getOtherwise(), call));
+            } else if (node instanceof Ast.While) {
+                Ast.While whileNode = (Ast.While) node;
+                return new Ast.While(token(node, TokenType.WHILE, "while"), substitute(whileNode.getCondition(), call),
+                        substitute(whileNode.getBody(), call));
+            } else if (node instanceof Ast.Repeat) {
+                Ast.Repeat repeat = (Ast.Repeat) node;
+                Token times = repeat.getTimes();
+                int slot = repeat.getSlot();
+                if (slot != Scope.UNDEFINED && Scope.isLocal(slot)) {
+                    times = call.getArgs()[Scope.index(slot)];
+                    slot = call.getSlot(Scope.index(slot));
+                }
+                return new Ast.Repeat(token(node, TokenType.FOR, "for"), times, slot, substitute(repeat.getBody(), call));
+            } else if (node instanceof Ast.Block) {
+                return substitute((Ast.Block) node, call);
+            }
+            return node;
+        }
+
+        private static Ast.Block substitute(Ast.Block block, Ast.Call call) {
+            if (block == null) {
+                return null;
+            }
+            List<Ast.Node> statements = new ArrayList<>(block.getStatements().size());
+            for (Ast.Node statement : block.getStatements()) {
+                statements.add(substitute(statement, call));
+            }
+            return new Ast.Block(token(block, TokenType.BRACKET_OPEN, "["), statements);
+        }
+
+        private static Ast.Condition substitute(Ast.Condition condition, Ast.Call call) {
+            Ast.Condition copy = new Ast.Condition(condition.getParts(), condition.getArgs().clone(), condition.getColons());
+            copy.setSlots(substitute(condition, copy.getArgs(), call));
+            return copy;
+        }
+
+        // Fills args with the arguments of call where invocation names a parameter (the only
+        // locals of an inlined procedure) and returns the slots that go with them
+        private static int[] substitute(Ast.Invocation invocation, Token[] args, Ast.Call call) {
+            int[] slots = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                int slot = invocation.getSlot(i);
+                if (slot != Scope.UNDEFINED && Scope.isLocal(slot)) {
+                    args[i] = call.getArgs()[Scope.index(slot)];
+                    slot = call.getSlot(Scope.index(slot));
+                }
+                slots[i] = slot;
+            }
+            return slots;
+        }
+    }
+
+    private static class Unroller extends Rewriter {
+        @Override
+        void add(Ast.Node node, Frame frame) {
+            if (node instanceof Ast.Repeat) {
+                Ast.Repeat repeat = (Ast.Repeat) node;
+                int times = number(repeat.getTimes(), repeat.getSlot());
+                if (times >= 0 && (times <= 1 || times <= UNROLL_TIMES
+                        && times * size(repeat.getBody(), UNROLL_LIMIT + 1) <= UNROLL_LIMIT)) {
+                    for (int i = 0; i < times; i++) {
+                        frame.out.addAll(repeat.getBody().getStatements());
+                    }
+                    return;
+                }
+            }
+            frame.out.add(node);
+        }
+    }
+
+    // Decides conditions; frame.state is the orientation the robot faces, when known
+    private static class Decider extends Rewriter {
+        private final ArrayDeque<Ast.Node> pending = new ArrayDeque<>();
+
+        @Override
+        void add(Ast.Node first, Frame frame) {
+            // A branch taken is added statement by statement: what it decides may decide more
+            pending.push(first);
+            while (!pending.isEmpty()) {
+                Ast.Node node = pending.pop();
+                if (node instanceof Ast.If) {
+                    Ast.If ifNode = (Ast.If) node;
+                    Boolean holds = holds(ifNode.getCondition(), frame.state);
+                    if (holds != null) {
+                        splice(holds ? ifNode.getThen() : ifNode.getOtherwise());
+                        continue;
+                    }
+                    if (empty(ifNode.getThen()) && empty(ifNode.getOtherwise()) && harmless(ifNode.getCondition())) {
+                        continue;
+                    }
+                    frame.state = UNKNOWN;
+                } else if (node instanceof Ast.While) {
+                    if (Boolean.FALSE.equals(holds(((Ast.While) node).getCondition(), frame.state))) {
+                        continue;
+                    }
+                    frame.state = UNKNOWN;
+                } else if (node instanceof Ast.Repeat) {
+                    frame.state = UNKNOWN;
+                } else if (node instanceof Ast.Call) {
+                    frame.state = facing((Ast.Call) node, frame.state);
+                }
+                frame.out.add(node);
+            }
+        }
+
+        private void splice(Ast.Block block) {
+            if (block != null) {
+                List<Ast.Node> statements = block.getStatements();
+                for (int i = statements.size() - 1; i >= 0; i--) {
+                    pending.push(statements.get(i));
+                }
+            }
+        }
+
+        // True or false when known for any board, null otherwise
+        private static Boolean holds(Ast.Condition condition, int facing) {
+            Token[] args = condition.getArgs();
+            switch (BytecodeCompiler.key(condition.getParts())) {
+                case "facing":
+                    return facing == UNKNOWN ? null : facing == BytecodeCompiler.orientation(args[0]);
+                case "canMove inDir":
+                case "canMove toThe":
+                case "canPut ofType":
+                case "canPick ofType":
+                    // Nothing to walk, leave or take
+                    return count(condition) == 0 ? Boolean.TRUE : null;
+                default:
+                    return null;
+            }
+        }
+
+        // A condition that cannot stop the program: no count, or one written as a number
+        private static boolean harmless(Ast.Condition condition) {
+            return condition.getName().equals("facing") || count(condition) >= 0;
+        }
+
+        private static boolean empty(Ast.Block block) {
+            return block == null || block.getStatements().isEmpty();
+        }
+
+        // Orientation faced after call, from the one faced before
+        private static int facing(Ast.Call call, int facing) {
+            if (!call.isBuiltin()) {
+                return UNKNOWN;
+            }
+            int turn = turn(call);
+            if (turn != UNKNOWN) {
+                return facing == UNKNOWN ? UNKNOWN : (facing + turn) & 3;
+            }
+            int face = face(call);
+            return face != UNKNOWN ? face : facing;
+        }
+    }
+
+    // frame.out never ends with two turns or faces in a row: each one is folded into the last
+    private static class Folder extends Rewriter {
+        private final boolean mergeMoves;
+
+        Folder(boolean mergeMoves) {
+            this.mergeMoves = mergeMoves;
+        }
+
+        @Override
+        void add(Ast.Node node, Frame frame) {
+            List<Ast.Node> out = frame.out;
+            Ast.Node last = out.isEmpty() ? null : out.get(out.size() - 1);
+            if (node instanceof Ast.Call && ((Ast.Call) node).isBuiltin()) {
+                Ast.Call call = (Ast.Call) node;
+                if (call.getName().equals("nop")) {
+                    return;
+                }
+                int turn = turn(call);
+                if (turn != UNKNOWN && last instanceof Ast.Call) {
+                    int lastTurn = turn((Ast.Call) last);
+                    int lastFace = face((Ast.Call) last);
+                    if (lastTurn != UNKNOWN) {
+                        out.remove(out.size() - 1);
+                        if (((lastTurn + turn) & 3) != 0) {
+                            out.add(call(last, new String[] {"turn"}, constant(last, TURNS[(lastTurn + turn) & 3])));
+                        }
+                        return;
+                    }
+                    if (lastFace != UNKNOWN) {
+                        out.set(out.size() - 1, call(last, new String[] {"face"},
+                                constant(last, ORIENTATIONS[(lastFace + turn) & 3])));
+                        return;
+                    }
+                }
+                if (face(call) != UNKNOWN && last instanceof Ast.Call
+                        && (turn((Ast.Call) last) != UNKNOWN || face((Ast.Call) last) != UNKNOWN)) {
+                    out.set(out.size() - 1, call);
+                    return;
+                }
+                if (mergeMoves && last instanceof Ast.Call && merge((Ast.Call) last, call, out)) {
+                    return;
+                }
+            }
+            out.add(node);
+        }
+
+        // Replaces last with one move as far as both, when both go the same way by numbers
+        private static boolean merge(Ast.Call last, Ast.Call call, List<Ast.Node> out) {
+            int way = moveWay(call);
+            if (way == UNKNOWN || moveWay(last) != way) {
+                return false;
+            }
+            long steps = (long) moveSteps(last) + moveSteps(call);
+            if (moveSteps(last) < 0 || moveSteps(call) < 0 || steps > Integer.MAX_VALUE) {
+                return false;
+            }
+            Token count = new Token(TokenType.NUMBER, String.valueOf(steps), last.getLine(), last.getColumn());
+            Ast.Call merged = (way & 4) != 0
+                    ? call(last, new String[] {"move", "inDir"}, count, constant(last, ORIENTATIONS[way & 3]))
+                    : call(last, new String[] {"move", "toThe"}, count, constant(last, RELATIVE[way & 3]));
+            out.set(out.size() - 1, merged);
+            return true;
+        }
+
+        // The direction of a move, with 4 added for an orientation, or UNKNOWN
+        private static int moveWay(Ast.Call call) {
+            switch (BytecodeCompiler.key(call.getParts())) {
+                case "M":
+                case "move":
+                    return Bytecode.FRONT;
+                case "move toThe":
+                    return BytecodeCompiler.relative(call.getArgs()[1]);
+                case "move inDir":
+                    return 4 | BytecodeCompiler.orientation(call.getArgs()[1]);
+                default:
+                    return UNKNOWN;
+            }
+        }
+
+        private static int moveSteps(Ast.Call call) {
+            return call.getName().equals("M") ? 1 : count(call);
+        }
+    }
+
+    // Quarter turns to the right of a turn: or R, or UNKNOWN
+    private static int turn(Ast.Call call) {
+        switch (BytecodeCompiler.key(call.getParts())) {
+            case "turn":
+                return BytecodeCompiler.turn(call.getArgs()[0]);
+            case "R":
+                return Bytecode.RIGHT;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    // Orientation of a face:, or UNKNOWN
+    private static int face(Ast.Call call) {
+        return call.getName().equals("face") && call.getParts().length == 1
+                ? BytecodeCompiler.orientation(call.getArgs()[0]) : UNKNOWN;
+    }
+
+    // The first argument when it is written as a number (1 when left out), or -1
+    private static int count(Ast.Invocation invocation) {
+        if (invocation.getArgs().length == 0) {
+            return -1;
+        }
+        Token arg = invocation.getArgs()[0];
+        return arg == null ? 1 : number(arg, invocation.getSlot(0));
+    }
+
+    private static int number(Token token, int slot) {
+        return slot == Scope.UNDEFINED && token.getType() == TokenType.NUMBER
+                ? BytecodeCompiler.parseNumber(token.getValue()) : -1;
+    }
+
+    // A built-in call where at is, with every argument written out
+    private static Ast.Call call(Ast.Node at, String[] parts, Token... args) {
+        Token[] tokens = new Token[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            tokens[i] = token(at, TokenType.IDENTIFIER, parts[i]);
+        }
+        Ast.Call call = new Ast.Call(tokens, args, args.length);
+        call.setBuiltin(true);
+        int[] slots = new int[args.length];
+        Arrays.fill(slots, Scope.UNDEFINED);
+        call.setSlots(slots);
+        return call;
+    }
+
+    private static Token constant(Ast.Node at, String name) {
+        return token(at, TokenType.CONSTANT, name);
+    }
+
+    private static Token token(Ast.Node at, TokenType type, String value) {
+        return new Token(type, value, at.getLine(), at.getColumn());
+    }
+
+    // Instructions BytecodeCompiler emits for node, counted up to limit
+    private static int size(Ast.Node root, int limit) {
+        int size = 0;
+        ArrayDeque<Ast.Node> work = new ArrayDeque<>();
+        work.push(root);
+        while (!work.isEmpty() && size < limit) {
+            Ast.Node node = work.pop();
+            if (node instanceof Ast.Program) {
+                size++; // the final HALT
+                for (Ast.Node item : ((Ast.Program) node).getItems()) {
+                    work.push(item);
+                }
+            } else if (node instanceof Ast.Block) {
+                for (Ast.Node statement : ((Ast.Block) node).getStatements()) {
+                    work.push(statement);
+                }
+            } else if (node instanceof Ast.Call) {
+                Ast.Call call = (Ast.Call) node;
+                size += call.isBuiltin() && call.getName().equals("nop") ? 0 : 1;
+            } else if (node instanceof Ast.Assign) {
+                size++;
+            } else if (node instanceof Ast.If) {
+                Ast.If ifNode = (Ast.If) node;
+                size++;
+                work.push(ifNode.getThen());
+                if (ifNode.getOtherwise() != null && !ifNode.getOtherwise().getStatements().isEmpty()) {
+                    size++;
+                    work.push(ifNode.getOtherwise());
+                }
+            } else if (node instanceof Ast.While || node instanceof Ast.Repeat || node instanceof Ast.ProcDecl) {
+                // The test and the branch back, REPEAT and LOOP, or the BRANCH over and RETURN
+                size += 2;
+                work.push(blocks(node)[0]);
+            }
+        }
+        return Math.min(size, limit);
+    }
+}
@@ -0,0 +1,602 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.p0lym.Diagnostics.Message;
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+import com.p0lym.SignatureIndex.Signature;
+
+// Single pass parser with one token of lookahead. Every token is read once from the source and
+// the checks (declared variables, procedure and condition signatures) are done while the tree
+// is built, so nested blocks are not rescanned. Nesting is tracked on an explicit stack rather
+// than by recursion, so deeply nested programs cannot overflow the Java stack.
+//
+// Errors go to the context's diagnostics. Parsing normally stops at the first one; when the
+// context asks for recovery it skips to the next statement boundary (a period, a closing
+// bracket or a procedure) and goes on, so one pass reports every error.
+public class AstParser {
+    private final TokenSource source;
+    // Read through an index instead of source: a Token is only made for the tokens asked for
+    private final TokenStream tokens;
+    private final ValidationContext context;
+
+    private int index = -1;
+    private TokenType type;
+    // The current token, made on demand when reading tokens
+    private Token current;
+    private TokenType previous;
+    private long consumed;
+    private boolean proc;
+    // False when only checking: statements are then dropped, not added to their blocks
+    private boolean keep = true;
+
+    // Tokens come from source; declarations and errors are kept in context
+    public AstParser(TokenSource source, ValidationContext context) {
+        this.source = source;
+        this.tokens = null;
+        this.context = context;
+    }
+
+    // Tokens are read by index from a lexed stream
+    public AstParser(TokenStream tokens, ValidationContext context) {
+        this.source = null;
+        this.tokens = tokens;
+        this.context = context;
+    }
+
+    // The whole program, or null if it is not valid (the errors are in the context)
+    public Ast.Program parse() throws IOException {
+        List<Ast.Node> items = new ArrayList<>();
+        Token first = start();
+        if (first == null || !items(items) || !context.getDiagnostics().isEmpty()) {
+            return null;
+        }
+        Ast.Program program = new Ast.Program(first, items, context.getScope().getGlobalCount());
+        context.setProgram(program);
+        return program;
+    }
+
+    // Same checks as parse(), but every statement is dropped once it is checked, so only the
+    // blocks still open are kept, each without its statements
+    public boolean validate() throws IOException {
+        keep = false;
+        return start() != null && items(null) && context.getDiagnostics().isEmpty();
+    }
+
+    // One top level item at a time, for ValidationSession and ParallelValidator. begin() reads
+    // the first token and says whether there is one; each next() checks an item, adds it to
+    // items (if any) and says whether parsing can go on after it. rest() checks every item
+    // left and says whether they all were read.
+    boolean begin() throws IOException {
+        advance();
+        return type != TokenType.EOF;
+    }
+
+    boolean next(List<Ast.Node> items) throws IOException {
+        Ast.Node item = item();
+        if (item != null && items != null) {
+            items.add(item);
+        }
+        return item != null || recovering();
+    }
+
+    boolean rest(List<Ast.Node> items) throws IOException {
+        return items(items);
+    }
+
+    boolean atEnd() {
+        return type == TokenType.EOF;
+    }
+
+    private Token start() throws IOException {
+        advance();
+        if (type == TokenType.EOF) {
+            return error(Message.EMPTY_PROGRAM, current());
+        }
+        return current();
+    }
+
+    private boolean items(List<Ast.Node> items) throws IOException {
+        while (type != TokenType.EOF) {
+            Ast.Node item = item();
+            if (item == null) {
+                if (!recovering()) {
+                    return false;
+                }
+                continue;
+            }
+            if (items != null) {
+                items.add(item);
+            }
+        }
+        return true;
+    }
+
+    private void advance() throws IOException {
+        previous = type;
+        consumed++;
+        if (tokens != null) {
+            index++;
+            current = null;
+            type = index < tokens.size() ? tokens.type(index) : TokenType.EOF;
+        } else {
+            current = source.nextToken();
+            type = current.getType();
+        }
+        if (type == TokenType.INVALID) {
+            context.invalidToken(current());
+        }
+    }
+
+    // The current token, and moves past it
+    private Token take() throws IOException {
+        Token token = current();
+        advance();
+        return token;
+    }
+
+    private Token current() {
+        if (current == null) {
+            current = index < tokens.size() ? tokens.token(index) : tokens.end();
+        }
+        return current;
+    }
+
+    private boolean expect(TokenType expected, Message message) throws IOException {
+        if (type != expected) {
+            error(message, current());
+            return false;
+        }
+        advance();
+        return true;
+    }
+
+    private <T> T error(Message message, Token token) {
+        context.error(message, token);
+        return null;
+    }
+
+    private boolean recovering() {
+        return context.isRecovering() && !context.getDiagnostics().isFull();
+    }
+
+    // After an error, skips to where the next statement of the innermost open block starts:
+    // past a period, just after a nested block ends, or at a closing bracket or a procedure.
+    // Returns false if the input ended first.
+    private boolean resync(ArrayDeque<Frame> stack, boolean progressed) throws IOException {
+        if (progressed && previous == TokenType.PERIOD) {
+            // The statement was read whole (a call that matched no signature)
+            return true;
+        }
+        int depth = 0;
+        while (true) {
+            switch (type) {
+                case EOF:
+                    return false;
+                case PROC:
+                    // A procedure inside a procedure is skipped as part of the error
+                    if (depth == 0 && !proc) {
+                        return true;
+                    }
+                    break;
+                case BRACKET_OPEN:
+                    depth++;
+                    break;
+                case BRACKET_CLOSE:
+                    if (depth == 0) {
+                        if (stack.isEmpty()) {
+                            // Nothing to close at the top level
+                            advance();
+                        }
+                        return true;
+                    }
+                    depth--;
+                    advance();
+                    if (depth == 0 && type != TokenType.ELSE) {
+                        return true;
+                    }
+                    continue;
+                case PERIOD:
+                    if (depth == 0) {
+                        advance();
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            advance();
+        }
+    }
+
+    // One top level item. Blocks still open and the statements that own them are kept on an
+    // explicit stack instead of the Java stack, so any nesting depth fits in the heap.
+    private Ast.Node item() throws IOException {
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        while (true) {
+            int open = stack.size();
+            long start = consumed;
+            Ast.Node node = statement(stack);
+            if (node == null && stack.size() == open) {
+                if (!recovering() || !resync(stack, consumed > start)) {
+                    return failed();
+                }
+                if (stack.isEmpty()) {
+                    return null;
+                }
+            }
+
+            // Hand the statement to its block and close every block that ends here
+            while (true) {
+                if (node != null) {
+                    if (stack.isEmpty()) {
+                        return node;
+                    }
+                    if (keep) {
+                        stack.peek().statements.add(node);
+                    }
+                    node = null;
+                }
+                Frame block = stack.peek();
+                if (type == TokenType.EOF) {
+                    error(Message.UNCLOSED_BLOCK, block.token);
+                    return failed();
+                }
+                if (type != TokenType.BRACKET_CLOSE) {
+                    break;
+                }
+                advance();
+                stack.pop();
+                Ast.Block body = new Ast.Block(block.token, block.statements);
+
+                Frame owner = stack.peek();
+                if (owner == null || owner.kind == Kind.BLOCK) {
+                    node = body;
+                    continue;
+                }
+                stack.pop();
+                switch (owner.kind) {
+                    case IF:
+                        if (owner.then != null) {
+                            node = new Ast.If(owner.token, owner.condition, owner.then, body);
+                            break;
+                        }
+                        owner.then = body;
+                        if (!expect(TokenType.ELSE, Message.IF_SYNTAX) || !expect(TokenType.COLON, Message.IF_SYNTAX)
+                                || !openBlock(owner, stack)) {
+                            if (!recovering()) {
+                                return failed();
+                            }
+                            // The if is dropped and parsing goes on from the token that did not fit
+                            if (stack.isEmpty()) {
+                                return null;
+                            }
+                        }
+                        break;
+                    case WHILE:
+                        node = new Ast.While(owner.token, owner.condition, body);
+                        break;
+                    case REPEAT:
+                        node = new Ast.Repeat(owner.token, owner.times, owner.slot, body);
+                        break;
+                    default:
+                        node = new Ast.ProcDecl(owner.token, owner.parts, owner.params, context.getScope().getLocalCount(), body);
+                        proc = false;
+                        context.getScope().exitProcedure();
+                        break;
+                }
+            }
+        }
+    }
+
+    // Reads a simple statement whole and returns it. A compound one is read up to the bracket
+    // that opens its block and pushed on the stack, and null is returned (also on an error,
+    // which leaves the stack as it was).
+    private Ast.Node statement(ArrayDeque<Frame> stack) throws IOException {
+        switch (type) {
+            case PIPE:
+                return varDecl();
+            case PROC:
+                procDecl(stack);
+                return null;
+            case BRACKET_OPEN:
+                openBlock(null, stack);
+                return null;
+            case IF:
+                ifStatement(stack);
+                return null;
+            case WHILE:
+                whileStatement(stack);
+                return null;
+            case FOR:
+                repeat(stack);
+                return null;
+            case IDENTIFIER:
+                return assignOrCall();
+            default:
+                return error(Message.UNEXPECTED_TOKEN, current());
+        }
+    }
+
+    private Ast.Node failed() {
+        if (proc) {
+            proc = false;
+            context.getScope().exitProcedure();
+        }
+        return null;
+    }
+
+    // Reads the opening bracket and pushes the owner of the block (if any) and the block
+    private boolean openBlock(Frame owner, ArrayDeque<Frame> stack) throws IOException {
+        Token open = current();
+        if (!expect(TokenType.BRACKET_OPEN, Message.BLOCK_SYNTAX)) {
+            return false;
+        }
+        if (type == TokenType.BRACKET_CLOSE) {
+            error(Message.EMPTY_BLOCK, current());
+            if (!recovering()) {
+                return false;
+            }
+            // Taken as an empty block, closed by the bracket that follows
+        }
+        if (owner != null) {
+            stack.push(owner);
+        }
+        stack.push(new Frame(Kind.BLOCK, open));
+        return true;
+    }
+
+    private Ast.VarDecl varDecl() throws IOException {
+        Token pipe = take();
+        List<Token> names = new ArrayList<>();
+        while (type == TokenType.IDENTIFIER) {
+            if (!Character.isLowerCase(current().getValue().charAt(0))) {
+                return error(Message.VARIABLE_DEF, current());
+            }
+            names.add(take());
+        }
+        if (type != TokenType.PIPE || names.isEmpty()) {
+            return error(Message.VARIABLE_DEF, current());
+        }
+        advance();
+
+        for (Token name : names) {
+            if (proc) {
+                context.getScope().declareLocal(name.getValue());
+            } else {
+                context.declareVariable(name.getValue());
+            }
+        }
+        return new Ast.VarDecl(pipe, names, proc);
+    }
+
+    private void procDecl(ArrayDeque<Frame> stack) throws IOException {
+        if (proc) {
+            error(Message.NESTED_PROC, current());
+            return;
+        }
+        Token keyword = take();
+        if (type != TokenType.IDENTIFIER || !Character.isLowerCase(current().getValue().charAt(0))) {
+            error(Message.PROC_NAME, current());
+            return;
+        }
+
+        List<Token> parts = new ArrayList<>();
+        List<Token> params = new ArrayList<>();
+        parts.add(take());
+        if (type == TokenType.COLON) {
+            advance();
+            if (type != TokenType.IDENTIFIER) {
+                error(Message.PROC_SYNTAX, current());
+                return;
+            }
+            params.add(take());
+            while (type == TokenType.IDENTIFIER) {
+                parts.add(take());
+                if (type != TokenType.COLON) {
+                    error(Message.PROC_SYNTAX, current());
+                    return;
+                }
+                advance();
+                if (type != TokenType.IDENTIFIER) {
+                    error(Message.PROC_SYNTAX, current());
+                    return;
+                }
+                params.add(take());
+            }
+        }
+        if (type != TokenType.BRACKET_OPEN) {
+            error(Message.PROC_SYNTAX, current());
+            return;
+        }
+
+        // Declared before the body so the procedure can call itself
+        context.declareProcedure(Signature.procedure(parts, params));
+        context.getScope().enterProcedure();
+        for (Token param : params) {
+            context.getScope().declareLocal(param.getValue());
+        }
+
+        proc = true;
+        Frame frame = new Frame(Kind.PROC, keyword);
+        frame.parts = parts.toArray(new Token[0]);
+        frame.params = params.toArray(new Token[0]);
+        openBlock(frame, stack);
+    }
+
+    // A call ends with a period or with the bracket that closes its block
+    private boolean atEnd(TokenType end) {
+        return type == end || (end == TokenType.PERIOD && type == TokenType.BRACKET_CLOSE);
+    }
+
+    // Reads "keyword [:] [argument]" groups, starting from an already read keyword, until the
+    // end token. Returns the number of colons read, or -1 on a token that does not fit.
+    private int groups(Token first, List<Token> parts, List<Token> args, TokenType end) throws IOException {
+        int colons = 0;
+        Token part = first;
+        while (true) {
+            parts.add(part);
+            if (type == TokenType.COLON) {
+                colons++;
+                advance();
+            }
+            if (atEnd(end)) {
+                args.add(null);
+                return colons;
+            }
+            if (type != TokenType.IDENTIFIER && type != TokenType.NUMBER && type != TokenType.CONSTANT) {
+                return -1;
+            }
+            args.add(take());
+            if (atEnd(end)) {
+                return colons;
+            }
+            if (type != TokenType.IDENTIFIER) {
+                return -1;
+            }
+            part = take();
+        }
+    }
+
+    private Ast.Condition condition(TokenType end, Message syntax, Message signature) throws IOException {
+        List<Token> parts = new ArrayList<>();
+        List<Token> args = new ArrayList<>();
+        int colons = type == TokenType.IDENTIFIER ? groups(take(), parts, args, end) : -1;
+        if (colons < 0) {
+            return error(syntax, current());
+        }
+        Ast.Condition condition = new Ast.Condition(parts.toArray(new Token[0]), args.toArray(new Token[0]), colons);
+        if (!context.getConditions().matches(condition, context.getScope())) {
+            return error(signature, parts.get(0));
+        }
+        advance();
+        return condition;
+    }
+
+    private void ifStatement(ArrayDeque<Frame> stack) throws IOException {
+        Token keyword = take();
+        if (!expect(TokenType.COLON, Message.IF_SYNTAX)) {
+            return;
+        }
+        Ast.Condition condition = condition(TokenType.THEN, Message.IF_SYNTAX, Message.IF_CONDITION);
+        if (condition == null || !expect(TokenType.COLON, Message.IF_SYNTAX)) {
+            return;
+        }
+        Frame frame = new Frame(Kind.IF, keyword);
+        frame.condition = condition;
+        openBlock(frame, stack);
+    }
+
+    private void whileStatement(ArrayDeque<Frame> stack) throws IOException {
+        Token keyword = take();
+        if (!expect(TokenType.COLON, Message.WHILE_SYNTAX)) {
+            return;
+        }
+        Ast.Condition condition = condition(TokenType.DO, Message.WHILE_SYNTAX, Message.WHILE_CONDITION);
+        if (condition == null || !expect(TokenType.COLON, Message.WHILE_SYNTAX)) {
+            return;
+        }
+        Frame frame = new Frame(Kind.WHILE, keyword);
+        frame.condition = condition;
+        openBlock(frame, stack);
+    }
+
+    private void repeat(ArrayDeque<Frame> stack) throws IOException {
+        Token keyword = take();
+        if (!expect(TokenType.COLON, Message.FOR_SYNTAX)) {
+            return;
+        }
+        Token times = take();
+        int slot = times.getType() == TokenType.IDENTIFIER ? context.getScope().resolve(times.getValue()) : Scope.UNDEFINED;
+        if (times.getType() != TokenType.NUMBER && slot == Scope.UNDEFINED) {
+            error(Message.FOR_SYNTAX, times);
+            return;
+        }
+        if (!expect(TokenType.REPEAT, Message.FOR_SYNTAX) || !expect(TokenType.COLON, Message.FOR_SYNTAX)) {
+            return;
+        }
+        Frame frame = new Frame(Kind.REPEAT, keyword);
+        frame.times = times;
+        frame.slot = slot;
+        openBlock(frame, stack);
+    }
+
+    private Ast.Node assignOrCall() throws IOException {
+        Token name = take();
+        if (type == TokenType.ASSIGN) {
+            return assign(name);
+        }
+
+        List<Token> parts = new ArrayList<>();
+        List<Token> args = new ArrayList<>();
+        int colons = groups(name, parts, args, TokenType.PERIOD);
+        if (colons < 0) {
+            return error(Message.CALL_SYNTAX, current());
+        }
+
+        // The last call of a block may be closed by the bracket itself
+        if (type == TokenType.PERIOD) {
+            advance();
+        }
+
+        Ast.Call call = new Ast.Call(parts.toArray(new Token[0]), args.toArray(new Token[0]), colons);
+        Scope scope = context.getScope();
+        if (context.getProcedures().matches(call, scope)) {
+            call.setBuiltin(false);
+        } else if (context.getBuiltins().matches(call, scope)) {
+            call.setBuiltin(true);
+        } else {
+            return error(Message.CALL_SIGNATURE, name);
+        }
+        return call;
+    }
+
+    private Ast.Assign assign(Token name) throws IOException {
+        Scope scope = context.getScope();
+        int slot = scope.resolve(name.getValue());
+        if (slot == Scope.UNDEFINED) {
+            return error(Message.UNDEFINED_VARIABLE, name);
+        }
+        advance();
+        Token value = take();
+        int valueSlot = value.getType() == TokenType.IDENTIFIER ? scope.resolve(value.getValue()) : Scope.UNDEFINED;
+        if (value.getType() == TokenType.IDENTIFIER && valueSlot == Scope.UNDEFINED) {
+            return error(Message.ASSIGN_SYNTAX, value);
+        }
+        if (value.getType() != TokenType.NUMBER && value.getType() != TokenType.CONSTANT && value.getType() != TokenType.IDENTIFIER) {
+            return error(Message.ASSIGN_SYNTAX, value);
+        }
+        if (!expect(TokenType.PERIOD, Message.ASSIGN_SYNTAX)) {
+            return null;
+        }
+        scope.assign(slot, value, valueSlot);
+        return new Ast.Assign(name, slot, value, valueSlot);
+    }
+
+    private enum Kind {
+        BLOCK, IF, WHILE, REPEAT, PROC
+    }
+
+    // An open block (its statements so far) or the statement that owns the next block
+    private static class Frame {
+        private final Kind kind;
+        private final Token token;
+        private final List<Ast.Node> statements;
+        private Ast.Condition condition;
+        private Ast.Block then;
+        private Token times;
+        private int slot;
+        private Token[] parts;
+        private Token[] params;
+
+        Frame(Kind kind, Token token) {
+            this.kind = kind;
+            this.token = token;
+            this.statements = kind == Kind.BLOCK ? new ArrayList<>() : null;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Validates every program under a directory (or matching a glob) on a work-stealing pool and
+// writes one JSON line per file. Workers build their lines in a local buffer and hand whole
+// chunks to a single writer thread, so they never wait on each other to write.
+public class BatchValidator {
+    // Files validated by one task before its lines are handed to the writer
+    private static final int CHUNK = 32;
+    // Chunks waiting for the writer per worker: past that a slow output makes the workers wait
+    // instead of piling up lines in memory
+    private static final int QUEUED = 4;
+    // Tells the writer there is nothing more to write
+    private static final String END = "";
+
+    private final RobotValidator validator;
+    private final int threads;
+    private final ResultCache cache;
+    private final boolean allErrors;
+
+    private final AtomicLong valid = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    public BatchValidator(int threads) {
+        this(threads, null, false);
+    }
+
+    // Unchanged files are answered from cache (null to validate every file). With allErrors
+    // every error of a file is listed under "errors", not only the first one under "error".
+    public BatchValidator(int threads, ResultCache cache, boolean allErrors) {
+        this.validator = new RobotValidator(null, allErrors);
+        this.threads = threads;
+        this.cache = cache;
+        this.allErrors = allErrors;
+    }
+
+    // A directory is walked; anything else is taken as a glob ("programs/**/*.txt")
+    public static List<Path> files(String pattern) throws IOException {
+        Path path = Path.of(pattern);
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+
+        // Walk from the last directory before the first glob character
+        int wildcard = 0;
+        while (wildcard < pattern.length() && "*?[{".indexOf(pattern.charAt(wildcard)) < 0) {
+            wildcard++;
+        }
+        int separator = pattern.lastIndexOf('/', wildcard);
+        Path base = separator < 0 ? Path.of(".") : Path.of(pattern.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(separator < 0 ? base.relativize(file) : file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Writes the results to out and the totals to summary. If out fails the workers stop and
+    // its exception is thrown, without a summary.
+    public void run(List<Path> files, Writer out, PrintStream summary) throws IOException {
+        BlockingQueue<String> chunks = new ArrayBlockingQueue<>(QUEUED * threads);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> write(chunks, out, failure), "batch-writer");
+        writer.start();
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Validate(files, 0, files.size(), chunks, failure));
+        } finally {
+            pool.shutdown();
+            try {
+                chunks.put(END);
+                writer.join();
+            } catch (InterruptedException e) {
+                writer.interrupt();
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new InterruptedIOException("Batch validation interrupted"));
+            }
+        }
+        IOException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+        out.flush();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = valid.get() + invalid.get();
+        summary.printf("Archivos: %d (válidos %d, inválidos %d) en %.2f s: %.0f archivos/s, %.1f MB/s%n",
+                total, valid.get(), invalid.get(), seconds, total / seconds, bytes.get() / 1e6 / seconds);
+        if (cache != null) {
+            summary.printf("Caché: %d aciertos, %d fallos (%.1f%% aciertos)%n",
+                    cache.getHits(), cache.getMisses(), cache.getHitRate() * 100);
+        }
+    }
+
+    // After a failed write the remaining chunks are still taken (and dropped), so no worker is
+    // left waiting on a full queue before it sees the failure
+    private static void write(BlockingQueue<String> chunks, Writer out, AtomicReference<IOException> failure) {
+        try {
+            String chunk;
+            while (!(chunk = chunks.take()).isEmpty()) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    out.write(chunk);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Validate extends RecursiveAction {
+        // RecursiveAction is Serializable, but tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final BlockingQueue<String> chunks;
+        private final AtomicReference<IOException> failure;
+
+        Validate(List<Path> files, int from, int to, BlockingQueue<String> chunks, AtomicReference<IOException> failure) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.chunks = chunks;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Validate(files, from, middle, chunks, failure),
+                        new Validate(files, middle, to, chunks, failure));
+                return;
+            }
+            // Nothing more gets written once the writer has failed
+            if (failure.get() != null) {
+                return;
+            }
+            StringBuilder lines = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                validate(files.get(i), lines);
+            }
+            try {
+                if (lines.length() > 0) {
+                    chunks.put(lines.toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new InterruptedIOException("Batch validation interrupted"));
+            }
+        }
+    }
+
+    private void validate(Path file, StringBuilder lines) {
+        long start = System.nanoTime();
+        StringBuilder errors = allErrors ? new StringBuilder() : null;
+        ResultCache.Result result;
+        try {
+            result = validate(MappedLexer.map(file), errors);
+        } catch (IOException | UncheckedIOException e) {
+            result = new ResultCache.Result(false, "Error al leer el archivo: " + e.getMessage(), 0);
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+
+        (result.isValid() ? valid : invalid).incrementAndGet();
+
+        lines.append("{\"path\":");
+        json(lines, file.toString());
+        lines.append(",\"valid\":").append(result.isValid());
+        lines.append(",\"error\":");
+        if (result.getError() == null) {
+            lines.append("null");
+        } else {
+            json(lines, result.getError());
+        }
+        if (errors != null) {
+            lines.append(",\"errors\":[").append(errors).append(']');
+        }
+        lines.append(",\"tokens\":").append(result.getTokens());
+        lines.append(",\"micros\":").append(micros);
+        lines.append("}\n");
+    }
+
+    private ResultCache.Result validate(ByteBuffer source, StringBuilder errors) throws IOException {
+        bytes.addAndGet(source.limit());
+        // The cache only keeps the first error, so listing all of them needs the parser
+        boolean useCache = cache != null && errors == null;
+        long key = 0;
+        if (useCache) {
+            key = ResultCache.key(source);
+            ResultCache.Result cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        CountingSource tokens = new CountingSource(new MappedLexer(source));
+        ValidationContext context = validator.validate(tokens);
+        ResultCache.Result result = new ResultCache.Result(context.isValid(), context.getError(), tokens.count);
+        if (errors != null) {
+            diagnostics(context.getDiagnostics(), errors);
+        }
+        if (useCache) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    static void diagnostics(Diagnostics diagnostics, StringBuilder sb) {
+        for (int i = 0; i < diagnostics.size(); i++) {
+            sb.append(i == 0 ? "{" : ",{");
+            sb.append("\"kind\":\"").append(diagnostics.getKind(i)).append('"');
+            sb.append(",\"key\":\"").append(diagnostics.getKey(i)).append('"');
+            sb.append(",\"line\":").append(diagnostics.getLine(i));
+            sb.append(",\"column\":").append(diagnostics.getColumn(i));
+            sb.append(",\"endColumn\":").append(diagnostics.getEndColumn(i));
+            sb.append(",\"message\":");
+            json(sb, diagnostics.format(i));
+            sb.append('}');
+        }
+    }
+
+    static void json(StringBuilder sb, String text) {
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // Counts the tokens read by the parser (up to the first error)
+    private static class CountingSource implements TokenSource {
+        private final TokenSource source;
+        private int count;
+
+        CountingSource(TokenSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public Token nextToken() throws IOException {
+            Token token = source.nextToken();
+            if (token.getType() != TokenType.EOF) {
+                count++;
+            }
+            return token;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.p0lym;
+
+import java.util.List;
+
+// The boards a MonteCarloRunner runs a program on. board() is called from many threads at
+// once and must give the same board for the same run, whichever thread asks.
+public interface BoardSource {
+    // Board of the given run. reuse is the board this thread had for its previous run (null
+    // the first time): filling it in and returning it avoids allocating a board per run.
+    GridWorld board(long run, GridWorld reuse);
+
+    // Largest board size, for the histogram of final positions
+    int getWidth();
+
+    int getHeight();
+
+    // The given boards, one after another and over again
+    static BoardSource of(List<GridWorld> boards) {
+        if (boards.isEmpty()) {
+            throw new IllegalArgumentException("No boards");
+        }
+        GridWorld[] templates = boards.toArray(new GridWorld[0]);
+        int width = 0;
+        int height = 0;
+        for (GridWorld board : templates) {
+            width = Math.max(width, board.getWidth());
+            height = Math.max(height, board.getHeight());
+        }
+        int maxWidth = width;
+        int maxHeight = height;
+        return new BoardSource() {
+            @Override
+            public GridWorld board(long run, GridWorld reuse) {
+                GridWorld template = templates[(int) (run % templates.length)];
+                if (reuse == null || reuse.getWidth() != template.getWidth() || reuse.getHeight() != template.getHeight()) {
+                    return template.copy();
+                }
+                reuse.copyFrom(template);
+                return reuse;
+            }
+
+            @Override
+            public int getWidth() {
+                return maxWidth;
+            }
+
+            @Override
+            public int getHeight() {
+                return maxHeight;
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.p0lym;
+
+import com.p0lym.SignatureIndex.Signature;
+
+// Built-in commands and conditions of the robot language. Built once per JVM and frozen, so
+// every parser shares the same indexes and none of them pays for building them.
+public final class BuiltinCatalog {
+    public static final SignatureIndex PROCEDURES = new SignatureIndex(true, false);
+    public static final SignatureIndex CONDITIONS = new SignatureIndex(false, false);
+
+    static {
+        PROCEDURES.add(Signature.builtin("goto with", "x", "y"));
+        PROCEDURES.add(Signature.builtin("move", "x"));
+        PROCEDURES.add(Signature.builtin("turn", "#left", "#right", "#around"));
+        PROCEDURES.add(Signature.builtin("face", "#north", "#south", "#west", "#east"));
+        PROCEDURES.add(Signature.builtin("put ofType", "n", "#balloons", "#chips"));
+        PROCEDURES.add(Signature.builtin("pick ofType", "n", "#balloons", "#chips"));
+        PROCEDURES.add(Signature.builtin("move toThe", "n", "#front", "#back", "#left", "#right"));
+        PROCEDURES.add(Signature.builtin("move inDir", "n", "#north", "#south", "#west", "#east"));
+        PROCEDURES.add(Signature.builtin("jump toThe", "n", "#front", "#back", "#left", "#right"));
+        PROCEDURES.add(Signature.builtin("jump inDir", "n", "#north", "#south", "#west", "#east"));
+        PROCEDURES.add(Signature.builtin("nop"));
+        PROCEDURES.add(Signature.builtin("M"));
+        PROCEDURES.add(Signature.builtin("R"));
+        PROCEDURES.add(Signature.builtin("C"));
+        PROCEDURES.add(Signature.builtin("B"));
+        PROCEDURES.add(Signature.builtin("c"));
+        PROCEDURES.add(Signature.builtin("b"));
+        PROCEDURES.add(Signature.builtin("P"));
+        PROCEDURES.add(Signature.builtin("J( )", "n"));
+        PROCEDURES.add(Signature.builtin("G( , )", "x", "y"));
+        PROCEDURES.freeze();
+
+        CONDITIONS.add(Signature.builtin("facing", "#north", "#south", "#west", "#east"));
+        CONDITIONS.add(Signature.builtin("canPut ofType", "n", "#balloons", "#chips"));
+        CONDITIONS.add(Signature.builtin("canPick ofType", "n", "#balloons", "#chips"));
+        CONDITIONS.add(Signature.builtin("canMove inDir", "n", "#north", "#south", "#west", "#east"));
+        CONDITIONS.add(Signature.builtin("canJump inDir", "n", "#north", "#south", "#west", "#east"));
+        CONDITIONS.add(Signature.builtin("canMove toThe", "n", "#front", "#back", "#left", "#right"));
+        CONDITIONS.add(Signature.builtin("canJump toThe", "n", "#front", "#back", "#left", "#right"));
+        CONDITIONS.freeze();
+    }
+
+    // Changes whenever a built-in is added, removed or changed (used to version cached results)
+    public static int fingerprint() {
+        return PROCEDURES.fingerprint() * 31 + CONDITIONS.fingerprint();
+    }
+
+    private BuiltinCatalog() {
+    }
+}
@@ -0,0 +1,120 @@
+package com.p0lym;
+
+// A program compiled by BytecodeCompiler. Code is one int array: an opcode followed by its
+// operands. A value operand is an address: a global or a pooled literal when >= 0, the
+// local ~operand of the current frame when < 0. Orientations, relative directions and
+// object types are immediates (see World); branch targets are code indexes.
+//
+// Memory at run time: globals, then the literal pool, then the frames. A frame holds the
+// parameters and locals of a procedure (Scope slot order) and then one counter per nested
+// repeat, after a two word header with the return address and the caller's frame.
+public class Bytecode {
+    public static final int HALT = 0;
+    public static final int BRANCH = 1; // target
+    public static final int SET = 2; // destination, value
+    public static final int CALL = 3; // procedure, one value per parameter
+    public static final int RETURN = 4;
+    public static final int REPEAT = 5; // counter, times, exit: counter = times, exit if 0
+    public static final int LOOP = 6; // counter, body: back to body while --counter > 0
+
+    public static final int MOVE = 7; // steps, orientation
+    public static final int MOVE_TO = 8; // steps, relative direction
+    public static final int JUMP = 9; // steps, orientation
+    public static final int JUMP_TO = 10; // steps, relative direction
+    public static final int TURN = 11; // quarter turns to the right
+    public static final int FACE = 12; // orientation
+    public static final int PUT = 13; // count, type
+    public static final int PICK = 14; // count, type
+    public static final int POP = 15; // count
+    public static final int GOTO = 16; // x, y
+
+    // Conditional branches: go to target when the condition does not hold
+    public static final int UNLESS_FACING = 17; // orientation, target
+    public static final int UNLESS_CAN_PUT = 18; // count, type, target
+    public static final int UNLESS_CAN_PICK = 19; // count, type, target
+    public static final int UNLESS_CAN_MOVE = 20; // steps, orientation, target
+    public static final int UNLESS_CAN_MOVE_TO = 21; // steps, relative direction, target
+    public static final int UNLESS_CAN_JUMP = 22; // steps, orientation, target
+    public static final int UNLESS_CAN_JUMP_TO = 23; // steps, relative direction, target
+
+    // Relative directions, added to the orientation the robot faces
+    public static final int FRONT = 0;
+    public static final int RIGHT = 1;
+    public static final int BACK = 2;
+    public static final int LEFT = 3;
+
+    // Constants a variable can hold, stored as -1 - index so they never pass for a number.
+    // Any other constant in the program is numbered after these.
+    public static final String[] CONSTANTS = {
+            "#north", "#east", "#south", "#west", "#front", "#right", "#back", "#left", "#around", "#balloons", "#chips"
+    };
+
+    private final int[] code;
+    private final int[] lines;
+    private final int globals;
+    private final int[] pool;
+    private final int[] procedures;
+    private final int frame;
+
+    // procedures holds the entry, parameter count and frame size of each procedure;
+    // frame is the size of the frame the top level runs in
+    public Bytecode(int[] code, int[] lines, int globals, int[] pool, int[] procedures, int frame) {
+        this.code = code;
+        this.lines = lines;
+        this.globals = globals;
+        this.pool = pool;
+        this.procedures = procedures;
+        this.frame = frame;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public int size() {
+        return code.length;
+    }
+
+    // Source line the instruction at pc was compiled from
+    public int getLine(int pc) {
+        return pc < lines.length ? lines[pc] : 0;
+    }
+
+    public int getGlobalCount() {
+        return globals;
+    }
+
+    public int[] getPool() {
+        return pool;
+    }
+
+    public int getProcedureCount() {
+        return procedures.length / 3;
+    }
+
+    public int getEntry(int procedure) {
+        return procedures[procedure * 3];
+    }
+
+    public int getParamCount(int procedure) {
+        return procedures[procedure * 3 + 1];
+    }
+
+    public int getFrameSize(int procedure) {
+        return procedures[procedure * 3 + 2];
+    }
+
+    int[] getProcedures() {
+        return procedures;
+    }
+
+    // Frame of the top level statements (the counters of their repeats)
+    public int getFrameSize() {
+        return frame;
+    }
+
+    // Memory taken before the first frame
+    public int getStaticSize() {
+        return globals + pool.length;
+    }
+}
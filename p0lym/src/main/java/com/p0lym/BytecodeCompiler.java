@@ -0,0 +1,428 @@
+package com.p0lym;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Turns a program accepted by the AstParser into Bytecode. The tree is walked with an
+// explicit stack, the same way the parser builds it, so nesting is not limited by the thread
+// stack. A procedure body is compiled where it is declared, behind a branch that skips it,
+// and the top level runs from the first instruction.
+public class BytecodeCompiler {
+    // What is left to emit once a block is compiled
+    private static final int ELSE = 0;
+    private static final int END = 1;
+    private static final int WHILE_END = 2;
+    private static final int REPEAT_END = 3;
+    private static final int PROC_END = 4;
+
+    private int[] code = new int[256];
+    private int[] lines = new int[256];
+    private int size;
+    private int line;
+
+    private final int globals;
+    private final HashMap<Integer, Integer> literals = new HashMap<>();
+    private int[] pool = new int[16];
+    private int poolSize;
+    private final HashMap<String, Integer> constants = new HashMap<>();
+
+    // "name part ..." -> procedure, replaced when a procedure is declared again
+    private final HashMap<String, Integer> procedureIndex = new HashMap<>();
+    private int[] procedures = new int[48];
+    private int procedureCount;
+
+    // Repeat counters of the frame being compiled: they go after its parameters and locals
+    private int counterBase;
+    private int counters;
+    private int maxCounters;
+
+    private BytecodeCompiler(int globals) {
+        this.globals = globals;
+        for (String constant : Bytecode.CONSTANTS) {
+            constants.put(constant, -1 - constants.size());
+        }
+    }
+
+    public static Bytecode compile(Ast.Program program) {
+        return new BytecodeCompiler(program.getGlobalCount()).program(program);
+    }
+
+    private Bytecode program(Ast.Program program) {
+        ArrayDeque<Object> work = new ArrayDeque<>();
+        pushAll(program.getItems(), work);
+        while (!work.isEmpty()) {
+            Object next = work.pop();
+            if (next instanceof Pending) {
+                finish((Pending) next, work);
+            } else {
+                node((Ast.Node) next, work);
+            }
+        }
+        emit(Bytecode.HALT);
+
+        return new Bytecode(Arrays.copyOf(code, size), Arrays.copyOf(lines, size), globals,
+                Arrays.copyOf(pool, poolSize), Arrays.copyOf(procedures, procedureCount * 3), maxCounters);
+    }
+
+    private void node(Ast.Node node, ArrayDeque<Object> work) {
+        line = node.getLine();
+        if (node instanceof Ast.Block) {
+            pushAll(((Ast.Block) node).getStatements(), work);
+        } else if (node instanceof Ast.Assign) {
+            Ast.Assign assign = (Ast.Assign) node;
+            emit(Bytecode.SET, address(assign.getSlot()), value(assign.getValue(), assign.getValueSlot()));
+        } else if (node instanceof Ast.Call) {
+            Ast.Call call = (Ast.Call) node;
+            if (call.isBuiltin()) {
+                builtin(call);
+            } else {
+                call(call);
+            }
+        } else if (node instanceof Ast.If) {
+            Ast.If ifNode = (Ast.If) node;
+            int otherwise = condition(ifNode.getCondition());
+            work.push(new Pending(ELSE, line, otherwise, 0, ifNode.getOtherwise()));
+            work.push(ifNode.getThen());
+        } else if (node instanceof Ast.While) {
+            Ast.While whileNode = (Ast.While) node;
+            int test = size;
+            int exit = condition(whileNode.getCondition());
+            work.push(new Pending(WHILE_END, line, exit, test, null));
+            work.push(whileNode.getBody());
+        } else if (node instanceof Ast.Repeat) {
+            Ast.Repeat repeat = (Ast.Repeat) node;
+            int counter = counterBase + counters++;
+            maxCounters = Math.max(maxCounters, counters);
+            emit(Bytecode.REPEAT, ~counter, value(repeat.getTimes(), repeat.getSlot()), 0);
+            work.push(new Pending(REPEAT_END, line, size - 1, size, null));
+            work.push(repeat.getBody());
+        } else if (node instanceof Ast.ProcDecl) {
+            procedure((Ast.ProcDecl) node, work);
+        }
+        // Variable declarations take no code: their slots are already in the memory layout
+    }
+
+    private void procedure(Ast.ProcDecl procDecl, ArrayDeque<Object> work) {
+        emit(Bytecode.BRANCH, 0);
+        int skip = size - 1;
+
+        int procedure = procedureCount++;
+        if (procedures.length < procedureCount * 3) {
+            procedures = Arrays.copyOf(procedures, procedures.length * 2);
+        }
+        procedures[procedure * 3] = size;
+        procedures[procedure * 3 + 1] = procDecl.getParams().length;
+        // Declared before the body so the procedure can call itself
+        procedureIndex.put(key(procDecl.getParts()), procedure);
+
+        // The counters of the top level are kept while the body is compiled
+        work.push(new Pending(PROC_END, line, skip, maxCounters, null));
+        counterBase = procDecl.getLocalCount();
+        maxCounters = 0;
+        work.push(procDecl.getBody());
+    }
+
+    private void finish(Pending pending, ArrayDeque<Object> work) {
+        line = pending.line;
+        switch (pending.kind) {
+            case ELSE:
+                Ast.Block otherwise = pending.block;
+                if (otherwise == null || otherwise.getStatements().isEmpty()) {
+                    patch(pending.hole);
+                } else {
+                    emit(Bytecode.BRANCH, 0);
+                    patch(pending.hole);
+                    work.push(new Pending(END, line, size - 1, 0, null));
+                    work.push(otherwise);
+                }
+                break;
+            case END:
+                patch(pending.hole);
+                break;
+            case WHILE_END:
+                emit(Bytecode.BRANCH, pending.target);
+                patch(pending.hole);
+                break;
+            case REPEAT_END:
+                counters--;
+                emit(Bytecode.LOOP, ~(counterBase + counters), pending.target);
+                patch(pending.hole);
+                break;
+            default:
+                emit(Bytecode.RETURN);
+                // Procedures do not nest, so this is the last one declared
+                procedures[(procedureCount - 1) * 3 + 2] = counterBase + maxCounters;
+                counterBase = 0;
+                maxCounters = pending.target;
+                patch(pending.hole);
+                break;
+        }
+    }
+
+    private void call(Ast.Call call) {
+        Integer procedure = procedureIndex.get(key(call.getParts()));
+        if (procedure == null) {
+            throw new IllegalStateException("Call to an undeclared procedure: " + key(call.getParts()));
+        }
+        Token[] args = call.getArgs();
+        emit(Bytecode.CALL, procedure);
+        // A procedure without parameters is called by its name alone, with no argument
+        for (int i = 0; i < args.length && args[i] != null; i++) {
+            emit(value(args[i], call.getSlot(i)));
+        }
+    }
+
+    private void builtin(Ast.Call call) {
+        Token[] args = call.getArgs();
+        switch (key(call.getParts())) {
+            case "move":
+                emit(Bytecode.MOVE_TO, number(call, 0), Bytecode.FRONT);
+                break;
+            case "move toThe":
+                emit(Bytecode.MOVE_TO, number(call, 0), relative(args[1]));
+                break;
+            case "move inDir":
+                emit(Bytecode.MOVE, number(call, 0), orientation(args[1]));
+                break;
+            case "jump toThe":
+                emit(Bytecode.JUMP_TO, number(call, 0), relative(args[1]));
+                break;
+            case "jump inDir":
+                emit(Bytecode.JUMP, number(call, 0), orientation(args[1]));
+                break;
+            case "J( )":
+                emit(Bytecode.JUMP_TO, number(call, 0), Bytecode.FRONT);
+                break;
+            case "turn":
+                emit(Bytecode.TURN, turn(args[0]));
+                break;
+            case "face":
+                emit(Bytecode.FACE, orientation(args[0]));
+                break;
+            case "put ofType":
+                emit(Bytecode.PUT, number(call, 0), type(args[1]));
+                break;
+            case "pick ofType":
+                emit(Bytecode.PICK, number(call, 0), type(args[1]));
+                break;
+            case "goto with":
+            case "G( , )":
+                emit(Bytecode.GOTO, number(call, 0), number(call, 1));
+                break;
+            case "M":
+                emit(Bytecode.MOVE_TO, literal(1), Bytecode.FRONT);
+                break;
+            case "R":
+                emit(Bytecode.TURN, Bytecode.RIGHT);
+                break;
+            case "C":
+                emit(Bytecode.PUT, literal(1), World.CHIPS);
+                break;
+            case "B":
+                emit(Bytecode.PUT, literal(1), World.BALLOONS);
+                break;
+            case "c":
+                emit(Bytecode.PICK, literal(1), World.CHIPS);
+                break;
+            case "b":
+                emit(Bytecode.PICK, literal(1), World.BALLOONS);
+                break;
+            case "P":
+                emit(Bytecode.POP, literal(1));
+                break;
+            case "nop":
+                break;
+            default:
+                throw new IllegalStateException("Unknown built-in: " + key(call.getParts()));
+        }
+    }
+
+    // Emits the branch taken when the condition does not hold and returns where its target goes
+    private int condition(Ast.Condition condition) {
+        Token[] args = condition.getArgs();
+        switch (key(condition.getParts())) {
+            case "facing":
+                emit(Bytecode.UNLESS_FACING, orientation(args[0]), 0);
+                break;
+            case "canPut ofType":
+                emit(Bytecode.UNLESS_CAN_PUT, number(condition, 0), type(args[1]), 0);
+                break;
+            case "canPick ofType":
+                emit(Bytecode.UNLESS_CAN_PICK, number(condition, 0), type(args[1]), 0);
+                break;
+            case "canMove inDir":
+                emit(Bytecode.UNLESS_CAN_MOVE, number(condition, 0), orientation(args[1]), 0);
+                break;
+            case "canMove toThe":
+                emit(Bytecode.UNLESS_CAN_MOVE_TO, number(condition, 0), relative(args[1]), 0);
+                break;
+            case "canJump inDir":
+                emit(Bytecode.UNLESS_CAN_JUMP, number(condition, 0), orientation(args[1]), 0);
+                break;
+            case "canJump toThe":
+                emit(Bytecode.UNLESS_CAN_JUMP_TO, number(condition, 0), relative(args[1]), 0);
+                break;
+            default:
+                throw new IllegalStateException("Unknown condition: " + key(condition.getParts()));
+        }
+        return size - 1;
+    }
+
+    static String key(Token[] parts) {
+        if (parts.length == 1) {
+            return parts[0].getValue();
+        }
+        StringBuilder key = new StringBuilder(parts[0].getValue());
+        for (int i = 1; i < parts.length; i++) {
+            key.append(' ').append(parts[i].getValue());
+        }
+        return key.toString();
+    }
+
+    // A built-in may leave its last argument out: a number then defaults to 1
+    private int number(Ast.Invocation invocation, int i) {
+        Token arg = i < invocation.getArgs().length ? invocation.getArgs()[i] : null;
+        return arg == null ? literal(1) : value(arg, invocation.getSlot(i));
+    }
+
+    private int value(Token token, int slot) {
+        if (slot != Scope.UNDEFINED) {
+            return address(slot);
+        }
+        switch (token.getType()) {
+            case NUMBER:
+                return literal(parseNumber(token.getValue()));
+            case CONSTANT:
+                return literal(constants.computeIfAbsent(token.getValue(), name -> -1 - constants.size()));
+            default:
+                throw new IllegalStateException("Variable used but never defined: " + token);
+        }
+    }
+
+    private static int address(int slot) {
+        return Scope.isLocal(slot) ? ~Scope.index(slot) : Scope.index(slot);
+    }
+
+    static int parseNumber(String digits) {
+        long value = 0;
+        for (int i = 0; i < digits.length() && value <= Integer.MAX_VALUE; i++) {
+            value = value * 10 + (digits.charAt(i) - '0');
+        }
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    // Address of a pooled literal; every value is pooled once
+    private int literal(int value) {
+        Integer address = literals.get(value);
+        if (address == null) {
+            if (poolSize == pool.length) {
+                pool = Arrays.copyOf(pool, poolSize * 2);
+            }
+            pool[poolSize] = value;
+            address = globals + poolSize++;
+            literals.put(value, address);
+        }
+        return address;
+    }
+
+    // A left out constant defaults to the first one the built-in lists
+    static int orientation(Token token) {
+        switch (token == null ? "#north" : token.getValue()) {
+            case "#east":
+                return World.EAST;
+            case "#south":
+                return World.SOUTH;
+            case "#west":
+                return World.WEST;
+            default:
+                return World.NORTH;
+        }
+    }
+
+    static int relative(Token token) {
+        switch (token == null ? "#front" : token.getValue()) {
+            case "#right":
+                return Bytecode.RIGHT;
+            case "#back":
+                return Bytecode.BACK;
+            case "#left":
+                return Bytecode.LEFT;
+            default:
+                return Bytecode.FRONT;
+        }
+    }
+
+    static int turn(Token token) {
+        switch (token == null ? "#left" : token.getValue()) {
+            case "#right":
+                return Bytecode.RIGHT;
+            case "#around":
+                return Bytecode.BACK;
+            default:
+                return Bytecode.LEFT;
+        }
+    }
+
+    private static int type(Token token) {
+        return token != null && token.getValue().equals("#chips") ? World.CHIPS : World.BALLOONS;
+    }
+
+    private void emit(int word) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        lines[size] = line;
+        code[size++] = word;
+    }
+
+    private void emit(int opcode, int a) {
+        emit(opcode);
+        emit(a);
+    }
+
+    private void emit(int opcode, int a, int b) {
+        emit(opcode);
+        emit(a);
+        emit(b);
+    }
+
+    private void emit(int opcode, int a, int b, int c) {
+        emit(opcode);
+        emit(a);
+        emit(b);
+        emit(c);
+    }
+
+    // Points the branch target at hole to the next instruction
+    private void patch(int hole) {
+        code[hole] = size;
+    }
+
+    private static void pushAll(List<Ast.Node> nodes, ArrayDeque<Object> work) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            work.push(nodes.get(i));
+        }
+    }
+
+    private static class Pending {
+        private final int kind;
+        private final int line;
+        private final int hole;
+        private final int target;
+        private final Ast.Block block;
+
+        Pending(int kind, int line, int hole, int target, Ast.Block block) {
+            this.kind = kind;
+            this.line = line;
+            this.hole = hole;
+            this.target = target;
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.p0lym;
+
+// Character classes used by the lexers. ASCII chars are answered from a precomputed
+// table, anything else falls back to the full Unicode checks in Character.
+public final class CharClass {
+    public static final int WHITESPACE = 1;
+    public static final int LETTER = 2;
+    public static final int DIGIT = 4;
+
+    private static final byte[] ASCII = new byte[128];
+
+    static {
+        for (int c = 0; c < ASCII.length; c++) {
+            int flags = 0;
+            if (Character.isWhitespace(c)) {
+                flags |= WHITESPACE;
+            }
+            if (Character.isLetter(c)) {
+                flags |= LETTER;
+            }
+            if (Character.isDigit(c)) {
+                flags |= DIGIT;
+            }
+            ASCII[c] = (byte) flags;
+        }
+    }
+
+    private CharClass() {
+    }
+
+    public static boolean isWhitespace(int c) {
+        return c < 128 ? (ASCII[c] & WHITESPACE) != 0 : Character.isWhitespace(c);
+    }
+
+    public static boolean isLetter(int c) {
+        return c < 128 ? (ASCII[c] & LETTER) != 0 : Character.isLetter(c);
+    }
+
+    public static boolean isDigit(int c) {
+        return c < 128 ? (ASCII[c] & DIGIT) != 0 : Character.isDigit(c);
+    }
+
+    public static boolean isLetterOrDigit(int c) {
+        return c < 128 ? (ASCII[c] & (LETTER | DIGIT)) != 0 : Character.isLetterOrDigit(c);
+    }
+}
@@ -0,0 +1,169 @@
+package com.p0lym;
+
+import java.io.PrintStream;
+
+import com.p0lym.RobotLexerParser.Token;
+
+// Errors found while validating one program. They are recorded in arrays allocated up front:
+// recording one does no I/O and builds no text. Messages are only formatted when asked for,
+// and printing is left to the caller once validation is over.
+public class Diagnostics {
+    public enum Kind {
+        LEXICAL, // a character the lexer does not know
+        SYNTAX, // a token out of place
+        STRUCTURE, // a valid construct where it is not allowed
+        UNDEFINED, // a variable that was never declared
+        SIGNATURE // a call or condition that matches no signature
+    }
+
+    public enum Message {
+        EMPTY_PROGRAM(Kind.SYNTAX, "program.empty", "Invalid token"),
+        INVALID_TOKEN(Kind.LEXICAL, "token.invalid", "Invalid token (%s)"),
+        UNEXPECTED_TOKEN(Kind.SYNTAX, "token.unexpected", "Invalid token (%s)"),
+        EMPTY_BLOCK(Kind.SYNTAX, "block.empty", "Invalid token"),
+        BLOCK_SYNTAX(Kind.SYNTAX, "block.syntax", "Code block with wrong sintaxis (%s)"),
+        UNCLOSED_BLOCK(Kind.SYNTAX, "block.unclosed", "Code block with wrong sintaxis (%s)"),
+        VARIABLE_DEF(Kind.SYNTAX, "var.syntax", "Variable def with wrong sintaxis (%s)"),
+        UNDEFINED_VARIABLE(Kind.UNDEFINED, "var.undefined", "Variable used but never defined (%s)"),
+        ASSIGN_SYNTAX(Kind.SYNTAX, "assign.syntax", "Variable assignment with wrong sintaxis (%s)"),
+        NESTED_PROC(Kind.STRUCTURE, "proc.nested", "Procedure definition inside a procedure (%s)"),
+        PROC_NAME(Kind.SYNTAX, "proc.name", "%s Invalid procedure name"),
+        PROC_SYNTAX(Kind.SYNTAX, "proc.syntax", "Procedure definition with wrong sintaxis (%s)"),
+        CALL_SYNTAX(Kind.SYNTAX, "call.syntax", "Procedure call with wrong sintaxis (%s)"),
+        CALL_SIGNATURE(Kind.SIGNATURE, "call.signature", "Procedure call with wrong sintaxis (%s)"),
+        IF_SYNTAX(Kind.SYNTAX, "if.syntax", "If statement with wrong sintaxis (%s)"),
+        IF_CONDITION(Kind.SIGNATURE, "if.condition", "If statement with wrong sintaxis"),
+        WHILE_SYNTAX(Kind.SYNTAX, "while.syntax", "While statement with wrong sintaxis (%s)"),
+        WHILE_CONDITION(Kind.SIGNATURE, "while.condition", "While statement with wrong sintaxis"),
+        FOR_SYNTAX(Kind.SYNTAX, "for.syntax", "For statement with wrong sintaxis (%s)");
+
+        private final Kind kind;
+        private final String key;
+        private final String text;
+
+        Message(Kind kind, String key, String text) {
+            this.kind = kind;
+            this.key = key;
+            this.text = text;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        // The text with the offending token in place of %s
+        public String format(Token token) {
+            int at = text.indexOf("%s");
+            return at < 0 ? text : text.substring(0, at) + token + text.substring(at + 2);
+        }
+    }
+
+    private final Message[] messages;
+    private final Token[] tokens;
+    private final int[] lines;
+    private final int[] columns;
+    private final int[] endColumns;
+    private int size;
+    private int dropped;
+
+    // Keeps the first capacity errors; the rest are only counted
+    public Diagnostics(int capacity) {
+        this.messages = new Message[capacity];
+        this.tokens = new Token[capacity];
+        this.lines = new int[capacity];
+        this.columns = new int[capacity];
+        this.endColumns = new int[capacity];
+    }
+
+    public void add(Message message, Token token) {
+        if (size == messages.length) {
+            dropped++;
+            return;
+        }
+        messages[size] = message;
+        tokens[size] = token;
+        if (token != null) {
+            // Tokens never span lines
+            lines[size] = token.getLine();
+            columns[size] = token.getColumn();
+            endColumns[size] = token.getColumn() + Math.max(1, token.getValue().length());
+        }
+        size++;
+    }
+
+    // Forgets every error, keeping the buffers
+    void clear() {
+        size = 0;
+        dropped = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == messages.length;
+    }
+
+    // Errors kept
+    public int size() {
+        return size;
+    }
+
+    // Errors found after the buffer was full
+    public int getDropped() {
+        return dropped;
+    }
+
+    public Message getMessage(int i) {
+        return messages[i];
+    }
+
+    public Kind getKind(int i) {
+        return messages[i].getKind();
+    }
+
+    public String getKey(int i) {
+        return messages[i].getKey();
+    }
+
+    public Token getToken(int i) {
+        return tokens[i];
+    }
+
+    public int getLine(int i) {
+        return lines[i];
+    }
+
+    public int getColumn(int i) {
+        return columns[i];
+    }
+
+    // Column just after the offending token
+    public int getEndColumn(int i) {
+        return endColumns[i];
+    }
+
+    public String format(int i) {
+        return messages[i].format(tokens[i]);
+    }
+
+    // One line per error, as the parser used to print them: a token rejected by the lexer on
+    // its own, anything else after "Error: "
+    public void print(PrintStream out) {
+        for (int i = 0; i < size; i++) {
+            if (messages[i] == Message.INVALID_TOKEN) {
+                out.println(tokens[i]);
+            } else {
+                out.println("Error: " + format(i));
+            }
+        }
+        if (dropped > 0) {
+            out.println("Error: " + dropped + " more errors");
+        }
+    }
+}
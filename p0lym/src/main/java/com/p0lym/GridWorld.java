@@ -0,0 +1,405 @@
+package com.p0lym;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// A rectangular board kept in primitive arrays. Obstacles are bitboards stored twice, row by
+// row and column by column, so checking every cell of a move is a few masked word tests in
+// either direction. Chips and balloons are shorts, both counts of a cell next to each other.
+// Column 0 is west and row 0 is north; the robot carries chips and balloons to put down.
+//
+// Board files have one directive per line ('#' starts a comment):
+//   size <width> <height>
+//   robot <x> <y> [north|east|south|west] [<chips> <balloons>]
+//   wall <x> <y> [<x2> <y2>]          a cell, or every cell of the rectangle
+//   chips <x> <y> <count>
+//   balloons <x> <y> <count>
+public class GridWorld implements World {
+    private static final String[] ORIENTATIONS = {"north", "east", "south", "west"};
+
+    private final int width;
+    private final int height;
+    private final int rowWords;
+    private final int columnWords;
+    private final long[] rows;
+    private final long[] columns;
+    // Count of type t in cell c at (c << 1) | t
+    private final short[] items;
+
+    private int x;
+    private int y;
+    private int facing;
+    private final int[] carried = new int[2];
+    // Objects taken from the board since it was cleared or copied
+    private final int[] picked = new int[2];
+
+    public GridWorld(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Board size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.rowWords = (width + 63) >>> 6;
+        this.columnWords = (height + 63) >>> 6;
+        this.rows = new long[rowWords * height];
+        this.columns = new long[columnWords * width];
+        this.items = new short[width * height * 2];
+    }
+
+    public static GridWorld load(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            GridWorld world = null;
+            int number = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                int comment = line.indexOf('#');
+                String[] fields = (comment < 0 ? line : line.substring(0, comment)).trim().split("\\s+");
+                if (fields[0].isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (fields[0].equals("size")) {
+                        world = new GridWorld(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                        continue;
+                    }
+                    if (world == null) {
+                        throw new IllegalArgumentException("the board has no size yet");
+                    }
+                    world.directive(fields);
+                } catch (RuntimeException e) {
+                    throw new IOException(path + ":" + number + ": " + e.getMessage(), e);
+                }
+            }
+            if (world == null) {
+                throw new IOException(path + ": the board has no size");
+            }
+            return world;
+        }
+    }
+
+    private void directive(String[] fields) {
+        int x = Integer.parseInt(fields[1]);
+        int y = Integer.parseInt(fields[2]);
+        checkInside(x, y);
+        switch (fields[0]) {
+            case "robot":
+                place(x, y);
+                if (fields.length > 3) {
+                    facing = Arrays.asList(ORIENTATIONS).indexOf(fields[3]);
+                    if (facing < 0) {
+                        throw new IllegalArgumentException("unknown orientation " + fields[3]);
+                    }
+                }
+                if (fields.length > 5) {
+                    carried[CHIPS] = Integer.parseInt(fields[4]);
+                    carried[BALLOONS] = Integer.parseInt(fields[5]);
+                }
+                break;
+            case "wall":
+                int x2 = fields.length > 4 ? Integer.parseInt(fields[3]) : x;
+                int y2 = fields.length > 4 ? Integer.parseInt(fields[4]) : y;
+                checkInside(x2, y2);
+                for (int row = Math.min(y, y2); row <= Math.max(y, y2); row++) {
+                    for (int column = Math.min(x, x2); column <= Math.max(x, x2); column++) {
+                        setObstacle(column, row, true);
+                    }
+                }
+                break;
+            case "chips":
+                setCount(CHIPS, x, y, Integer.parseInt(fields[3]));
+                break;
+            case "balloons":
+                setCount(BALLOONS, x, y, Integer.parseInt(fields[3]));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown directive " + fields[0]);
+        }
+    }
+
+    private void checkInside(int x, int y) {
+        if (!inside(x, y)) {
+            throw new IllegalArgumentException("(" + x + ", " + y + ") is outside the board");
+        }
+    }
+
+    // Same board, robot and counts, sharing nothing with this one
+    public GridWorld copy() {
+        GridWorld copy = new GridWorld(width, height);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    // Takes the state of a board of the same size without allocating
+    public void copyFrom(GridWorld other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Boards of different sizes");
+        }
+        System.arraycopy(other.rows, 0, rows, 0, rows.length);
+        System.arraycopy(other.columns, 0, columns, 0, columns.length);
+        System.arraycopy(other.items, 0, items, 0, items.length);
+        x = other.x;
+        y = other.y;
+        facing = other.facing;
+        carried[CHIPS] = other.carried[CHIPS];
+        carried[BALLOONS] = other.carried[BALLOONS];
+        picked[CHIPS] = other.picked[CHIPS];
+        picked[BALLOONS] = other.picked[BALLOONS];
+    }
+
+    // Empty board with the robot at (0, 0) facing north and carrying nothing
+    public void clear() {
+        Arrays.fill(rows, 0);
+        Arrays.fill(columns, 0);
+        Arrays.fill(items, (short) 0);
+        x = 0;
+        y = 0;
+        facing = NORTH;
+        carried[CHIPS] = 0;
+        carried[BALLOONS] = 0;
+        picked[CHIPS] = 0;
+        picked[BALLOONS] = 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public boolean inside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public boolean isObstacle(int x, int y) {
+        return (rows[y * rowWords + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void setObstacle(int x, int y, boolean obstacle) {
+        int row = y * rowWords + (x >>> 6);
+        int column = x * columnWords + (y >>> 6);
+        if (obstacle) {
+            rows[row] |= 1L << x;
+            columns[column] |= 1L << y;
+        } else {
+            rows[row] &= ~(1L << x);
+            columns[column] &= ~(1L << y);
+        }
+    }
+
+    public int getCount(int type, int x, int y) {
+        return items[((y * width + x) << 1) | type];
+    }
+
+    public void setCount(int type, int x, int y, int count) {
+        if (count < 0 || count > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Count out of range: " + count);
+        }
+        items[((y * width + x) << 1) | type] = (short) count;
+    }
+
+    public int getCarried(int type) {
+        return carried[type];
+    }
+
+    public void setCarried(int type, int count) {
+        carried[type] = count;
+    }
+
+    public int getPicked(int type) {
+        return picked[type];
+    }
+
+    // Moves the robot without checking the path (board setup)
+    public void place(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public int getFacing() {
+        return facing;
+    }
+
+    @Override
+    public void setFacing(int orientation) {
+        facing = orientation;
+    }
+
+    @Override
+    public boolean move(int orientation, int steps) {
+        if (!canMove(orientation, steps)) {
+            return false;
+        }
+        step(orientation, steps);
+        return true;
+    }
+
+    @Override
+    public boolean jump(int orientation, int steps) {
+        if (!canJump(orientation, steps)) {
+            return false;
+        }
+        step(orientation, steps);
+        return true;
+    }
+
+    // Every cell on the way, the last one included, must be on the board and free
+    @Override
+    public boolean canMove(int orientation, int steps) {
+        if (steps == 0) {
+            return true;
+        }
+        switch (orientation) {
+            case NORTH:
+                return steps <= y && clear(columns, x * columnWords, y - steps, y - 1);
+            case SOUTH:
+                return steps < height - y && clear(columns, x * columnWords, y + 1, y + steps);
+            case EAST:
+                return steps < width - x && clear(rows, y * rowWords, x + 1, x + steps);
+            default:
+                return steps <= x && clear(rows, y * rowWords, x - steps, x - 1);
+        }
+    }
+
+    // Only the landing cell must be on the board and free
+    @Override
+    public boolean canJump(int orientation, int steps) {
+        switch (orientation) {
+            case NORTH:
+                return steps <= y && !isObstacle(x, y - steps);
+            case SOUTH:
+                return steps < height - y && !isObstacle(x, y + steps);
+            case EAST:
+                return steps < width - x && !isObstacle(x + steps, y);
+            default:
+                return steps <= x && !isObstacle(x - steps, y);
+        }
+    }
+
+    private void step(int orientation, int steps) {
+        switch (orientation) {
+            case NORTH:
+                y -= steps;
+                break;
+            case SOUTH:
+                y += steps;
+                break;
+            case EAST:
+                x += steps;
+                break;
+            default:
+                x -= steps;
+                break;
+        }
+    }
+
+    @Override
+    public boolean goTo(int x, int y) {
+        if (!inside(x, y) || isObstacle(x, y)) {
+            return false;
+        }
+        place(x, y);
+        return true;
+    }
+
+    @Override
+    public boolean put(int type, int n) {
+        if (!canPut(type, n)) {
+            return false;
+        }
+        carried[type] -= n;
+        items[cell() | type] += n;
+        return true;
+    }
+
+    @Override
+    public boolean pick(int type, int n) {
+        if (!canPick(type, n)) {
+            return false;
+        }
+        carried[type] += n;
+        picked[type] += n;
+        items[cell() | type] -= n;
+        return true;
+    }
+
+    @Override
+    public boolean canPut(int type, int n) {
+        return carried[type] >= n && items[cell() | type] + n <= Short.MAX_VALUE;
+    }
+
+    @Override
+    public boolean canPick(int type, int n) {
+        return items[cell() | type] >= n;
+    }
+
+    @Override
+    public boolean pop(int n) {
+        int index = cell() | BALLOONS;
+        if (items[index] < n) {
+            return false;
+        }
+        items[index] -= n;
+        return true;
+    }
+
+    private int cell() {
+        return (y * width + x) << 1;
+    }
+
+    // True when bits from..to (both included) of the bitset at base are all clear
+    private static boolean clear(long[] bits, int base, int from, int to) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last) {
+            return (bits[base + first] & firstMask & lastMask) == 0;
+        }
+        if ((bits[base + first] & firstMask) != 0) {
+            return false;
+        }
+        for (int word = first + 1; word < last; word++) {
+            if (bits[base + word] != 0) {
+                return false;
+            }
+        }
+        return (bits[base + last] & lastMask) == 0;
+    }
+
+    // The board as text: '#' obstacle, the robot as ^ > v <, a cell with objects as '*'
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                if (column == x && row == y) {
+                    sb.append("^>v<".charAt(facing));
+                } else if (isObstacle(column, row)) {
+                    sb.append('#');
+                } else if (getCount(CHIPS, column, row) > 0 || getCount(BALLOONS, column, row) > 0) {
+                    sb.append('*');
+                } else {
+                    sb.append('.');
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
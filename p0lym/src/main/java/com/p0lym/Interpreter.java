@@ -0,0 +1,288 @@
+package com.p0lym;
+
+import java.util.Arrays;
+
+// Runs Bytecode against a World. The loop keeps the program counter, frame and stack
+// pointers in locals and memory in one int array, so an executed instruction allocates
+// nothing; memory only grows when calls go deeper than ever before. run() stops after a
+// number of instructions and can be called again to go on, so a program that never ends
+// costs no more than its budget. reset() starts over on another world, reusing memory.
+public class Interpreter {
+    public static final int RUNNING = 0; // the budget ran out first
+    public static final int HALTED = 1; // the program ended
+    public static final int BLOCKED = 2; // the robot could not do an action
+    public static final int BAD_VALUE = 3; // a constant or a negative number where a count was expected
+    public static final int STACK_OVERFLOW = 4; // calls went deeper than the memory limit
+
+    // Words of memory at most (about 64 MB)
+    private static final int MAX_MEMORY = 1 << 24;
+
+    private final Bytecode bytecode;
+    private final int[] code;
+    private final int[] procedures;
+    private World world;
+    private int[] memory;
+
+    private int pc;
+    private int fp;
+    private int sp;
+    private int status;
+    private long steps;
+
+    public Interpreter(Bytecode bytecode, World world) {
+        this.bytecode = bytecode;
+        this.code = bytecode.getCode();
+        this.procedures = bytecode.getProcedures();
+        this.memory = new int[Math.max(64, bytecode.getStaticSize() + bytecode.getFrameSize() + 2)];
+        reset(world);
+    }
+
+    // Back to the first instruction with every variable at 0
+    public void reset(World world) {
+        this.world = world;
+        int globals = bytecode.getGlobalCount();
+        int[] pool = bytecode.getPool();
+        Arrays.fill(memory, 0, globals, 0);
+        System.arraycopy(pool, 0, memory, globals, pool.length);
+        // The top level frame has a header too, so every frame looks the same
+        fp = globals + pool.length + 2;
+        sp = fp + bytecode.getFrameSize();
+        Arrays.fill(memory, fp, sp, 0);
+        pc = 0;
+        status = RUNNING;
+        steps = 0;
+    }
+
+    // Runs until the program stops or budget instructions are executed; returns the status
+    public int run(long budget) {
+        if (status != RUNNING) {
+            return status;
+        }
+        final int[] code = this.code;
+        final World world = this.world;
+        int[] memory = this.memory;
+        int pc = this.pc;
+        int fp = this.fp;
+        int sp = this.sp;
+        int status = RUNNING;
+        long left = budget;
+
+        loop:
+        while (left > 0) {
+            left--;
+            switch (code[pc]) {
+                case Bytecode.HALT:
+                    status = HALTED;
+                    break loop;
+                case Bytecode.BRANCH:
+                    pc = code[pc + 1];
+                    break;
+                case Bytecode.SET: {
+                    int destination = code[pc + 1];
+                    memory[destination >= 0 ? destination : fp + ~destination] = load(memory, fp, code[pc + 2]);
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.CALL: {
+                    int procedure = code[pc + 1] * 3;
+                    int params = procedures[procedure + 1];
+                    int frame = procedures[procedure + 2];
+                    int callee = sp + 2;
+                    if (callee + frame > memory.length) {
+                        if (callee + frame > MAX_MEMORY) {
+                            status = STACK_OVERFLOW;
+                            break loop;
+                        }
+                        memory = Arrays.copyOf(memory, Math.min(MAX_MEMORY, Math.max(memory.length * 2, callee + frame)));
+                        this.memory = memory;
+                    }
+                    for (int i = 0; i < params; i++) {
+                        memory[callee + i] = load(memory, fp, code[pc + 2 + i]);
+                    }
+                    Arrays.fill(memory, callee + params, callee + frame, 0);
+                    memory[sp] = pc + 2 + params;
+                    memory[sp + 1] = fp;
+                    fp = callee;
+                    sp = callee + frame;
+                    pc = procedures[procedure];
+                    break;
+                }
+                case Bytecode.RETURN:
+                    sp = fp - 2;
+                    pc = memory[sp];
+                    fp = memory[sp + 1];
+                    break;
+                case Bytecode.REPEAT: {
+                    int times = load(memory, fp, code[pc + 2]);
+                    if (times < 0) {
+                        status = BAD_VALUE;
+                        break loop;
+                    }
+                    memory[fp + ~code[pc + 1]] = times;
+                    pc = times == 0 ? code[pc + 3] : pc + 4;
+                    break;
+                }
+                case Bytecode.LOOP: {
+                    int counter = fp + ~code[pc + 1];
+                    pc = --memory[counter] > 0 ? code[pc + 2] : pc + 3;
+                    break;
+                }
+                case Bytecode.MOVE:
+                case Bytecode.MOVE_TO:
+                case Bytecode.JUMP:
+                case Bytecode.JUMP_TO: {
+                    int steps = load(memory, fp, code[pc + 1]);
+                    if (steps < 0) {
+                        status = BAD_VALUE;
+                        break loop;
+                    }
+                    int opcode = code[pc];
+                    int direction = code[pc + 2];
+                    if (opcode == Bytecode.MOVE_TO || opcode == Bytecode.JUMP_TO) {
+                        direction = (world.getFacing() + direction) & 3;
+                    }
+                    boolean done = opcode == Bytecode.MOVE || opcode == Bytecode.MOVE_TO
+                            ? world.move(direction, steps) : world.jump(direction, steps);
+                    if (!done) {
+                        status = BLOCKED;
+                        break loop;
+                    }
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.TURN:
+                    world.setFacing((world.getFacing() + code[pc + 1]) & 3);
+                    pc += 2;
+                    break;
+                case Bytecode.FACE:
+                    world.setFacing(code[pc + 1]);
+                    pc += 2;
+                    break;
+                case Bytecode.PUT:
+                case Bytecode.PICK: {
+                    int count = load(memory, fp, code[pc + 1]);
+                    if (count < 0) {
+                        status = BAD_VALUE;
+                        break loop;
+                    }
+                    boolean done = code[pc] == Bytecode.PUT
+                            ? world.put(code[pc + 2], count) : world.pick(code[pc + 2], count);
+                    if (!done) {
+                        status = BLOCKED;
+                        break loop;
+                    }
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.POP: {
+                    int count = load(memory, fp, code[pc + 1]);
+                    if (count < 0) {
+                        status = BAD_VALUE;
+                        break loop;
+                    }
+                    if (!world.pop(count)) {
+                        status = BLOCKED;
+                        break loop;
+                    }
+                    pc += 2;
+                    break;
+                }
+                case Bytecode.GOTO: {
+                    int x = load(memory, fp, code[pc + 1]);
+                    int y = load(memory, fp, code[pc + 2]);
+                    if (x < 0 || y < 0) {
+                        status = BAD_VALUE;
+                        break loop;
+                    }
+                    if (!world.goTo(x, y)) {
+                        status = BLOCKED;
+                        break loop;
+                    }
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.UNLESS_FACING:
+                    pc = world.getFacing() == code[pc + 1] ? pc + 3 : code[pc + 2];
+                    break;
+                default: {
+                    // The two argument conditions
+                    int count = load(memory, fp, code[pc + 1]);
+                    if (count < 0) {
+                        status = BAD_VALUE;
+                        break loop;
+                    }
+                    int argument = code[pc + 2];
+                    boolean holds;
+                    switch (code[pc]) {
+                        case Bytecode.UNLESS_CAN_PUT:
+                            holds = world.canPut(argument, count);
+                            break;
+                        case Bytecode.UNLESS_CAN_PICK:
+                            holds = world.canPick(argument, count);
+                            break;
+                        case Bytecode.UNLESS_CAN_MOVE:
+                            holds = world.canMove(argument, count);
+                            break;
+                        case Bytecode.UNLESS_CAN_MOVE_TO:
+                            holds = world.canMove((world.getFacing() + argument) & 3, count);
+                            break;
+                        case Bytecode.UNLESS_CAN_JUMP:
+                            holds = world.canJump(argument, count);
+                            break;
+                        case Bytecode.UNLESS_CAN_JUMP_TO:
+                            holds = world.canJump((world.getFacing() + argument) & 3, count);
+                            break;
+                        default:
+                            throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc);
+                    }
+                    pc = holds ? pc + 4 : code[pc + 3];
+                    break;
+                }
+            }
+        }
+
+        this.pc = pc;
+        this.fp = fp;
+        this.sp = sp;
+        this.status = status;
+        // The instruction that stopped the program did not run
+        this.steps += budget - left - (status == RUNNING || status == HALTED ? 0 : 1);
+        return status;
+    }
+
+    // A value operand: a global or pooled literal, or a local of the current frame
+    private static int load(int[] memory, int fp, int operand) {
+        return memory[operand >= 0 ? operand : fp + ~operand];
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    // Instructions executed since the last reset
+    public long getSteps() {
+        return steps;
+    }
+
+    public int getPc() {
+        return pc;
+    }
+
+    // Source line of the next instruction, or of the one that stopped the program
+    public int getLine() {
+        return bytecode.getLine(pc);
+    }
+
+    public Bytecode getBytecode() {
+        return bytecode;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    // Current value of a global (Scope slot)
+    public int getGlobal(int slot) {
+        return memory[slot];
+    }
+}
@@ -1,39 +1,420 @@
 package com.p0lym;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        if (options.contains("--batch")) {
+            // Validar todos los archivos de un directorio (o glob) en paralelo
+            batch(options);
+            return;
+        }
+        if (options.contains("--generate")) {
+            // Generar programas sintéticos (válidos e inválidos) para pruebas de carga
+            generate(options);
+            return;
+        }
+        if (options.contains("--daemon")) {
+            // Quedarse validando lo que pidan los clientes por un socket local
+            daemon(options);
+            return;
+        }
+        if (options.contains("--client")) {
+            // Pedir la validación a un daemon ya en marcha
+            client(options);
+            return;
+        }
+        if (options.contains("--simulate")) {
+            // Ejecutar un programa sobre muchos tableros en paralelo y resumir los resultados
+            simulate(options);
+            return;
+        }
+        if (options.contains("--schedule")) {
+            // Ejecutar muchos programas por turnos sobre el mismo tablero, con límites por programa
+            schedule(options);
+            return;
+        }
+        if (options.contains("--compile")) {
+            // Guardar un programa válido ya compilado (.robc) para ejecutarlo sin volver a leerlo
+            compileFile(options);
+            return;
+        }
+        if (options.contains("--run")) {
+            // Compilar un programa válido y ejecutarlo sobre un tablero
+            run(options);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         System.out.print("Ingrese la ruta del archivo con el código del robot: ");
 
         String filePath = scanner.nextLine(); // Ruta del archivo con el código del robot
         scanner.close();
-        
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            
-            // Leer todo el archivo línea por línea
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append("\n");
-            }
-
-            // Crear el lexer y parser con la entrada del archivo
-            RobotLexerParser lexerParser = new RobotLexerParser(new StringReader(sb.toString()));
-            ArrayList<RobotLexerParser.Token> tokens = lexerParser.lexer();
-
-            // Ejecutar el parser con los tokens obtenidos
-            boolean isValid = lexerParser.parser(tokens, null, null);
+
+        try {
+            // Los errores se muestran en la salida; con --all-errors todos, no solo el primero
+            RobotValidator validator = new RobotValidator(System.out, options.contains("--all-errors"));
+
+            boolean isValid;
+            if (options.contains("--parallel")) {
+                // Validar los procedimientos en paralelo
+                int threads = Integer.parseInt(option(options, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+                isValid = new ParallelValidator(validator, threads).validate(Path.of(filePath)).isValid();
+            } else if (options.contains("--all-errors")) {
+                // Seguir después de cada error para mostrarlos todos
+                isValid = validator.validate(Path.of(filePath)).isValid();
+            } else if (options.contains("--stream")) {
+                // Validar sin guardar los tokens, pidiéndolos al lexer a medida que se necesitan
+                isValid = new StreamingValidator(new MappedLexer(Path.of(filePath)), validator).validate();
+            } else {
+                // Leer los tokens directamente sobre el archivo mapeado en memoria y ejecutar el
+                // parser sobre ellos por índice
+                TokenStream tokens = new MappedLexer(Path.of(filePath)).tokenize();
+                isValid = validator.validate(tokens).isValid();
+            }
             System.out.println("¿Programa válido? " + (isValid ? "Sí" : "No"));
 
         } catch (IOException e) {
             System.err.println("Error al leer el archivo: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // --batch <directorio|glob> [--threads N] [--out archivo.jsonl] [--cache archivo] [--cache-mb N]
+    //         [--all-errors]
+    private static void batch(List<String> options) {
+        String pattern = option(options, "--batch", null);
+        if (pattern == null) {
+            System.err.println("Error: falta el directorio o glob después de --batch");
+            return;
+        }
+        int threads = Integer.parseInt(option(options, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String out = option(options, "--out", null);
+
+        try {
+            List<Path> files = BatchValidator.files(pattern);
+            // Los archivos que no cambiaron se responden desde la caché, sin lexer ni parser
+            String cacheFile = option(options, "--cache", null);
+            long cacheBytes = Long.parseLong(option(options, "--cache-mb", "64")) << 20;
+            // Un resultado JSON por línea; el resumen va a stderr para no mezclarse con ellos
+            try (ResultCache cache = cacheFile == null ? null : new ResultCache(Path.of(cacheFile), cacheBytes);
+                    Writer writer = out == null
+                            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                            : Files.newBufferedWriter(Path.of(out), StandardCharsets.UTF_8)) {
+                new BatchValidator(threads, cache, options.contains("--all-errors")).run(files, writer, System.err);
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer o escribir los archivos: " + e.getMessage());
+        }
+    }
+
+    // --generate <directorio> [--files N] [--seed S] [--statements N] [--depth N] [--procedures N]
+    //            [--fan-out N] [--invalid porcentaje]
+    private static void generate(List<String> options) {
+        String directory = option(options, "--generate", null);
+        if (directory == null) {
+            System.err.println("Error: falta el directorio después de --generate");
+            return;
+        }
+        int files = Integer.parseInt(option(options, "--files", "100"));
+        long seed = Long.parseLong(option(options, "--seed", "1"));
+        int invalidPercent = Integer.parseInt(option(options, "--invalid", "0"));
+
+        try {
+            Path dir = Files.createDirectories(Path.of(directory));
+            ProgramGenerator.Defect[] defects = ProgramGenerator.Defect.values();
+            int invalid = 0;
+            for (int i = 0; i < files; i++) {
+                // Cada archivo tiene su propia semilla: el mismo comando genera siempre los mismos archivos
+                ProgramGenerator generator = new ProgramGenerator(seed * 1_000_003 + i);
+                generator.setStatements(Integer.parseInt(option(options, "--statements", "100")));
+                generator.setDepth(Integer.parseInt(option(options, "--depth", "4")));
+                generator.setProcedures(Integer.parseInt(option(options, "--procedures", "4")));
+                generator.setFanOut(Integer.parseInt(option(options, "--fan-out", "4")));
+
+                String name = String.format("valid-%06d.txt", i);
+                // Los inválidos se reparten entre todos los tipos de error y se nombran por él
+                if (Math.floorMod(seed * 31 + i * 7919L, 100) < invalidPercent) {
+                    ProgramGenerator.Defect defect = defects[invalid++ % defects.length];
+                    generator.setDefect(defect);
+                    name = String.format("invalid-%06d-%s.txt", i, defect.name().toLowerCase().replace('_', '-'));
+                }
+                generator.write(dir.resolve(name));
+            }
+            System.err.printf("Generados %d archivos (%d inválidos) en %s%n", files, invalid, dir);
+        } catch (IOException e) {
+            System.err.println("Error al escribir los archivos: " + e.getMessage());
+        }
+    }
+
+    // --daemon <socket|[host:]puerto> [--threads N]
+    private static void daemon(List<String> options) {
+        String address = option(options, "--daemon", null);
+        if (address == null) {
+            System.err.println("Error: falta el socket o el puerto después de --daemon");
+            return;
+        }
+        int threads = Integer.parseInt(option(options, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        try (ValidatorDaemon daemon = new ValidatorDaemon(ValidatorDaemon.address(address), threads)) {
+            System.err.println("Validando en " + daemon.getAddress());
+            daemon.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error en el daemon: " + e.getMessage());
+        }
+    }
+
+    // --client <socket|[host:]puerto> (<archivo>... | --stop): una línea JSON por archivo
+    private static void client(List<String> options) {
+        int index = options.indexOf("--client");
+        if (index + 1 >= options.size()) {
+            System.err.println("Error: falta el socket o el puerto después de --client");
+            return;
+        }
+        try (ValidatorClient client = new ValidatorClient(ValidatorDaemon.address(options.get(index + 1)))) {
+            if (options.contains("--stop")) {
+                System.out.println(client.stop());
+                return;
+            }
+            for (String file : options.subList(index + 2, options.size())) {
+                System.out.println(client.validate(Path.of(file)));
+            }
+        } catch (IOException e) {
+            System.err.println("Error al hablar con el daemon: " + e.getMessage());
+        }
+    }
+
+    // --compile <programa> [--out archivo.robc] [--optimize [--merge-moves]]
+    private static void compileFile(List<String> options) {
+        String program = option(options, "--compile", null);
+        if (program == null) {
+            System.err.println("Error: falta el programa después de --compile");
+            return;
+        }
+        String out = option(options, "--out", program.replaceFirst("\\.[^./\\\\]*$", "") + ".robc");
+
+        try {
+            ValidationContext context = new RobotValidator(System.out).validate(Path.of(program));
+            if (!context.isValid()) {
+                System.out.println("¿Programa válido? No");
+                return;
+            }
+            Ast.Program tree = optimize(context, options, System.out);
+            Bytecode bytecode = BytecodeCompiler.compile(tree);
+            ProgramFile.write(Path.of(out), tree, bytecode);
+            System.out.println("Compilado en " + out + " (" + bytecode.size() + " palabras de código, "
+                    + bytecode.getProcedureCount() + " procedimientos)");
+        } catch (IOException e) {
+            System.err.println("Error al escribir el archivo: " + e.getMessage());
+        }
+    }
+
+    // --run <programa|programa.robc> --board <tablero> [--steps N] [--optimize [--merge-moves]]
+    private static void run(List<String> options) {
+        String program = option(options, "--run", null);
+        String board = option(options, "--board", null);
+        if (program == null || board == null) {
+            System.err.println("Error: se necesitan --run <programa> y --board <tablero>");
+            return;
+        }
+        long steps = Long.parseLong(option(options, "--steps", "1000000"));
+
+        try {
+            Bytecode bytecode = load(Path.of(program), options, System.out);
+            if (bytecode == null) {
+                System.out.println("¿Programa válido? No");
+                return;
+            }
+            GridWorld world = GridWorld.load(Path.of(board));
+            Interpreter interpreter = new Interpreter(bytecode, world);
+            int status = interpreter.run(steps);
+
+            String[] outcomes = {
+                    "sin terminar después de " + steps + " pasos",
+                    "terminó",
+                    "no pudo ejecutar la instrucción de la línea " + interpreter.getLine(),
+                    "usó una constante como número en la línea " + interpreter.getLine(),
+                    "demasiadas llamadas anidadas en la línea " + interpreter.getLine()
+            };
+            System.out.println("Ejecución: " + outcomes[status] + " (" + interpreter.getSteps() + " instrucciones)");
+            String[] orientations = {"norte", "este", "sur", "oeste"};
+            System.out.printf("Robot en (%d, %d) mirando al %s, con %d fichas y %d globos%n",
+                    world.getX(), world.getY(), orientations[world.getFacing()],
+                    world.getCarried(World.CHIPS), world.getCarried(World.BALLOONS));
+            System.out.print(world);
+        } catch (IOException e) {
+            System.err.println("Error al leer los archivos: " + e.getMessage());
+        }
+    }
+
+    // --simulate <programa|programa.robc> [--boards <directorio|glob>] [--size AxB] [--walls porcentaje]
+    //            [--runs N] [--threads N] [--steps N] [--seed S] [--optimize [--merge-moves]]
+    private static void simulate(List<String> options) {
+        String program = option(options, "--simulate", null);
+        if (program == null) {
+            System.err.println("Error: falta el programa después de --simulate");
+            return;
+        }
+        long runs = Long.parseLong(option(options, "--runs", "10000"));
+        int threads = Integer.parseInt(option(options, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        try {
+            Bytecode bytecode = load(Path.of(program), options, System.out);
+            if (bytecode == null) {
+                System.out.println("¿Programa válido? No");
+                return;
+            }
+
+            BoardSource boards;
+            String pattern = option(options, "--boards", null);
+            if (pattern != null) {
+                // Los tableros dados, uno tras otro
+                List<GridWorld> loaded = new ArrayList<>();
+                for (Path file : BatchValidator.files(pattern)) {
+                    loaded.add(GridWorld.load(file));
+                }
+                if (loaded.isEmpty()) {
+                    System.err.println("Error: no hay tableros en " + pattern);
+                    return;
+                }
+                boards = BoardSource.of(loaded);
+            } else {
+                // Tableros aleatorios, los mismos para la misma semilla
+                String[] size = option(options, "--size", "16x16").split("x");
+                RandomBoards random = new RandomBoards(Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                        Long.parseLong(option(options, "--seed", "1")));
+                random.setWallPercent(Integer.parseInt(option(options, "--walls", "15")));
+                boards = random;
+            }
+
+            MonteCarloRunner runner = new MonteCarloRunner(bytecode, threads);
+            runner.setBudget(Long.parseLong(option(options, "--steps", "100000")));
+            runner.run(boards, runs).print(System.out);
+        } catch (IOException e) {
+            System.err.println("Error al leer los archivos: " + e.getMessage());
+        }
+    }
+
+    // --schedule <directorio|glob> --board <tablero> [--carriers N] [--slice N] [--steps N]
+    //            [--time-ms N] [--optimize [--merge-moves]]
+    private static void schedule(List<String> options) {
+        String pattern = option(options, "--schedule", null);
+        String board = option(options, "--board", null);
+        if (pattern == null || board == null) {
+            System.err.println("Error: se necesitan --schedule <directorio|glob> y --board <tablero>");
+            return;
+        }
+        int carriers = Integer.parseInt(option(options, "--carriers", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long slice = Long.parseLong(option(options, "--slice", "10000"));
+        long steps = Long.parseLong(option(options, "--steps", "1000000"));
+        long millis = Long.parseLong(option(options, "--time-ms", "1000"));
+
+        try {
+            GridWorld world = GridWorld.load(Path.of(board));
+            List<Path> files = BatchValidator.files(pattern);
+            RobotValidator validator = new RobotValidator();
+            List<ProgramScheduler.Job> jobs = new ArrayList<>();
+            long start = System.nanoTime();
+            try (ProgramScheduler scheduler = new ProgramScheduler(carriers, slice)) {
+                // Cada programa empieza a ejecutarse en cuanto se valida, sin esperar a los demás
+                for (Path file : files) {
+                    Bytecode bytecode = load(file, validator, options, null);
+                    jobs.add(bytecode != null
+                            ? scheduler.submit(bytecode, world.copy(), steps, millis, TimeUnit.MILLISECONDS)
+                            : null);
+                }
+                for (int i = 0; i < files.size(); i++) {
+                    ProgramScheduler.Job job = jobs.get(i);
+                    if (job == null) {
+                        System.out.println(files.get(i) + ": inválido");
+                        continue;
+                    }
+                    ProgramScheduler.Outcome outcome = job.await();
+                    System.out.println(files.get(i) + ": " + describe(outcome, job.getLine())
+                            + " (" + job.getSteps() + " instrucciones)");
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Programas: %d en %.2f s, %.1f M instrucciones/s%n", files.size(), seconds,
+                        scheduler.getSteps() / 1e6 / seconds);
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer los archivos: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Un .robc se carga ya compilado; cualquier otro archivo se valida y se compila. Devuelve
+    // null si el programa no es válido.
+    private static Bytecode load(Path program, List<String> options, PrintStream report) throws IOException {
+        return load(program, new RobotValidator(System.out), options, report);
+    }
+
+    private static Bytecode load(Path program, RobotValidator validator, List<String> options, PrintStream report)
+            throws IOException {
+        if (program.toString().endsWith(".robc")) {
+            return ProgramFile.load(program).getBytecode();
+        }
+        ValidationContext context = validator.validate(program);
+        return context.isValid() ? compile(context, options, report) : null;
+    }
+
+    // Compila el programa validado; con --optimize lo optimiza antes y escribe el resumen en
+    // report (si no es null). --merge-moves junta también los movimientos seguidos.
+    private static Bytecode compile(ValidationContext context, List<String> options, PrintStream report) {
+        return BytecodeCompiler.compile(optimize(context, options, report));
+    }
+
+    private static Ast.Program optimize(ValidationContext context, List<String> options, PrintStream report) {
+        Ast.Program program = context.getProgram();
+        if (options.contains("--optimize")) {
+            AstOptimizer optimizer = new AstOptimizer();
+            optimizer.setMergeMoves(options.contains("--merge-moves"));
+            program = optimizer.optimize(program);
+            if (report != null) {
+                optimizer.print(report);
+            }
+        }
+        return program;
+    }
+
+    private static String describe(ProgramScheduler.Outcome outcome, int line) {
+        switch (outcome) {
+            case HALTED:
+                return "terminó";
+            case BLOCKED:
+                return "no pudo ejecutar la instrucción de la línea " + line;
+            case BAD_VALUE:
+                return "usó una constante como número en la línea " + line;
+            case STACK_OVERFLOW:
+                return "demasiadas llamadas anidadas en la línea " + line;
+            case STEP_LIMIT:
+                return "sin terminar, agotó sus instrucciones en la línea " + line;
+            case TIME_LIMIT:
+                return "sin terminar, agotó su tiempo en la línea " + line;
+            case FAILED:
+                return "falló en la línea " + line;
+            default:
+                return "cancelado";
+        }
+    }
+
+    private static String option(List<String> options, String name, String defaultValue) {
+        int index = options.indexOf(name);
+        if (index < 0 || index + 1 >= options.size()) {
+            return defaultValue;
+        }
+        return options.get(index + 1);
+    }
+}
@@ -0,0 +1,280 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Lexer that scans a UTF-8 buffer in place (usually a memory-mapped file) instead of
+// pulling chars through a Reader. It produces the same tokens as RobotLexerParser.nextToken().
+public class MappedLexer implements TokenSource {
+    private final ByteBuffer buffer;
+    // Identifiers and constants get one shared String per name (made with the first)
+    private SymbolTable symbols;
+    private final int limit;
+    private int position;
+    private int currentLine;
+    private int currentColumn;
+    // Chars (UTF-16 units, like the columns) read so far
+    private int offset;
+
+    private TokenType tokenType;
+    private int tokenStart;
+    private int tokenOffset;
+    private int tokenLine;
+    private int tokenColumn;
+
+    public MappedLexer(Path path) throws IOException {
+        this(map(path));
+    }
+
+    public MappedLexer(ByteBuffer buffer) {
+        this(buffer, 1, 0);
+    }
+
+    // For a buffer that holds part of a text: its first char is at the given line and just after
+    // the given column
+    MappedLexer(ByteBuffer buffer, int line, int column) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.position = buffer.position();
+        this.currentLine = line;
+        this.currentColumn = column;
+    }
+
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    // Code point at the given index, '\0' at the end of the input (like nextChar())
+    private int charAt(int index) {
+        if (index >= limit) {
+            return '\0';
+        }
+        int b = buffer.get(index);
+        if (b >= 0) {
+            return b;
+        }
+        return decode(index, b & 0xFF);
+    }
+
+    private int decode(int index, int lead) {
+        int width = width(lead);
+        if (width == 1 || index + width > limit) {
+            return 0xFFFD;
+        }
+        int codePoint = lead & (0xFF >> (width + 1));
+        for (int i = 1; i < width; i++) {
+            int b = buffer.get(index + i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                return 0xFFFD;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private static int width(int lead) {
+        if (lead < 0x80) {
+            return 1;
+        } else if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((lead & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((lead & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+
+    // Consumes the char at the current position, keeping line and column in sync
+    private void advance(int ch) {
+        if (ch < 0x80) {
+            position++;
+        } else {
+            position = Math.min(limit, position + width(buffer.get(position) & 0xFF));
+        }
+        currentColumn += Character.charCount(ch);
+        offset += Character.charCount(ch);
+
+        if (ch == '\n') {
+            currentLine++;
+            currentColumn = 0;
+        }
+    }
+
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Scans the next token and leaves its type and bounds in the token* fields
+    private void scan() {
+        // Skip whitespace
+        int ch = charAt(position);
+        while (ch != '\0' && CharClass.isWhitespace(ch)) {
+            advance(ch);
+            ch = charAt(position);
+        }
+
+        tokenStart = position;
+        tokenOffset = offset;
+        if (ch == '\0') {
+            if (position < limit) {
+                // A NUL char ends the input too, once read (as nextChar() does)
+                advance(ch);
+            }
+            tokenType = TokenType.EOF;
+            tokenLine = currentLine;
+            tokenColumn = currentColumn;
+            return;
+        }
+
+        // Token start position
+        advance(ch);
+        tokenLine = currentLine;
+        tokenColumn = currentColumn;
+        tokenType = scanType(ch);
+    }
+
+    private TokenType scanType(int ch) {
+        // Identifiers and keywords
+        if (CharClass.isLetter(ch)) {
+            ch = charAt(position);
+            while (CharClass.isLetterOrDigit(ch) || ch == '_') {
+                advance(ch);
+                ch = charAt(position);
+            }
+
+            // Check if it's a keyword
+            return TokenType.keyword(buffer, tokenStart, position - tokenStart);
+        }
+
+        // Numbers
+        if (CharClass.isDigit(ch)) {
+            ch = charAt(position);
+            while (CharClass.isDigit(ch)) {
+                advance(ch);
+                ch = charAt(position);
+            }
+            return TokenType.NUMBER;
+        }
+
+        // Constants starting with #
+        if (ch == '#') {
+            ch = charAt(position);
+            while (CharClass.isLetterOrDigit(ch)) {
+                advance(ch);
+                ch = charAt(position);
+            }
+            return TokenType.CONSTANT;
+        }
+
+        // Special symbols
+        switch (ch) {
+            case '|':
+                return TokenType.PIPE;
+            case '[':
+                return TokenType.BRACKET_OPEN;
+            case ']':
+                return TokenType.BRACKET_CLOSE;
+            case '.':
+                return TokenType.PERIOD;
+            case ':':
+                if (charAt(position) == '=') {
+                    advance('=');
+                    return TokenType.ASSIGN;
+                }
+                return TokenType.COLON;
+        }
+
+        return TokenType.INVALID;
+    }
+
+    // Where the last token starts and where the lexer stands (just after it), in chars from the
+    // start of the buffer
+    int getTokenOffset() {
+        return tokenOffset;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    int getLine() {
+        return currentLine;
+    }
+
+    int getColumn() {
+        return currentColumn;
+    }
+
+    @Override
+    public Token nextToken() {
+        scan();
+        return token();
+    }
+
+    // Scans the next token without building it, for scans that only look at a few tokens
+    TokenType scanToken() {
+        scan();
+        return tokenType;
+    }
+
+    // The token last scanned
+    Token token() {
+        if (tokenType == TokenType.EOF) {
+            return new Token(TokenType.EOF, "", tokenLine, tokenColumn);
+        } else if (tokenType.getText() != null) {
+            return new Token(tokenType, tokenType.getText(), tokenLine, tokenColumn);
+        } else if (tokenType == TokenType.INVALID || tokenType == TokenType.NUMBER) {
+            // Numbers are not interned: their ids are never compared, and a long program with
+            // many distinct numbers would grow the table without bound
+            return new Token(tokenType, text(tokenStart, position), tokenLine, tokenColumn);
+        }
+        if (symbols == null) {
+            symbols = new SymbolTable();
+        }
+        int symbol = symbols.intern(buffer, tokenStart, position - tokenStart);
+        return new Token(tokenType, symbols.name(symbol), tokenLine, tokenColumn, symbol);
+    }
+
+    // Lexes the whole input into a compact stream whose values point into the buffer. Invalid
+    // tokens are kept, for the parser to report with their position.
+    public TokenStream tokenize() {
+        TokenStream stream = new TokenStream(buffer, Math.max(16, Math.min((limit - position) / 6, 1 << 20)));
+        while (true) {
+            scan();
+            if (tokenType == TokenType.EOF) {
+                stream.setEnd(tokenLine, tokenColumn);
+                return stream;
+            }
+            stream.add(tokenType, tokenStart, position - tokenStart, tokenLine, tokenColumn);
+        }
+    }
+
+    // Every token before EOF, invalid ones included
+    public ArrayList<Token> lexer() {
+        ArrayList<Token> tokens = new ArrayList<>();
+        Token token;
+        while ((token = this.nextToken()).getType() != TokenType.EOF) {
+            tokens.add(token);
+        }
+
+        return tokens;
+    }
+}
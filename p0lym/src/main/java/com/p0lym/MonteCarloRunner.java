@@ -0,0 +1,293 @@
+package com.p0lym;
+
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Runs one compiled program on many boards in parallel and adds up how the runs ended. Runs
+// are split on a work-stealing pool; each worker thread keeps its own interpreter, board and
+// tallies, so once a thread has done its first run the next ones allocate nothing and share
+// nothing. The tallies are merged when every run is done.
+public class MonteCarloRunner {
+    // Runs done by one task before it stops splitting
+    private static final int CHUNK = 64;
+    // Counts of picked objects go from 0 to PICKED_BUCKETS - 1; the last bucket takes the rest
+    public static final int PICKED_BUCKETS = 64;
+
+    // Whether a run that ended did what was asked; without one, ending is enough
+    public interface Goal {
+        boolean reached(GridWorld board);
+    }
+
+    private final Bytecode bytecode;
+    private final int threads;
+    private long budget = 1_000_000;
+    private Goal goal;
+
+    public MonteCarloRunner(Bytecode bytecode, int threads) {
+        this.bytecode = bytecode;
+        this.threads = threads;
+    }
+
+    // Instructions a run may execute before it is stopped
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public void setGoal(Goal goal) {
+        this.goal = goal;
+    }
+
+    public Result run(BoardSource boards, long runs) {
+        ConcurrentLinkedQueue<Worker> workers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> local = ThreadLocal.withInitial(() -> {
+            Worker worker = new Worker(boards.getWidth() * boards.getHeight());
+            workers.add(worker);
+            return worker;
+        });
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Runs(boards, local, 0, runs));
+        } finally {
+            pool.shutdown();
+        }
+
+        Result result = new Result(boards.getWidth(), boards.getHeight(), System.nanoTime() - start);
+        for (Worker worker : workers) {
+            result.add(worker.tally);
+        }
+        return result;
+    }
+
+    private class Runs extends RecursiveAction {
+        // RecursiveAction is Serializable, but tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final BoardSource boards;
+        private final ThreadLocal<Worker> local;
+        private final long from;
+        private final long to;
+
+        Runs(BoardSource boards, ThreadLocal<Worker> local, long from, long to) {
+            this.boards = boards;
+            this.local = local;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new Runs(boards, local, from, middle), new Runs(boards, local, middle, to));
+                return;
+            }
+            Worker worker = local.get();
+            for (long run = from; run < to; run++) {
+                worker.run(boards, run);
+            }
+        }
+    }
+
+    // What one thread reuses from run to run
+    private class Worker {
+        private final Interpreter interpreter = new Interpreter(bytecode, null);
+        private final Tally tally;
+        private GridWorld board;
+
+        Worker(int cells) {
+            this.tally = new Tally(cells);
+        }
+
+        void run(BoardSource boards, long run) {
+            board = boards.board(run, board);
+            interpreter.reset(board);
+            int status = interpreter.run(budget);
+            boolean success = status == Interpreter.HALTED && (goal == null || goal.reached(board));
+            tally.add(status, success, interpreter.getSteps(), board, boards.getWidth());
+        }
+    }
+
+    // Sums of the runs of one thread, or of all of them once merged
+    private static class Tally {
+        private long runs;
+        private long successes;
+        private final long[] statuses = new long[5];
+        private long steps;
+        private long minSteps = Long.MAX_VALUE;
+        private long maxSteps;
+        // Runs by the number of bits of their step count: bucket b holds 2^(b-1) to 2^b - 1
+        private final long[] stepHistogram = new long[64];
+        private final long[] positions;
+        private final long[][] picked = new long[2][PICKED_BUCKETS];
+
+        Tally(int cells) {
+            this.positions = new long[cells];
+        }
+
+        void add(int status, boolean success, long runSteps, GridWorld board, int width) {
+            runs++;
+            if (success) {
+                successes++;
+            }
+            statuses[status]++;
+            steps += runSteps;
+            minSteps = Math.min(minSteps, runSteps);
+            maxSteps = Math.max(maxSteps, runSteps);
+            stepHistogram[64 - Long.numberOfLeadingZeros(runSteps)]++;
+            positions[board.getY() * width + board.getX()]++;
+            picked[World.CHIPS][Math.min(board.getPicked(World.CHIPS), PICKED_BUCKETS - 1)]++;
+            picked[World.BALLOONS][Math.min(board.getPicked(World.BALLOONS), PICKED_BUCKETS - 1)]++;
+        }
+
+        void add(Tally other) {
+            runs += other.runs;
+            successes += other.successes;
+            steps += other.steps;
+            minSteps = Math.min(minSteps, other.minSteps);
+            maxSteps = Math.max(maxSteps, other.maxSteps);
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] += other.statuses[i];
+            }
+            for (int i = 0; i < stepHistogram.length; i++) {
+                stepHistogram[i] += other.stepHistogram[i];
+            }
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] += other.positions[i];
+            }
+            for (int type = 0; type < picked.length; type++) {
+                for (int i = 0; i < PICKED_BUCKETS; i++) {
+                    picked[type][i] += other.picked[type][i];
+                }
+            }
+        }
+    }
+
+    // Totals of a simulation
+    public static class Result {
+        private final int width;
+        private final int height;
+        private final long nanos;
+        private final Tally tally;
+
+        Result(int width, int height, long nanos) {
+            this.width = width;
+            this.height = height;
+            this.nanos = nanos;
+            this.tally = new Tally(width * height);
+        }
+
+        void add(Tally other) {
+            tally.add(other);
+        }
+
+        public long getRuns() {
+            return tally.runs;
+        }
+
+        public long getSuccesses() {
+            return tally.successes;
+        }
+
+        public double getSuccessRate() {
+            return tally.runs == 0 ? 0 : (double) tally.successes / tally.runs;
+        }
+
+        // Runs that ended with the given Interpreter status
+        public long getStatusCount(int status) {
+            return tally.statuses[status];
+        }
+
+        public long getTotalSteps() {
+            return tally.steps;
+        }
+
+        public double getMeanSteps() {
+            return tally.runs == 0 ? 0 : (double) tally.steps / tally.runs;
+        }
+
+        public long getMinSteps() {
+            return tally.runs == 0 ? 0 : tally.minSteps;
+        }
+
+        public long getMaxSteps() {
+            return tally.maxSteps;
+        }
+
+        // Runs by the number of bits of their step count
+        public long[] getStepHistogram() {
+            return tally.stepHistogram.clone();
+        }
+
+        // Runs that ended with the robot at (x, y)
+        public long getFinalPositions(int x, int y) {
+            return tally.positions[y * width + x];
+        }
+
+        // Runs by how many objects of type they picked (the last bucket is that many or more)
+        public long[] getPickedHistogram(int type) {
+            return tally.picked[type].clone();
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        public void print(PrintStream out) {
+            out.printf("Ejecuciones: %d en %.2f s (%.0f/s, %.1f M instrucciones/s)%n", getRuns(), getSeconds(),
+                    getRuns() / getSeconds(), getTotalSteps() / 1e6 / getSeconds());
+            out.printf("Éxito: %d (%.1f%%); terminaron %d, bloqueadas %d, sin terminar %d, valor inválido %d, desbordadas %d%n",
+                    getSuccesses(), getSuccessRate() * 100, getStatusCount(Interpreter.HALTED),
+                    getStatusCount(Interpreter.BLOCKED), getStatusCount(Interpreter.RUNNING),
+                    getStatusCount(Interpreter.BAD_VALUE), getStatusCount(Interpreter.STACK_OVERFLOW));
+            out.printf("Instrucciones por ejecución: media %.1f, mínimo %d, máximo %d%n",
+                    getMeanSteps(), getMinSteps(), getMaxSteps());
+            out.print("Histograma de instrucciones:");
+            for (int bucket = 0; bucket < tally.stepHistogram.length; bucket++) {
+                if (tally.stepHistogram[bucket] > 0) {
+                    out.printf(" <%d:%d", 1L << bucket, tally.stepHistogram[bucket]);
+                }
+            }
+            out.println();
+            printPicked(out, "Fichas recogidas:", World.CHIPS);
+            printPicked(out, "Globos recogidos:", World.BALLOONS);
+
+            out.println("Posiciones finales:");
+            long most = 1;
+            for (long count : tally.positions) {
+                most = Math.max(most, count);
+            }
+            // Darker characters for cells where more runs ended
+            String shades = " .:-=+*#%@";
+            for (int y = 0; y < height; y++) {
+                StringBuilder row = new StringBuilder();
+                for (int x = 0; x < width; x++) {
+                    long count = tally.positions[y * width + x];
+                    row.append(count == 0 ? ' ' : shades.charAt(1 + (int) ((shades.length() - 2) * count / most)));
+                }
+                out.println(row);
+            }
+        }
+
+        private void printPicked(PrintStream out, String title, int type) {
+            out.print(title);
+            for (int count = 0; count < PICKED_BUCKETS; count++) {
+                if (tally.picked[type][count] > 0) {
+                    out.printf(" %d%s:%d", count, count == PICKED_BUCKETS - 1 ? "+" : "", tally.picked[type][count]);
+                }
+            }
+            out.println();
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+import com.p0lym.SignatureIndex.ParamKind;
+import com.p0lym.SignatureIndex.Signature;
+
+// Validates one program with many procedures on several cores, with the same result as
+// RobotValidator. A first pass only looks at bytes: it cuts the program before every line
+// that starts with "proc" and reads the header of each of those procedures. What comes before
+// the first cut (usually the global declarations) is parsed at once; the other parts are then
+// parsed in parallel. Each one sees the globals declared before the first cut and, through a
+// shared index, only the procedures declared up to it, as the single pass parser would: a call
+// to a procedure declared further down is still an error.
+//
+// The cuts and headers are guesses. A part whose parse found an error, that declared
+// something other than its header, or that follows a part declaring globals, is parsed again
+// on one thread from its start to the end of the program, after the parts before it. So the
+// errors, and where they are reported, are those of a sequential parse; a valid program (the
+// usual case) is parsed in parallel.
+public class ParallelValidator {
+    // Parts parsed by one task before it stops splitting
+    private static final int CHUNK = 8;
+
+    private final RobotValidator validator;
+    private final int threads;
+
+    public ParallelValidator(RobotValidator validator, int threads) {
+        this.validator = validator;
+        this.threads = threads;
+    }
+
+    public ValidationContext validate(Path file) throws IOException {
+        return validate(MappedLexer.map(file));
+    }
+
+    public ValidationContext validate(String program) {
+        return validate(ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // The buffer is only read with absolute gets, like RobotValidator.validate(ByteBuffer)
+    public ValidationContext validate(ByteBuffer source) {
+        Split split = split(source);
+        if (split == null || split.parts.size() < 2) {
+            return validator.validate(source);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Parts(split, 1, split.parts.size(), true));
+            // The globals every other part starts with, and the procedures declared before them
+            Part head = split.parts.get(0);
+            parse(split, 0);
+            if (!head.clean) {
+                return validator.validate(source);
+            }
+            split.index(head);
+            pool.invoke(new Parts(split, 1, split.parts.size(), false));
+        } finally {
+            pool.shutdown();
+        }
+
+        // The parts that stand as parsed, then the rest on this thread
+        ValidationContext context = validator.newContext();
+        List<Ast.Node> items = new ArrayList<>();
+        int accepted = 0;
+        for (Part part : split.parts) {
+            if (!part.clean || (accepted > 0 && !part.declaredAsGuessed())) {
+                break;
+            }
+            for (String variable : part.variables) {
+                context.declareVariable(variable);
+            }
+            for (Signature procedure : part.procedures) {
+                context.declareProcedure(procedure);
+            }
+            items.addAll(part.items);
+            accepted++;
+            if (accepted > 1 && !part.variables.isEmpty()) {
+                // The parts after it were parsed without these globals
+                break;
+            }
+        }
+        try {
+            if (accepted < split.parts.size()) {
+                AstParser parser = new AstParser(split.parts.get(accepted).lexer(source, source.limit()), context);
+                parser.begin();
+                parser.rest(items);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (context.getDiagnostics().isEmpty()) {
+            context.setProgram(new Ast.Program(split.first, items, context.getScope().getGlobalCount()));
+        }
+        context.printDiagnostics();
+        return context;
+    }
+
+    // Cuts the program before every "proc" that starts a line (after spaces or tabs), or
+    // returns null for input with a '\0', where the lexer stops whatever comes after
+    private static Split split(ByteBuffer source) {
+        int start = source.position();
+        int limit = source.limit();
+        Split split = new Split(source);
+        Part part = new Part(start, 1, 0);
+        int line = 1;
+        int column = 0;
+        boolean indent = true;
+        // Nothing but whitespace yet: the first part holds at least a token
+        boolean blank = true;
+        byte[] bytes = new byte[8192];
+        for (int from = start; from < limit; from += bytes.length) {
+            int length = Math.min(bytes.length, limit - from);
+            source.get(from, bytes, 0, length);
+            for (int j = 0; j < length; j++) {
+                int b = bytes[j];
+                if (b == 0) {
+                    return null;
+                }
+                if (indent) {
+                    if (b == ' ' || b == '\t') {
+                        column++;
+                        continue;
+                    }
+                    indent = false;
+                    if (b == 'p' && !blank && isProc(source, from + j, limit)) {
+                        part.end = from + j;
+                        split.parts.add(part);
+                        part = new Part(from + j, line, column);
+                    }
+                }
+                if (b > ' ') {
+                    blank = false;
+                }
+                if (b == '\n') {
+                    line++;
+                    column = 0;
+                    indent = true;
+                }
+            }
+        }
+        part.end = limit;
+        split.parts.add(part);
+
+        MappedLexer lexer = new MappedLexer(source);
+        lexer.scanToken();
+        split.first = lexer.token();
+        return split;
+    }
+
+    // "proc" followed by something that cannot go on an identifier
+    private static boolean isProc(ByteBuffer source, int i, int limit) {
+        if (i + 4 >= limit || source.get(i + 1) != 'r' || source.get(i + 2) != 'o' || source.get(i + 3) != 'c') {
+            return false;
+        }
+        int next = source.get(i + 4);
+        return next >= 0 && !CharClass.isLetterOrDigit(next) && next != '_';
+    }
+
+    // "name [: param {keyword: param}] [" after the proc keyword, or null
+    private static Declared header(MappedLexer lexer, int part) {
+        List<Token> parts = new ArrayList<>();
+        List<Token> params = new ArrayList<>();
+        if (lexer.scanToken() != TokenType.IDENTIFIER || !Character.isLowerCase(lexer.token().getValue().charAt(0))) {
+            return null;
+        }
+        parts.add(lexer.token());
+        TokenType type = lexer.scanToken();
+        if (type == TokenType.COLON) {
+            if (lexer.scanToken() != TokenType.IDENTIFIER) {
+                return null;
+            }
+            params.add(lexer.token());
+            while ((type = lexer.scanToken()) == TokenType.IDENTIFIER) {
+                parts.add(lexer.token());
+                if (lexer.scanToken() != TokenType.COLON || lexer.scanToken() != TokenType.IDENTIFIER) {
+                    return null;
+                }
+                params.add(lexer.token());
+            }
+        }
+        if (type != TokenType.BRACKET_OPEN) {
+            return null;
+        }
+        Signature signature = Signature.procedure(parts, params);
+        return new Declared(signature.getParts(), signature.getParams(), signature.getNames(), part);
+    }
+
+    // A guessed header and the part it starts
+    private static class Declared extends Signature {
+        private final int part;
+
+        Declared(String[] parts, ParamKind[] params, String[] names, int part) {
+            super(parts, params, names);
+            this.part = part;
+        }
+    }
+
+    // What the first pass found, and the index with the procedures of the first part and then
+    // the guessed header of every other part
+    private static class Split {
+        private final ByteBuffer source;
+        private final List<Part> parts = new ArrayList<>();
+        private final SignatureIndex procedures = new SignatureIndex(false, true);
+        private Token first;
+
+        Split(ByteBuffer source) {
+            this.source = source;
+        }
+
+        void index(Part head) {
+            for (Signature procedure : head.procedures) {
+                procedures.add(procedure);
+            }
+            for (int i = 1; i < parts.size(); i++) {
+                if (parts.get(i).guessed != null) {
+                    procedures.add(parts.get(i).guessed);
+                }
+            }
+        }
+    }
+
+    // A procedure and the top level statements after it, up to the next cut (the first part is
+    // what comes before the first cut)
+    private static class Part {
+        private final int start;
+        private final int line;
+        private final int column;
+        private int end;
+        private Declared guessed;
+
+        // Filled in by its parse
+        private boolean clean;
+        private final List<Ast.Node> items = new ArrayList<>();
+        private final List<String> variables = new ArrayList<>();
+        private final List<Signature> procedures = new ArrayList<>();
+
+        Part(int start, int line, int column) {
+            this.start = start;
+            this.line = line;
+            this.column = column;
+        }
+
+        MappedLexer lexer(ByteBuffer source, int limit) {
+            return new MappedLexer(source.duplicate().limit(limit).position(start), line, column);
+        }
+
+        // Reads the header of the procedure the part starts with
+        void guess(ByteBuffer source, int index) {
+            MappedLexer lexer = lexer(source, end);
+            lexer.scanToken();
+            guessed = header(lexer, index);
+        }
+
+        // Declared its header and nothing else
+        boolean declaredAsGuessed() {
+            return guessed != null && procedures.size() == 1 && procedures.get(0).key().equals(guessed.key());
+        }
+    }
+
+    private class Parts extends RecursiveAction {
+        // RecursiveAction is Serializable, but tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final Split split;
+        private final int from;
+        private final int to;
+        // Only read the headers
+        private final boolean headers;
+
+        Parts(Split split, int from, int to, boolean headers) {
+            this.split = split;
+            this.from = from;
+            this.to = to;
+            this.headers = headers;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Parts(split, from, middle, headers), new Parts(split, middle, to, headers));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                if (headers) {
+                    split.parts.get(i).guess(split.source, i);
+                } else {
+                    parse(split, i);
+                }
+            }
+        }
+    }
+
+    // Parses a part alone, stopping at its first error: a part with errors is parsed again anyway
+    private void parse(Split split, int index) {
+        Part part = split.parts.get(index);
+        PartContext context = new PartContext(split, index);
+        if (index > 0) {
+            for (String variable : split.parts.get(0).variables) {
+                context.declareGlobal(variable);
+            }
+        }
+        try {
+            AstParser parser = new AstParser(part.lexer(split.source, part.end), context);
+            boolean more = parser.begin();
+            while (more && !parser.atEnd()) {
+                more = parser.next(part.items);
+            }
+            part.clean = more && context.getDiagnostics().isEmpty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Context of one part, which keeps what the part declares. The first part declares its
+    // procedures as usual; the others look them up in the shared index.
+    private class PartContext extends ValidationContext {
+        private final Part part;
+        private final Visible procedures;
+
+        PartContext(Split split, int index) {
+            super(validator.getBuiltins(), validator.getConditions(), null, false);
+            this.part = split.parts.get(index);
+            this.procedures = index == 0 ? null : new Visible(split, index);
+        }
+
+        void declareGlobal(String name) {
+            super.declareVariable(name);
+        }
+
+        @Override
+        public SignatureIndex getProcedures() {
+            return procedures == null ? super.getProcedures() : procedures;
+        }
+
+        @Override
+        public void declareVariable(String name) {
+            super.declareVariable(name);
+            part.variables.add(name);
+        }
+
+        // Already in the shared index if it was guessed right
+        @Override
+        public void declareProcedure(Signature signature) {
+            if (procedures == null) {
+                super.declareProcedure(signature);
+            }
+            part.procedures.add(signature);
+        }
+    }
+
+    // The procedures of the shared index declared up to a part. They were added in the order
+    // of the parts, so they are the first ones of every list of candidates.
+    private static class Visible extends SignatureIndex {
+        private final Split split;
+        private final int part;
+
+        Visible(Split split, int part) {
+            super(false, true);
+            this.split = split;
+            this.part = part;
+        }
+
+        @Override
+        public Signature[] candidates(String name, int arity) {
+            Signature[] candidates = split.procedures.candidates(name, arity);
+            int visible = candidates.length;
+            while (visible > 0 && declaredIn(candidates[visible - 1]) > part) {
+                visible--;
+            }
+            return visible == candidates.length ? candidates : Arrays.copyOf(candidates, visible);
+        }
+
+        // The first part declares its procedures itself
+        private static int declaredIn(Signature procedure) {
+            return procedure instanceof Declared ? ((Declared) procedure).part : 0;
+        }
+    }
+}
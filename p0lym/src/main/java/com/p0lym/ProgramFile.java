@@ -0,0 +1,306 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.zip.CRC32;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.SignatureIndex.ParamKind;
+import com.p0lym.SignatureIndex.Signature;
+
+// A validated and compiled program saved to a file (.robc), so it can be run again without
+// lexing, parsing or compiling it. The file is mapped and only what is asked for is read:
+// the Bytecode with a few bulk copies, the signature of a procedure when it is first looked
+// up. Every number is a big-endian int:
+//
+//   header: magic, version (2 ints), body length, CRC32 of the body
+//   body:   globals, frame, code length, pool length, procedure count, global name count,
+//           symbol count, symbol bytes length
+//           procedures (entry, parameter count, frame size of each)
+//           signature offsets (one per procedure and the end), signatures (the symbols of
+//           the keywords and then of the parameters of each procedure)
+//           global names (symbols, in slot order), code, lines, pool
+//           symbol offsets (one per symbol and the end), symbol bytes (UTF-8)
+//
+// The CRC is checked on load; past that the content is trusted like the output of
+// BytecodeCompiler.
+public class ProgramFile {
+    // Bump when the layout or the meaning of Bytecode changes
+    public static final int FORMAT_VERSION = 1;
+    public static final long VERSION = (long) FORMAT_VERSION << 32 | (BuiltinCatalog.fingerprint() & 0xFFFFFFFFL);
+
+    private static final int MAGIC = 0x524F4250; // "ROBP"
+    private static final int HEADER = 4 + 8 + 4 + 4;
+    private static final int COUNTS = 8;
+
+    private final ByteBuffer body;
+    private final int globals;
+    private final int frame;
+    private final int codeLength;
+    private final int poolLength;
+    private final int procedureCount;
+    private final int globalNameCount;
+    private final int symbolCount;
+    // Int index in the body of each section
+    private final int procedures;
+    private final int signatureOffsets;
+    private final int signatures;
+    private final int globalNames;
+    private final int code;
+    private final int symbolOffsets;
+    // Byte index in the body of the symbol bytes
+    private final int symbolBytes;
+
+    private Bytecode bytecode;
+    private final Signature[] decoded;
+    private final String[] symbols;
+
+    private ProgramFile(ByteBuffer body) throws IOException {
+        this.body = body;
+        IntBuffer ints = body.asIntBuffer();
+        globals = ints.get(0);
+        frame = ints.get(1);
+        codeLength = ints.get(2);
+        poolLength = ints.get(3);
+        procedureCount = ints.get(4);
+        globalNameCount = ints.get(5);
+        symbolCount = ints.get(6);
+        int symbolLength = ints.get(7);
+        if (Math.min(Math.min(Math.min(globals, frame), Math.min(codeLength, poolLength)),
+                Math.min(Math.min(procedureCount, globalNameCount), Math.min(symbolCount, symbolLength))) < 0) {
+            throw new IOException("Compiled program has negative sizes");
+        }
+
+        procedures = COUNTS;
+        signatureOffsets = procedures + procedureCount * 3;
+        signatures = signatureOffsets + procedureCount + 1;
+        if ((long) signatures * 4 > body.limit()) {
+            throw new IOException("Compiled program is cut short");
+        }
+        globalNames = signatures + ints.get(signatureOffsets + procedureCount);
+        code = globalNames + globalNameCount;
+        symbolOffsets = code + codeLength * 2 + poolLength;
+        symbolBytes = (symbolOffsets + symbolCount + 1) * 4;
+        if ((long) symbolBytes + symbolLength != body.limit()) {
+            throw new IOException("Compiled program has the wrong length");
+        }
+        decoded = new Signature[procedureCount];
+        symbols = new String[symbolCount];
+    }
+
+    // Maps the file and checks its header and CRC
+    public static ProgramFile load(Path file) throws IOException {
+        ByteBuffer buffer = MappedLexer.map(file);
+        if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled program: " + file);
+        }
+        if (buffer.getLong(4) != VERSION) {
+            throw new IOException("Compiled for another version, compile it again: " + file);
+        }
+        int length = buffer.getInt(12);
+        if (length != buffer.limit() - HEADER || length < COUNTS * 4) {
+            throw new IOException("Compiled program has the wrong length: " + file);
+        }
+        ByteBuffer body = buffer.position(HEADER).slice();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(16)) {
+            throw new IOException("Compiled program is corrupt: " + file);
+        }
+        return new ProgramFile(body);
+    }
+
+    // What the interpreter runs, read once
+    public synchronized Bytecode getBytecode() {
+        if (bytecode == null) {
+            int[] procedureTable = ints(procedures, procedureCount * 3);
+            int[] codeArray = ints(code, codeLength);
+            int[] lines = ints(code + codeLength, codeLength);
+            int[] pool = ints(code + codeLength * 2, poolLength);
+            bytecode = new Bytecode(codeArray, lines, globals, pool, procedureTable, frame);
+        }
+        return bytecode;
+    }
+
+    public int getProcedureCount() {
+        return procedureCount;
+    }
+
+    // Signature of a procedure by its number in the Bytecode (the order it was declared in)
+    public synchronized Signature getSignature(int procedure) {
+        if (decoded[procedure] == null) {
+            int from = body.getInt((signatureOffsets + procedure) * 4);
+            int to = body.getInt((signatureOffsets + procedure + 1) * 4);
+            int params = body.getInt((procedures + procedure * 3 + 1) * 4);
+            String[] parts = new String[to - from - params];
+            String[] names = new String[params];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = symbol(body.getInt((signatures + from + i) * 4));
+            }
+            for (int i = 0; i < params; i++) {
+                names[i] = symbol(body.getInt((signatures + from + parts.length + i) * 4));
+            }
+            ParamKind[] kinds = new ParamKind[params];
+            Arrays.fill(kinds, ParamKind.VALUE);
+            decoded[procedure] = new Signature(parts, kinds, names);
+        }
+        return decoded[procedure];
+    }
+
+    // All the procedures in an index like the one their validation built
+    public SignatureIndex getProcedures() {
+        SignatureIndex index = new SignatureIndex(false, true);
+        for (int i = 0; i < procedureCount; i++) {
+            index.add(getSignature(i));
+        }
+        return index;
+    }
+
+    // Names of the globals, by slot
+    public synchronized String[] getGlobalNames() {
+        String[] names = new String[globalNameCount];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = symbol(body.getInt((globalNames + i) * 4));
+        }
+        return names;
+    }
+
+    private String symbol(int index) {
+        if (symbols[index] == null) {
+            int from = body.getInt((symbolOffsets + index) * 4);
+            int to = body.getInt((symbolOffsets + index + 1) * 4);
+            byte[] bytes = new byte[to - from];
+            body.get(symbolBytes + from, bytes);
+            symbols[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return symbols[index];
+    }
+
+    private int[] ints(int index, int count) {
+        int[] values = new int[count];
+        body.asIntBuffer().get(index, values);
+        return values;
+    }
+
+    public static void write(Path file, Ast.Program program, Bytecode bytecode) throws IOException {
+        ByteBuffer content = encode(program, bytecode);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    // The file for a program and the Bytecode compiled from it
+    public static ByteBuffer encode(Ast.Program program, Bytecode bytecode) {
+        Symbols symbols = new Symbols();
+        LinkedHashSet<String> globalNames = new LinkedHashSet<>();
+        IntList signatures = new IntList();
+        IntList signatureOffsets = new IntList();
+        for (Ast.Node item : program.getItems()) {
+            if (item instanceof Ast.VarDecl && !((Ast.VarDecl) item).isLocal()) {
+                for (Token name : ((Ast.VarDecl) item).getNames()) {
+                    globalNames.add(name.getValue());
+                }
+            } else if (item instanceof Ast.ProcDecl) {
+                Ast.ProcDecl procDecl = (Ast.ProcDecl) item;
+                signatureOffsets.add(signatures.size);
+                for (Token part : procDecl.getParts()) {
+                    signatures.add(symbols.add(part.getValue()));
+                }
+                for (Token param : procDecl.getParams()) {
+                    signatures.add(symbols.add(param.getValue()));
+                }
+            }
+        }
+        if (signatureOffsets.size != bytecode.getProcedureCount()) {
+            throw new IllegalArgumentException("Bytecode was not compiled from this program");
+        }
+        signatureOffsets.add(signatures.size);
+        int[] names = new int[globalNames.size()];
+        int n = 0;
+        for (String name : globalNames) {
+            names[n++] = symbols.add(name);
+        }
+
+        int[] procedures = bytecode.getProcedures();
+        int[] code = bytecode.getCode();
+        int[] pool = bytecode.getPool();
+        int[] lines = new int[code.length];
+        for (int pc = 0; pc < lines.length; pc++) {
+            lines[pc] = bytecode.getLine(pc);
+        }
+        int ints = COUNTS + procedures.length + signatureOffsets.size + signatures.size + names.length
+                + code.length * 2 + pool.length + symbols.count + 1;
+        int length = ints * 4 + symbols.bytes.size;
+
+        ByteBuffer content = ByteBuffer.allocate(HEADER + length);
+        content.putInt(MAGIC).putLong(VERSION).putInt(length).putInt(0);
+        IntBuffer body = content.position(HEADER).slice().asIntBuffer();
+        body.put(bytecode.getGlobalCount()).put(bytecode.getFrameSize()).put(code.length).put(pool.length)
+                .put(bytecode.getProcedureCount()).put(names.length).put(symbols.count).put(symbols.bytes.size);
+        body.put(procedures).put(signatureOffsets.values, 0, signatureOffsets.size)
+                .put(signatures.values, 0, signatures.size).put(names).put(code).put(lines).put(pool)
+                .put(symbols.offsets.values, 0, symbols.offsets.size).put(symbols.bytes.size);
+        content.position(HEADER + ints * 4);
+        content.put(symbols.bytes.values, 0, symbols.bytes.size);
+
+        CRC32 crc = new CRC32();
+        crc.update(content.array(), HEADER, length);
+        content.putInt(16, (int) crc.getValue());
+        return content.flip();
+    }
+
+    // Strings numbered in the order they are first added, and their UTF-8 bytes one after another
+    private static class Symbols {
+        private final HashMap<String, Integer> numbers = new HashMap<>();
+        private final IntList offsets = new IntList();
+        private final ByteList bytes = new ByteList();
+        private int count;
+
+        int add(String symbol) {
+            Integer number = numbers.get(symbol);
+            if (number == null) {
+                number = count++;
+                numbers.put(symbol, number);
+                offsets.add(bytes.size);
+                bytes.add(symbol.getBytes(StandardCharsets.UTF_8));
+            }
+            return number;
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static class ByteList {
+        private byte[] values = new byte[64];
+        private int size;
+
+        void add(byte[] added) {
+            if (size + added.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + added.length));
+            }
+            System.arraycopy(added, 0, values, size, added.length);
+            size += added.length;
+        }
+    }
+}
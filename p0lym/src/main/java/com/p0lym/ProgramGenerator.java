@@ -0,0 +1,384 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic robot programs for load tests: the same seed and settings always give the
+// same text. A program declares global variables and procedures, then runs a main block whose
+// statements are spread over if/while/for bodies, at most fanOut per block, down to the given
+// depth. Optionally one statement is replaced by a known invalid construct.
+//
+// The text is written as it is generated, without recursion, so a program can have millions
+// of tokens or thousands of nesting levels.
+public class ProgramGenerator {
+    // Constructs that make a program invalid, one per generated program
+    public enum Defect {
+        UNDECLARED_VARIABLE, // move: missing .
+        WRONG_CONSTANT, // turn: #north .
+        UNKNOWN_PROCEDURE, // undefined: 1 .
+        MISSING_ARGUMENT, // a user procedure called without its last argument
+        MISSING_ELSE, // if: ... then: [ ... ] without else
+        EMPTY_BLOCK, // while: ... do: [ ]
+        UNCLOSED_BLOCK // the main block is never closed
+    }
+
+    private static final int GLOBALS = 8;
+    private static final int LOCALS = 2;
+    private static final int MAX_PARAMS = 3;
+    // Deeper levels are written with this indentation, so deep programs do not grow quadratically
+    private static final int MAX_INDENT = 16;
+    // Nesting depth inside procedure bodies, which have fanOut statements per level
+    private static final int PROC_DEPTH = 2;
+
+    private static final String[] KEYWORDS = { "with", "and", "toward", "times" };
+    private static final String[] DIRECTIONS = { "#north", "#south", "#west", "#east" };
+    private static final String[] SIDES = { "#front", "#back", "#left", "#right" };
+    private static final String[] TURNS = { "#left", "#right", "#around" };
+    private static final String[] OBJECTS = { "#balloons", "#chips" };
+
+    private final long seed;
+    private int statements = 100;
+    private int depth = 4;
+    private int procedures = 4;
+    private int fanOut = 4;
+    private Defect defect;
+
+    // State of one write()
+    private Random random;
+    private Appendable out;
+    private String[] scope;
+    private final List<String[]> procs = new ArrayList<>();
+    private final List<Integer> arities = new ArrayList<>();
+    private int callable;
+    private int maxDepth;
+    private boolean main;
+    private long leaf;
+    private long defectAt;
+
+    public ProgramGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    // Simple statements (calls and assignments) in the main block
+    public void setStatements(int statements) {
+        this.statements = Math.max(1, statements);
+    }
+
+    // Deepest nesting of if/while/for in the main block (0 for a flat block)
+    public void setDepth(int depth) {
+        this.depth = Math.max(0, depth);
+    }
+
+    public void setProcedures(int procedures) {
+        this.procedures = Math.max(0, procedures);
+    }
+
+    // Statements per block, while the nesting depth allows it
+    public void setFanOut(int fanOut) {
+        this.fanOut = Math.max(1, fanOut);
+    }
+
+    // Construct to inject (null for a valid program)
+    public void setDefect(Defect defect) {
+        this.defect = defect;
+    }
+
+    public Defect getDefect() {
+        return defect;
+    }
+
+    public String generate() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(sb);
+        } catch (IOException e) {
+            // A StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    public void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    public void write(Appendable out) throws IOException {
+        this.random = new Random(seed);
+        this.out = out;
+        this.procs.clear();
+        this.arities.clear();
+        this.main = false;
+        this.leaf = 0;
+        this.defectAt = defect == null ? -1 : random.nextInt(statements);
+
+        String[] globals = new String[GLOBALS];
+        out.append('|');
+        for (int i = 0; i < GLOBALS; i++) {
+            globals[i] = "v" + i;
+            out.append(i == 0 ? "" : " ").append(globals[i]);
+        }
+        out.append("|\n\n");
+
+        // A missing argument needs a user procedure to call
+        int count = defect == Defect.MISSING_ARGUMENT ? Math.max(1, procedures) : procedures;
+        for (int p = 0; p < count; p++) {
+            procedure(p, globals);
+        }
+
+        scope = globals;
+        callable = procs.size();
+        maxDepth = depth;
+        main = true;
+        out.append("[\n");
+        block(0, statements);
+        out.append(defect == Defect.UNCLOSED_BLOCK ? "\n" : "]\n");
+    }
+
+    private void procedure(int index, String[] globals) throws IOException {
+        // Some procedures take no parameters: "proc taskN [" called as "taskN ."
+        int arity = random.nextInt(MAX_PARAMS + 1);
+        String[] parts = new String[Math.max(arity, 1)];
+        String[] params = new String[arity];
+        parts[0] = "task" + index;
+        for (int i = 1; i < arity; i++) {
+            parts[i] = KEYWORDS[i - 1];
+        }
+
+        out.append("proc ").append(parts[0]);
+        for (int i = 0; i < arity; i++) {
+            params[i] = "arg" + i;
+            out.append(i == 0 ? "" : " " + parts[i]).append(": ").append(params[i]);
+        }
+        out.append(' ');
+
+        scope = new String[globals.length + arity + LOCALS];
+        System.arraycopy(globals, 0, scope, 0, globals.length);
+        System.arraycopy(params, 0, scope, globals.length, arity);
+        // Only the procedures declared before this one, so calls never recurse
+        callable = procs.size();
+        maxDepth = Math.min(depth, PROC_DEPTH);
+
+        out.append("[\n    |");
+        for (int i = 0; i < LOCALS; i++) {
+            scope[globals.length + arity + i] = "tmp" + i;
+            out.append(i == 0 ? "" : " ").append("tmp").append(String.valueOf(i));
+        }
+        out.append("|\n");
+        block(0, fanOut * PROC_DEPTH);
+        out.append("]\n\n");
+        procs.add(parts);
+        arities.add(arity);
+    }
+
+    // Writes the statements of an already opened block, at the given level. The stack holds
+    // text still to write (String) and blocks and statements still to generate (Task).
+    private void block(int level, int leaves) throws IOException {
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        spread(level, leaves, stack);
+        while (!stack.isEmpty()) {
+            Object item = stack.pop();
+            if (item instanceof String) {
+                out.append((String) item);
+                continue;
+            }
+            Task task = (Task) item;
+            if (task.open) {
+                out.append("[\n");
+                stack.push(indent(task.level) + "]\n");
+                spread(task.level, task.leaves, stack);
+            } else if (task.leaves == 1) {
+                out.append(indent(task.level + 1));
+                if (main && leaf++ == defectAt) {
+                    defect();
+                } else {
+                    statement();
+                }
+                out.append('\n');
+            } else {
+                compound(task, stack);
+            }
+        }
+    }
+
+    // Spreads the statements of a block evenly over at most fanOut slots
+    private void spread(int level, int leaves, ArrayDeque<Object> stack) {
+        int slots = level < maxDepth ? Math.min(fanOut, leaves) : leaves;
+        for (int slot = slots - 1; slot >= 0; slot--) {
+            int share = leaves / slots + (slot < leaves % slots ? 1 : 0);
+            stack.push(new Task(level, share, false));
+        }
+    }
+
+    private void compound(Task task, ArrayDeque<Object> stack) throws IOException {
+        out.append(indent(task.level + 1));
+        switch (random.nextInt(3)) {
+            case 0:
+                out.append("if: ");
+                condition();
+                out.append(" then: ");
+                // The else block gets a single statement, so a chain of ifs can reach any depth
+                stack.push(new Task(task.level + 1, 1, true));
+                stack.push(indent(task.level + 1) + "else: ");
+                stack.push(new Task(task.level + 1, task.leaves - 1, true));
+                break;
+            case 1:
+                out.append("while: ");
+                condition();
+                out.append(" do: ");
+                stack.push(new Task(task.level + 1, task.leaves, true));
+                break;
+            default:
+                out.append("for: ").append(number()).append(" repeat: ");
+                stack.push(new Task(task.level + 1, task.leaves, true));
+                break;
+        }
+    }
+
+    private void statement() throws IOException {
+        int kind = random.nextInt(10);
+        if (kind < 3 && callable > 0) {
+            int procedure = random.nextInt(callable);
+            String[] parts = procs.get(procedure);
+            if (arities.get(procedure) == 0) {
+                out.append(parts[0]);
+            }
+            for (int i = 0; i < arities.get(procedure); i++) {
+                out.append(i == 0 ? "" : " ").append(parts[i]).append(": ").append(number());
+            }
+            out.append(" .");
+        } else if (kind < 5) {
+            out.append(pick(scope)).append(" := ").append(number()).append(" .");
+        } else {
+            builtin();
+            out.append(" .");
+        }
+    }
+
+    private void builtin() throws IOException {
+        switch (random.nextInt(11)) {
+            case 0:
+                out.append("move: ").append(number());
+                break;
+            case 1:
+                out.append("turn: ").append(pick(TURNS));
+                break;
+            case 2:
+                out.append("face: ").append(pick(DIRECTIONS));
+                break;
+            case 3:
+                out.append("put: ").append(number()).append(" ofType: ").append(pick(OBJECTS));
+                break;
+            case 4:
+                out.append("pick: ").append(number()).append(" ofType: ").append(pick(OBJECTS));
+                break;
+            case 5:
+                out.append("move: ").append(number()).append(" toThe: ").append(pick(SIDES));
+                break;
+            case 6:
+                out.append("move: ").append(number()).append(" inDir: ").append(pick(DIRECTIONS));
+                break;
+            case 7:
+                out.append("jump: ").append(number()).append(" toThe: ").append(pick(SIDES));
+                break;
+            case 8:
+                out.append("jump: ").append(number()).append(" inDir: ").append(pick(DIRECTIONS));
+                break;
+            case 9:
+                out.append("goto: ").append(number()).append(" with: ").append(number());
+                break;
+            default:
+                out.append("nop");
+                break;
+        }
+    }
+
+    private void condition() throws IOException {
+        switch (random.nextInt(4)) {
+            case 0:
+                out.append("facing: ").append(pick(DIRECTIONS));
+                break;
+            case 1:
+                out.append(random.nextBoolean() ? "canPut: " : "canPick: ").append(number()).append(" ofType: ").append(pick(OBJECTS));
+                break;
+            case 2:
+                out.append(random.nextBoolean() ? "canMove: " : "canJump: ").append(number()).append(" inDir: ").append(pick(DIRECTIONS));
+                break;
+            default:
+                out.append(random.nextBoolean() ? "canMove: " : "canJump: ").append(number()).append(" toThe: ").append(pick(SIDES));
+                break;
+        }
+    }
+
+    private void defect() throws IOException {
+        switch (defect) {
+            case UNDECLARED_VARIABLE:
+                out.append("move: missing .");
+                break;
+            case WRONG_CONSTANT:
+                out.append("turn: #north .");
+                break;
+            case UNKNOWN_PROCEDURE:
+                out.append("undefined: ").append(number()).append(" .");
+                break;
+            case MISSING_ARGUMENT:
+                String[] parts = procs.get(random.nextInt(procs.size()));
+                for (int i = 0; i < parts.length; i++) {
+                    out.append(i == 0 ? "" : " ").append(parts[i]).append(":");
+                    if (i < parts.length - 1) {
+                        out.append(' ').append(number());
+                    }
+                }
+                out.append(" .");
+                break;
+            case MISSING_ELSE:
+                out.append("if: ");
+                condition();
+                out.append(" then: [ nop . ]");
+                break;
+            case EMPTY_BLOCK:
+                out.append("while: ");
+                condition();
+                out.append(" do: [ ]");
+                break;
+            default:
+                // UNCLOSED_BLOCK drops the last bracket instead
+                statement();
+                break;
+        }
+    }
+
+    // A number or a variable in scope (every variable holds a number)
+    private String number() {
+        return random.nextInt(4) == 0 ? pick(scope) : String.valueOf(1 + random.nextInt(9));
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String indent(int level) {
+        return "    ".repeat(Math.min(level, MAX_INDENT));
+    }
+
+    // A block still to open (open), or a statement with its number of simple statements
+    private static class Task {
+        private final int level;
+        private final int leaves;
+        private final boolean open;
+
+        Task(int level, int leaves, boolean open) {
+            this.level = level;
+            this.leaves = leaves;
+            this.open = open;
+        }
+    }
+}
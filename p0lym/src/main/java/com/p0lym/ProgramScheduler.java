@@ -0,0 +1,247 @@
+package com.p0lym;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs many compiled programs on a few carrier threads. A carrier takes the program at the
+// head of the queue, runs it for one slice of instructions and puts it back at the tail
+// unless it ended, so a program that never ends only ever holds a carrier for one slice.
+// Between slices a program is stopped when it used up its instructions or its time, or
+// when it was cancelled.
+public class ProgramScheduler implements AutoCloseable {
+    public enum Outcome {
+        HALTED, // the program ended
+        BLOCKED, // the robot could not do an action
+        BAD_VALUE, // a constant where a count was expected
+        STACK_OVERFLOW, // calls nested too deep
+        STEP_LIMIT, // ran all the instructions it was given
+        TIME_LIMIT, // ran for longer than it was given
+        CANCELLED,
+        FAILED // the interpreter or the world threw, see Job.getFailure()
+    }
+
+    private static final Outcome[] BY_STATUS = {
+            null, Outcome.HALTED, Outcome.BLOCKED, Outcome.BAD_VALUE, Outcome.STACK_OVERFLOW
+    };
+    // Put in the queue once per carrier to stop it
+    private static final Job STOP = new Job(null, 0, 0);
+
+    private final long slice;
+    private final Thread[] carriers;
+    private final LinkedBlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    // Submitted programs that did not end yet
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private volatile boolean closed;
+
+    // A program is put back in the queue after slice instructions
+    public ProgramScheduler(int carriers, long slice) {
+        this.slice = slice;
+        this.carriers = new Thread[carriers];
+        for (int i = 0; i < carriers; i++) {
+            this.carriers[i] = new Thread(this::carry, "program-carrier-" + i);
+            this.carriers[i].setDaemon(true);
+            this.carriers[i].start();
+        }
+    }
+
+    // Runs bytecode on world for at most maxSteps instructions and maxTime (counted from its
+    // first slice, so time spent waiting in the queue is not charged)
+    public Job submit(Bytecode bytecode, World world, long maxSteps, long maxTime, TimeUnit unit) {
+        // Counted before closed is read, so close() either sees it or it sees close()
+        pending.incrementAndGet();
+        if (closed) {
+            ended();
+            throw new IllegalStateException("Scheduler is closed");
+        }
+        Job job = new Job(new Interpreter(bytecode, world), maxSteps, unit.toNanos(maxTime));
+        queue.add(job);
+        return job;
+    }
+
+    private void carry() {
+        try {
+            while (true) {
+                Job job = queue.take();
+                if (job == STOP) {
+                    return;
+                }
+                boolean ended;
+                try {
+                    ended = job.slice(slice);
+                } catch (RuntimeException e) {
+                    // Only this job is lost: the carrier goes on and close() still sees it end
+                    ended = job.fail(e);
+                }
+                if (ended) {
+                    steps.addAndGet(job.interpreter.getSteps());
+                    finished.incrementAndGet();
+                    ended();
+                } else {
+                    queue.add(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Instructions run by the programs that already ended
+    public long getSteps() {
+        return steps.get();
+    }
+
+    public long getFinished() {
+        return finished.get();
+    }
+
+    // Programs waiting for a carrier (the ones on a carrier right now are not counted)
+    public int getQueued() {
+        return queue.size();
+    }
+
+    // A program ended (or was refused): the last one to end after close() stops the carriers
+    private void ended() {
+        if (pending.decrementAndGet() == 0 && closed) {
+            stop();
+        }
+    }
+
+    // Queued behind every program, so no program is put back after them
+    private void stop() {
+        if (stopping.compareAndSet(false, true)) {
+            for (int i = 0; i < carriers.length; i++) {
+                queue.add(STOP);
+            }
+        }
+    }
+
+    // Waits until every program submitted has ended, then stops the carriers. An interrupt
+    // does not cut the wait short; it is kept for the caller to see.
+    @Override
+    public void close() {
+        closed = true;
+        if (pending.get() == 0) {
+            stop();
+        }
+        boolean interrupted = false;
+        for (Thread carrier : carriers) {
+            while (carrier.isAlive()) {
+                try {
+                    carrier.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A submitted program. Only the carrier running it touches its interpreter; the rest is
+    // safe to read from any thread.
+    public static class Job {
+        private final Interpreter interpreter;
+        private final long maxSteps;
+        private final long maxNanos;
+        private long deadline;
+        private boolean started;
+        private volatile boolean cancelled;
+        private volatile Outcome outcome;
+        private volatile RuntimeException failure;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Job(Interpreter interpreter, long maxSteps, long maxNanos) {
+            this.interpreter = interpreter;
+            this.maxSteps = maxSteps;
+            this.maxNanos = maxNanos;
+        }
+
+        // Runs one slice; true once the job has ended
+        boolean slice(long slice) {
+            long now = System.nanoTime();
+            if (!started) {
+                started = true;
+                deadline = now + maxNanos;
+            }
+            if (cancelled) {
+                return end(Outcome.CANCELLED);
+            }
+            if (now - deadline >= 0) {
+                return end(Outcome.TIME_LIMIT);
+            }
+            long left = maxSteps - interpreter.getSteps();
+            if (left <= 0) {
+                return end(Outcome.STEP_LIMIT);
+            }
+            int status = interpreter.run(Math.min(slice, left));
+            if (status != Interpreter.RUNNING) {
+                return end(BY_STATUS[status]);
+            }
+            if (interpreter.getSteps() >= maxSteps) {
+                return end(Outcome.STEP_LIMIT);
+            }
+            return false;
+        }
+
+        private boolean fail(RuntimeException failure) {
+            this.failure = failure;
+            return end(Outcome.FAILED);
+        }
+
+        private boolean end(Outcome outcome) {
+            this.outcome = outcome;
+            done.countDown();
+            return true;
+        }
+
+        // Stops the job before its next slice
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isDone() {
+            return outcome != null;
+        }
+
+        // How the job ended, or null while it runs
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        // What the job threw when it ended as FAILED, or null
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        public Outcome await() throws InterruptedException {
+            done.await();
+            return outcome;
+        }
+
+        // How the job ended, or null if it did not end in time
+        public Outcome await(long timeout, TimeUnit unit) throws InterruptedException {
+            done.await(timeout, unit);
+            return outcome;
+        }
+
+        // Read once the job is done
+        public long getSteps() {
+            return interpreter.getSteps();
+        }
+
+        public int getLine() {
+            return interpreter.getLine();
+        }
+
+        public World getWorld() {
+            return interpreter.getWorld();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.p0lym;
+
+// Random boards of one size, each fully determined by the seed and the run number, so a
+// simulation gives the same results with any number of threads. Every board has walls on
+// about wallPercent of its cells, chips and balloons (up to maxItems) on about itemPercent,
+// and the robot on a free cell facing anywhere, carrying up to maxItems of each.
+public class RandomBoards implements BoardSource {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private int wallPercent = 15;
+    private int itemPercent = 10;
+    private int maxItems = 5;
+
+    public RandomBoards(int width, int height, long seed) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+    }
+
+    public void setWallPercent(int wallPercent) {
+        this.wallPercent = wallPercent;
+    }
+
+    public void setItemPercent(int itemPercent) {
+        this.itemPercent = itemPercent;
+    }
+
+    public void setMaxItems(int maxItems) {
+        this.maxItems = Math.max(1, maxItems);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public GridWorld board(long run, GridWorld reuse) {
+        GridWorld board = reuse != null && reuse.getWidth() == width && reuse.getHeight() == height
+                ? reuse : new GridWorld(width, height);
+        board.clear();
+
+        // SplitMix64 on a state of its own per run: no shared or allocated generator
+        long state = mix(seed ^ (run * GOLDEN));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long random = mix(state += GOLDEN);
+                int roll = (int) ((random >>> 33) % 100);
+                if (roll < wallPercent) {
+                    board.setObstacle(x, y, true);
+                } else if (roll < wallPercent + itemPercent) {
+                    board.setCount((int) (random & 1), x, y, 1 + (int) ((random >>> 8 & 0xFFFF) % maxItems));
+                }
+            }
+        }
+
+        long random = mix(state += GOLDEN);
+        int cells = width * height;
+        int start = (int) ((random >>> 33) % cells);
+        // The first free cell from a random one; a board full of walls loses one
+        for (int i = 0; i < cells && board.isObstacle(start % width, start / width); i++) {
+            start = (start + 1) % cells;
+        }
+        board.setObstacle(start % width, start / width, false);
+        board.place(start % width, start / width);
+        board.setFacing((int) (random & 3));
+        random = mix(state += GOLDEN);
+        board.setCarried(World.CHIPS, (int) ((random >>> 8 & 0xFFFF) % (maxItems + 1)));
+        board.setCarried(World.BALLOONS, (int) ((random >>> 40 & 0xFFFF) % (maxItems + 1)));
+        return board;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,320 @@
+package com.p0lym;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Validation results keyed by a hash of the program text and the grammar version, so an
+// unchanged file is answered without lexing or parsing it. Results are kept in memory (least
+// recently used ones are dropped past maxBytes) and appended to a file shared by every worker:
+//
+//   header: magic, version, generation
+//   record: length, key, valid, tokens, error length, error (UTF-8), CRC32
+//
+// Writers append under an exclusive file lock and readers pick up the records appended by
+// other processes under a shared one. When the file grows past twice maxBytes it is rewritten
+// with the entries in memory and its generation goes up, so the other processes reread it.
+public class ResultCache implements Closeable {
+    // Bump when a parser change can turn a verdict around
+    public static final int GRAMMAR_VERSION = 1;
+    public static final long VERSION = (long) GRAMMAR_VERSION << 32 | (BuiltinCatalog.fingerprint() & 0xFFFFFFFFL);
+
+    private static final int MAGIC = 0x524F4243; // "ROBC"
+    private static final int HEADER = 4 + 8 + 4;
+    private static final int MAX_ERROR = 4096;
+    // Record length (after its length field) without and with the longest error
+    private static final int MIN_RECORD = 8 + 1 + 4 + 2 + 4;
+    private static final int MAX_RECORD = MIN_RECORD + MAX_ERROR * 3;
+    // Estimated memory per entry besides its error text
+    private static final int ENTRY_OVERHEAD = 64;
+
+    public static class Result {
+        private final boolean valid;
+        private final String error;
+        private final int tokens;
+
+        public Result(boolean valid, String error, int tokens) {
+            this.valid = valid;
+            this.error = error;
+            this.tokens = tokens;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+
+        private int size() {
+            return ENTRY_OVERHEAD + (error == null ? 0 : error.length() * 2);
+        }
+    }
+
+    private final FileChannel channel;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Result> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+    private int generation;
+    private long readOffset;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResultCache(Path file, long maxBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.maxBytes = maxBytes;
+        FileLock lock = channel.lock();
+        try {
+            if (!readHeader()) {
+                // New file, or written for another grammar: start over
+                channel.truncate(0);
+                writeHeader(0);
+            }
+            readOffset = HEADER;
+            readRecords(true);
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Hash of the program text (positions to limit) mixed with the grammar version
+    public static long key(ByteBuffer content) {
+        final long prime1 = 0x9E3779B185EBCA87L;
+        final long prime2 = 0xC2B2AE3D27D4EB4FL;
+        int limit = content.limit();
+        long hash = VERSION * prime2 + (limit - content.position());
+        int i = content.position();
+        for (; i + 8 <= limit; i += 8) {
+            hash = Long.rotateLeft(hash ^ (content.getLong(i) * prime2), 31) * prime1;
+        }
+        for (; i < limit; i++) {
+            hash = Long.rotateLeft(hash ^ ((content.get(i) & 0xFF) * prime1), 11) * prime2;
+        }
+        hash ^= hash >>> 33;
+        hash *= prime2;
+        hash ^= hash >>> 29;
+        return hash;
+    }
+
+    public Result get(long key) throws IOException {
+        synchronized (this) {
+            Result result = entries.get(key);
+            if (result == null) {
+                // Another process may have validated it in the meantime
+                refresh();
+                result = entries.get(key);
+            }
+            (result != null ? hits : misses).incrementAndGet();
+            return result;
+        }
+    }
+
+    public void put(long key, Result result) throws IOException {
+        ByteBuffer record = encode(key, result);
+        synchronized (this) {
+            add(key, result);
+            FileLock lock = channel.lock();
+            try {
+                // Catch up first, so readOffset stays at the end of the file
+                readRecords(true);
+                readOffset += channel.write(record, readOffset);
+                if (readOffset > 2 * maxBytes) {
+                    compact();
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void add(long key, Result result) {
+        Result previous = entries.put(key, result);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += result.size();
+
+        Iterator<Map.Entry<Long, Result>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    private void refresh() throws IOException {
+        if (channel.size() == readOffset) {
+            return;
+        }
+        FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+        try {
+            readRecords(false);
+        } finally {
+            lock.release();
+        }
+    }
+
+    private boolean readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        if (channel.size() < HEADER || channel.read(header, 0) < HEADER) {
+            return false;
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getLong() != VERSION) {
+            return false;
+        }
+        generation = header.getInt();
+        return true;
+    }
+
+    private void writeHeader(int generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putLong(VERSION).putInt(generation).flip();
+        channel.write(header, 0);
+        this.generation = generation;
+    }
+
+    // Reads the records appended since the last read (all of them if the file was compacted).
+    // With repair, only while holding the exclusive lock, a record cut short by a crash and
+    // anything after it is dropped from the file.
+    private void readRecords(boolean repair) throws IOException {
+        int seen = generation;
+        if (!readHeader()) {
+            return;
+        }
+        if (generation != seen) {
+            readOffset = HEADER;
+        }
+
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(4 * MAX_RECORD);
+        long offset = readOffset;
+        boolean broken = false;
+        while (!broken && offset < size) {
+            buffer.clear();
+            channel.read(buffer, offset);
+            buffer.flip();
+            while (buffer.remaining() >= 4) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                if (length < MIN_RECORD || length > MAX_RECORD) {
+                    broken = true;
+                } else if (buffer.remaining() < length) {
+                    // The rest of the record is in the next read
+                    buffer.position(start);
+                    break;
+                } else if (!decode(buffer, length)) {
+                    broken = true;
+                }
+                if (broken) {
+                    buffer.position(start);
+                    break;
+                }
+            }
+            if (buffer.position() == 0) {
+                // Not one whole record left: the last append never finished
+                broken = true;
+            }
+            offset += buffer.position();
+        }
+
+        if (broken && repair) {
+            channel.truncate(offset);
+        }
+        readOffset = offset;
+    }
+
+    private boolean decode(ByteBuffer buffer, int length) {
+        int start = buffer.position();
+        long key = buffer.getLong();
+        boolean valid = buffer.get() != 0;
+        int tokens = buffer.getInt();
+        int errorLength = buffer.getShort();
+        if (length != MIN_RECORD + Math.max(errorLength, 0)) {
+            return false;
+        }
+        String error = null;
+        if (errorLength >= 0) {
+            error = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), errorLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + errorLength);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, buffer.position() - start);
+        if ((int) crc.getValue() != buffer.getInt()) {
+            return false;
+        }
+        add(key, new Result(valid, error, tokens));
+        return true;
+    }
+
+    private static ByteBuffer encode(long key, Result result) {
+        byte[] error = null;
+        if (result.error != null) {
+            String text = result.error.length() > MAX_ERROR ? result.error.substring(0, MAX_ERROR) : result.error;
+            error = text.getBytes(StandardCharsets.UTF_8);
+        }
+        int length = MIN_RECORD + (error == null ? 0 : error.length);
+        ByteBuffer record = ByteBuffer.allocate(4 + length);
+        record.putInt(length).putLong(key).put((byte) (result.valid ? 1 : 0)).putInt(result.tokens);
+        if (error == null) {
+            record.putShort((short) -1);
+        } else {
+            record.putShort((short) error.length).put(error);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.position() - 4);
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    // Called with the exclusive lock held: keeps only the entries in memory
+    private void compact() throws IOException {
+        readRecords(false);
+        channel.truncate(HEADER);
+        long offset = HEADER;
+        for (Map.Entry<Long, Result> entry : entries.entrySet()) {
+            ByteBuffer record = encode(entry.getKey(), entry.getValue());
+            offset += record.remaining();
+            channel.write(record, offset - record.remaining());
+        }
+        writeHeader(generation + 1);
+        readOffset = offset;
+    }
+}
@@ -0,0 +1,94 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// Immutable and thread-safe entry point: it only holds the shared built-in indexes and its
+// configuration. Every call gets its own lexer and ValidationContext, so one validator can
+// serve any number of threads at once.
+public final class RobotValidator {
+    private final SignatureIndex builtins;
+    private final SignatureIndex conditions;
+    private final PrintStream errors;
+    private final boolean recover;
+
+    // Errors are only recorded in the returned context
+    public RobotValidator() {
+        this(null);
+    }
+
+    // Errors are also printed to errors once a program is validated (null to keep quiet)
+    public RobotValidator(PrintStream errors) {
+        this(errors, false);
+    }
+
+    // With recover every error of a program is reported, not only the first one
+    public RobotValidator(PrintStream errors, boolean recover) {
+        this(BuiltinCatalog.PROCEDURES, BuiltinCatalog.CONDITIONS, errors, recover);
+    }
+
+    // The indexes are shared by every call, so they must already be frozen
+    public RobotValidator(SignatureIndex builtins, SignatureIndex conditions, PrintStream errors, boolean recover) {
+        if (!builtins.isFrozen() || !conditions.isFrozen()) {
+            throw new IllegalArgumentException("Built-in indexes must be frozen before they are shared");
+        }
+        this.builtins = builtins;
+        this.conditions = conditions;
+        this.errors = errors;
+        this.recover = recover;
+    }
+
+    SignatureIndex getBuiltins() {
+        return builtins;
+    }
+
+    SignatureIndex getConditions() {
+        return conditions;
+    }
+
+    boolean isRecovering() {
+        return recover;
+    }
+
+    public ValidationContext newContext() {
+        return new ValidationContext(builtins, conditions, errors, recover);
+    }
+
+    public ValidationContext validate(Path file) throws IOException {
+        return validate(MappedLexer.map(file));
+    }
+
+    public ValidationContext validate(String program) {
+        return validate(ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // The buffer is only read with absolute gets, so it can be validated from several threads
+    public ValidationContext validate(ByteBuffer source) {
+        return validate(new MappedLexer(source));
+    }
+
+    public ValidationContext validate(TokenSource source) {
+        ValidationContext context = newContext();
+        return parse(new AstParser(source, context), context);
+    }
+
+    // Reads the tokens by index, without making a Token for each
+    public ValidationContext validate(TokenStream tokens) {
+        ValidationContext context = newContext();
+        return parse(new AstParser(tokens, context), context);
+    }
+
+    private ValidationContext parse(AstParser parser, ValidationContext context) {
+        try {
+            parser.parse();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        context.printDiagnostics();
+        return context;
+    }
+}
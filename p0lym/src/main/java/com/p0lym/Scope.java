@@ -0,0 +1,189 @@
+package com.p0lym;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.p0lym.RobotLexerParser.Token;
+
+// Variables of one validation resolved to integer slots. Globals (|x y z| at the top level)
+// and the parameters and locals of the procedure being parsed get a slot when they are
+// declared. An identifier is looked up once to find its slot; every check after that is an
+// array access. A slot is the index of a global, or LOCAL plus the index of a parameter or
+// local of the current procedure (those shadow globals with the same name).
+public class Scope implements SignatureIndex.Variables {
+    public static final int UNDEFINED = -1;
+    public static final int LOCAL = 1 << 30;
+
+    // Every name seen gets a symbol, which indexes the arrays below
+    private final HashMap<String, Integer> symbols = new HashMap<>();
+    private int[] globalSlots = new int[16];
+    private int[] localSlots = new int[16];
+    // A local slot only counts while its stamp is the current procedure's
+    private int[] localStamps = new int[16];
+    private int procedure;
+    private boolean inProcedure;
+
+    private final Variables globals = new Variables();
+    private final Variables locals = new Variables();
+    // Bumped on every assignment, so memoized types are only used while still right
+    private int version;
+
+    public int symbol(String name) {
+        Integer symbol = symbols.get(name);
+        if (symbol != null) {
+            return symbol;
+        }
+        int added = symbols.size();
+        if (added == globalSlots.length) {
+            globalSlots = Arrays.copyOf(globalSlots, added * 2);
+            localSlots = Arrays.copyOf(localSlots, added * 2);
+            localStamps = Arrays.copyOf(localStamps, added * 2);
+        }
+        globalSlots[added] = UNDEFINED;
+        symbols.put(name, added);
+        return added;
+    }
+
+    // Declaring a global twice keeps its slot
+    public int declareGlobal(String name) {
+        int symbol = symbol(name);
+        if (globalSlots[symbol] == UNDEFINED) {
+            globalSlots[symbol] = globals.add(name);
+        }
+        return globalSlots[symbol];
+    }
+
+    // Parameters and locals declared until exitProcedure()
+    public void enterProcedure() {
+        procedure++;
+        inProcedure = true;
+        locals.clear();
+    }
+
+    public int declareLocal(String name) {
+        int symbol = symbol(name);
+        if (localStamps[symbol] != procedure) {
+            localStamps[symbol] = procedure;
+            localSlots[symbol] = locals.add(name);
+        }
+        return LOCAL | localSlots[symbol];
+    }
+
+    public void exitProcedure() {
+        procedure++;
+        inProcedure = false;
+        locals.clear();
+        version++;
+    }
+
+    public int resolve(String name) {
+        Integer symbol = symbols.get(name);
+        return symbol == null ? UNDEFINED : resolve(symbol);
+    }
+
+    public int resolve(int symbol) {
+        if (inProcedure && localStamps[symbol] == procedure) {
+            return LOCAL | localSlots[symbol];
+        }
+        return globalSlots[symbol];
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return resolve(name) != UNDEFINED;
+    }
+
+    @Override
+    public int slot(String name) {
+        return resolve(name);
+    }
+
+    public static boolean isLocal(int slot) {
+        return (slot & LOCAL) != 0;
+    }
+
+    public static int index(int slot) {
+        return slot & ~LOCAL;
+    }
+
+    public int getGlobalCount() {
+        return globals.size;
+    }
+
+    // Parameters and locals of the current procedure
+    public int getLocalCount() {
+        return locals.size;
+    }
+
+    public String getName(int slot) {
+        return variables(slot).names[index(slot)];
+    }
+
+    // Records "slot := value"; valueSlot is the slot of value when it is a variable
+    public void assign(int slot, Token value, int valueSlot) {
+        Variables variables = variables(slot);
+        variables.values[index(slot)] = value;
+        variables.aliases[index(slot)] = valueSlot;
+        version++;
+    }
+
+    // Value a variable ends up with, following the variables it was assigned from. Null if it
+    // was never assigned a value or the chain loops (x := y . y := x .).
+    public Token variableType(int slot) {
+        Variables variables = variables(slot);
+        int index = index(slot);
+        if (variables.typeVersions[index] == version) {
+            return variables.types[index];
+        }
+
+        int current = slot;
+        int limit = globals.size + locals.size;
+        Token type = null;
+        for (int steps = 0; current != UNDEFINED && steps <= limit; steps++) {
+            Variables owner = variables(current);
+            int alias = owner.aliases[index(current)];
+            if (alias == UNDEFINED) {
+                type = owner.values[index(current)];
+                break;
+            }
+            // A chain longer than the number of variables has gone round a cycle
+            current = alias;
+        }
+        variables.types[index] = type;
+        variables.typeVersions[index] = version;
+        return type;
+    }
+
+    private Variables variables(int slot) {
+        return isLocal(slot) ? locals : globals;
+    }
+
+    // Names, last assigned values and memoized types by slot index
+    private static class Variables {
+        private int size;
+        private String[] names = new String[8];
+        private Token[] values = new Token[8];
+        private int[] aliases = new int[8];
+        private Token[] types = new Token[8];
+        private int[] typeVersions = new int[8];
+
+        int add(String name) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                aliases = Arrays.copyOf(aliases, size * 2);
+                types = Arrays.copyOf(types, size * 2);
+                typeVersions = Arrays.copyOf(typeVersions, size * 2);
+            }
+            names[size] = name;
+            values[size] = null;
+            aliases[size] = UNDEFINED;
+            typeVersions[size] = -1;
+            return size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.p0lym;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Procedure and condition signatures indexed by (first keyword, number of keywords). A call
+// is split once into keywords and arguments and only checked against the signatures that
+// share its first keyword and keyword count.
+public class SignatureIndex {
+    public static enum ParamKind {
+        NUMBER, // a number or a defined variable
+        CONSTANT, // one of the values listed for the signature
+        VALUE // anything, but identifiers must be defined variables
+    }
+
+    public interface Variables {
+        boolean exists(String name);
+
+        // Slot of a defined variable (see Scope), or Scope.UNDEFINED. Lookups that only know
+        // names answer 0 for any defined variable.
+        default int slot(String name) {
+            return exists(name) ? 0 : Scope.UNDEFINED;
+        }
+    }
+
+    public static class Signature {
+        private final String[] parts;
+        private final ParamKind[] params;
+        private final String[] names;
+        private final HashSet<String> values;
+        // Built-in ids (see SymbolTable) of the keywords and listed values, worked out on first
+        // use: the built-in signatures are made while the catalog the ids come from is built
+        private volatile Symbols symbols;
+
+        public Signature(String[] parts, ParamKind[] params, String[] names) {
+            this.parts = parts;
+            this.params = params;
+            this.names = names;
+            this.values = new HashSet<>(Arrays.asList(names));
+        }
+
+        // User procedure: every parameter accepts any value
+        public static Signature procedure(List<Token> procName, List<Token> procVariables) {
+            String[] parts = new String[procName.size()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = procName.get(i).getValue();
+            }
+            String[] names = new String[procVariables.size()];
+            ParamKind[] params = new ParamKind[names.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = procVariables.get(i).getValue();
+                params[i] = ParamKind.VALUE;
+            }
+            return new Signature(parts, params, names);
+        }
+
+        // Built-in from its keywords ("move inDir") and its listed values. The i-th keyword
+        // takes a constant if the i-th value is one (#north), otherwise a number.
+        public static Signature builtin(String keywords, String... values) {
+            String[] parts = keywords.split(" ");
+            ParamKind[] params = new ParamKind[Math.min(parts.length, values.length)];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = values[i].startsWith("#") ? ParamKind.CONSTANT : ParamKind.NUMBER;
+            }
+            return new Signature(parts, params, values);
+        }
+
+        public String getName() {
+            return parts[0];
+        }
+
+        public String[] getParts() {
+            return parts.clone();
+        }
+
+        public ParamKind[] getParams() {
+            return params.clone();
+        }
+
+        public String[] getNames() {
+            return names.clone();
+        }
+
+        public boolean accepts(String value) {
+            return values.contains(value);
+        }
+
+        // Same as accepts(argument.getValue()), by id when every listed value is a built-in name
+        public boolean accepts(Token argument) {
+            int symbol = argument.getSymbol();
+            Symbols known = symbols();
+            if (symbol != SymbolTable.UNKNOWN && known.builtinValues) {
+                return symbol < Long.SIZE && (known.values & 1L << symbol) != 0;
+            }
+            return values.contains(argument.getValue());
+        }
+
+        // Whether the token is the k-th keyword. A built-in name has the same id in every table
+        // and no other name has one of those ids, so ids decide unless neither is built-in.
+        boolean isPart(int k, Token token) {
+            int symbol = token.getSymbol();
+            int part = symbols().parts[k];
+            if (symbol != SymbolTable.UNKNOWN && (part != SymbolTable.UNKNOWN || symbol < SymbolTable.builtinCount())) {
+                return symbol == part;
+            }
+            return token.getValue().equals(parts[k]);
+        }
+
+        private Symbols symbols() {
+            Symbols known = symbols;
+            if (known == null) {
+                known = new Symbols(this);
+                symbols = known;
+            }
+            return known;
+        }
+
+        // Keywords and parameter count: all a call to a user procedure is matched against
+        String key() {
+            return String.join(" ", parts) + "/" + params.length;
+        }
+    }
+
+    private static final class Symbols {
+        private final int[] parts;
+        // One bit per built-in id below 64, if every listed value has one
+        private final long values;
+        private final boolean builtinValues;
+
+        Symbols(Signature signature) {
+            parts = new int[signature.parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = SymbolTable.builtin(signature.parts[i]);
+            }
+            long bits = 0;
+            boolean all = true;
+            for (String name : signature.names) {
+                int symbol = SymbolTable.builtin(name);
+                if (symbol == SymbolTable.UNKNOWN || symbol >= Long.SIZE) {
+                    all = false;
+                } else {
+                    bits |= 1L << symbol;
+                }
+            }
+            values = bits;
+            builtinValues = all;
+        }
+    }
+
+    private static final Signature[] NONE = new Signature[0];
+
+    private final boolean bareCalls;
+    private final boolean allArguments;
+    private final HashMap<String, Signature[][]> byName = new HashMap<>();
+    private final HashMap<String, Signature> firstByName = new HashMap<>();
+    private int size;
+    private boolean frozen;
+
+    // bareCalls: a single keyword may be called without its colon.
+    // allArguments: every parameter needs an argument (otherwise the last one may be left out).
+    public SignatureIndex(boolean bareCalls, boolean allArguments) {
+        this.bareCalls = bareCalls;
+        this.allArguments = allArguments;
+    }
+
+    public void add(Signature signature) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Signature index is frozen");
+        }
+        int arity = signature.parts.length;
+        Signature[][] byArity = byName.get(signature.getName());
+        if (byArity == null || byArity.length <= arity) {
+            byArity = byArity == null ? new Signature[arity + 1][] : Arrays.copyOf(byArity, arity + 1);
+            byName.put(signature.getName(), byArity);
+        }
+        Signature[] signatures = byArity[arity] == null ? NONE : byArity[arity];
+        signatures = Arrays.copyOf(signatures, signatures.length + 1);
+        signatures[signatures.length - 1] = signature;
+        byArity[arity] = signatures;
+
+        firstByName.putIfAbsent(signature.getName(), signature);
+        size++;
+    }
+
+    // No more signatures can be added after this, so the index can be shared
+    public SignatureIndex freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // Same value for the same signatures, whatever order they were added in
+    public int fingerprint() {
+        int fingerprint = 0;
+        for (Signature[][] byArity : byName.values()) {
+            for (Signature[] signatures : byArity) {
+                if (signatures == null) {
+                    continue;
+                }
+                for (Signature signature : signatures) {
+                    int hash = Arrays.hashCode(signature.parts) * 31 + Arrays.hashCode(signature.names);
+                    for (ParamKind param : signature.params) {
+                        hash = hash * 31 + param.ordinal();
+                    }
+                    fingerprint += hash;
+                }
+            }
+        }
+        return fingerprint * 31 + (bareCalls ? 1 : 0) * 2 + (allArguments ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Every signature, in no particular order
+    List<Signature> signatures() {
+        List<Signature> signatures = new ArrayList<>();
+        for (Signature[][] byArity : byName.values()) {
+            for (Signature[] sameArity : byArity) {
+                if (sameArity != null) {
+                    signatures.addAll(Arrays.asList(sameArity));
+                }
+            }
+        }
+        return signatures;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String name) {
+        return byName.containsKey(name);
+    }
+
+    // First signature declared with this first keyword, or null
+    public Signature first(String name) {
+        return firstByName.get(name);
+    }
+
+    public Signature[] candidates(String name, int arity) {
+        Signature[][] byArity = byName.get(name);
+        if (byArity == null || arity >= byArity.length || byArity[arity] == null) {
+            return NONE;
+        }
+        return byArity[arity];
+    }
+
+    public boolean matches(Ast.Invocation call, Variables variables) {
+        Token[] parts = call.getParts();
+        int colons = call.getColons();
+        boolean colonPerKeyword = colons == parts.length || (bareCalls && colons == 0 && parts.length == 1);
+
+        for (Signature signature : candidates(call.getName(), parts.length)) {
+            // A signature without parameters is called by its name alone ("a .")
+            if (!colonPerKeyword && !(colons == 0 && signature.params.length == 0)) {
+                continue;
+            }
+            if (allArguments && (colons != signature.params.length || call.getArgCount() != signature.params.length)) {
+                continue;
+            }
+            if (matches(signature, call, variables)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(Signature signature, Ast.Invocation call, Variables variables) {
+        Token[] parts = call.getParts();
+        Token[] args = call.getArgs();
+        int[] slots = call.bind(variables);
+        for (int k = 0; k < parts.length; k++) {
+            if (k > 0 && !signature.isPart(k, parts[k])) {
+                return false;
+            }
+            Token argument = args[k];
+            if (argument == null) {
+                continue;
+            }
+            if (k >= signature.params.length) {
+                return false;
+            }
+            switch (signature.params[k]) {
+                case NUMBER:
+                    if (argument.getType() != TokenType.NUMBER && slots[k] == Scope.UNDEFINED) {
+                        return false;
+                    }
+                    break;
+                case CONSTANT:
+                    if (!signature.accepts(argument)) {
+                        return false;
+                    }
+                    break;
+                case VALUE:
+                    if (argument.getType() == TokenType.IDENTIFIER && slots[k] == Scope.UNDEFINED) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+}
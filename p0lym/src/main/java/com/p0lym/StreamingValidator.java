@@ -0,0 +1,26 @@
+package com.p0lym;
+
+import java.io.IOException;
+
+// Validates a program while pulling tokens from a TokenSource, without materializing the
+// token list. The AstParser drops every statement once it is checked, also inside a block
+// that is still open, so memory grows with the nesting depth and the longest statement, not
+// with the file size.
+public class StreamingValidator {
+    private final AstParser parser;
+    private final ValidationContext context;
+
+    // Tokens come from source; the built-ins and how errors are reported come from validator
+    public StreamingValidator(TokenSource source, RobotValidator validator) {
+        this.context = validator.newContext();
+        this.parser = new AstParser(source, context);
+    }
+
+    public boolean validate() throws IOException {
+        try {
+            return parser.validate();
+        } finally {
+            context.printDiagnostics();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.p0lym;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.p0lym.SignatureIndex.Signature;
+
+// Dense int ids for the names of one compilation (identifiers and constants), each
+// with a single String. Names are looked up by their UTF-8 bytes, so a name seen before costs
+// no allocation. Every table starts with the same names: Bytecode.CONSTANTS in their order,
+// then the keywords and listed values of the built-in catalog. A built-in name has the same
+// id in every table, so ids can be compared with the built-in signatures whatever table a
+// token comes from; any other id only means something within its own table.
+public class SymbolTable {
+    public static final int UNKNOWN = -1;
+
+    // Built when first needed: the catalog it reads is built from Signatures
+    private static final class Builtin {
+        private static final SymbolTable NAMES = builtins();
+    }
+
+    // id + 1 of the name hashed to each slot, 0 for a free slot
+    private int[] slots;
+    private int[] hashes;
+    // The bytes of name i are bytes[offsets[i]] up to bytes[offsets[i + 1]]
+    private int[] offsets;
+    private byte[] bytes;
+    private String[] names;
+    private int size;
+
+    public SymbolTable() {
+        SymbolTable builtin = Builtin.NAMES;
+        slots = builtin.slots.clone();
+        hashes = builtin.hashes.clone();
+        offsets = builtin.offsets.clone();
+        bytes = builtin.bytes.clone();
+        names = builtin.names.clone();
+        size = builtin.size;
+    }
+
+    private SymbolTable(int capacity) {
+        slots = new int[capacity * 2];
+        hashes = new int[capacity];
+        offsets = new int[capacity + 1];
+        bytes = new byte[capacity * 8];
+        names = new String[capacity];
+    }
+
+    private static SymbolTable builtins() {
+        SymbolTable table = new SymbolTable(64);
+        for (String constant : Bytecode.CONSTANTS) {
+            table.intern(constant);
+        }
+        for (SignatureIndex index : new SignatureIndex[] {BuiltinCatalog.PROCEDURES, BuiltinCatalog.CONDITIONS}) {
+            for (Signature signature : index.signatures()) {
+                for (String part : signature.getParts()) {
+                    table.intern(part);
+                }
+                for (String name : signature.getNames()) {
+                    table.intern(name);
+                }
+            }
+        }
+        return table;
+    }
+
+    // Id of a built-in name, the same in every table, or UNKNOWN
+    public static int builtin(String name) {
+        ByteBuffer utf8 = ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8));
+        return Builtin.NAMES.find(utf8, 0, utf8.limit(), hash(utf8, 0, utf8.limit()));
+    }
+
+    // Ids below this are built-in names
+    public static int builtinCount() {
+        return Builtin.NAMES.size;
+    }
+
+    public int intern(String name) {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(utf8), 0, utf8.length);
+    }
+
+    // Id of the name held by length bytes of the buffer from start (absolute gets only)
+    public int intern(ByteBuffer buffer, int start, int length) {
+        int hash = hash(buffer, start, length);
+        int id = find(buffer, start, length, hash);
+        return id != UNKNOWN ? id : add(buffer, start, length, hash);
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(ByteBuffer buffer, int start, int length, int hash) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && same(id, buffer, start, length)) {
+                return id;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private boolean same(int id, ByteBuffer buffer, int start, int length) {
+        int offset = offsets[id];
+        if (offsets[id + 1] - offset != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(ByteBuffer buffer, int start, int length, int hash) {
+        int id = size++;
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            names = Arrays.copyOf(names, size * 2);
+        }
+        int offset = offsets[id];
+        if (offset + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, offset + length));
+        }
+        buffer.get(start, bytes, offset, length);
+        offsets[id + 1] = offset + length;
+        hashes[id] = hash;
+        names[id] = new String(bytes, offset, length, StandardCharsets.UTF_8);
+
+        // At most half full, so probes stay short
+        if (size * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            for (int i = 0; i < size; i++) {
+                place(i);
+            }
+        } else {
+            place(id);
+        }
+        return id;
+    }
+
+    private void place(int id) {
+        int mask = slots.length - 1;
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ buffer.get(start + i)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
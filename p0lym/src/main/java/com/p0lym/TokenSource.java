@@ -0,0 +1,10 @@
+package com.p0lym;
+
+import java.io.IOException;
+
+import com.p0lym.RobotLexerParser.Token;
+
+// Anything that hands out tokens one at a time, ending with an EOF token
+public interface TokenSource {
+    Token nextToken() throws IOException;
+}
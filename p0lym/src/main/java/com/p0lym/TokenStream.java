@@ -0,0 +1,140 @@
+package com.p0lym;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+// Compact token list: one entry per token in parallel primitive arrays. Values are not
+// stored, they are offsets into the UTF-8 source and only decoded when asked for.
+public class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final ByteBuffer source;
+    // Made with the first token handed out
+    private SymbolTable symbols;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private int size;
+    // Where the input ended, if the lexer said so; otherwise just after the last token
+    private int endLine = -1;
+    private int endColumn;
+
+    public TokenStream(ByteBuffer source) {
+        this(source, 64);
+    }
+
+    public TokenStream(ByteBuffer source, int capacity) {
+        this.source = source;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.columns = new int[capacity];
+    }
+
+    // Builds a stream over the values of already lexed tokens
+    public static TokenStream of(List<Token> tokens) {
+        byte[][] values = new byte[tokens.size()][];
+        int total = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tokens.get(i).getValue().getBytes(StandardCharsets.UTF_8);
+            total += values[i].length;
+        }
+
+        ByteBuffer source = ByteBuffer.allocate(total);
+        TokenStream stream = new TokenStream(source, Math.max(values.length, 1));
+        for (int i = 0; i < values.length; i++) {
+            Token token = tokens.get(i);
+            stream.add(token.getType(), source.position(), values[i].length, token.getLine(), token.getColumn());
+            source.put(values[i]);
+        }
+        return stream;
+    }
+
+    public void add(TokenType type, int start, int length, int line, int column) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    void setEnd(int line, int column) {
+        endLine = line;
+        endColumn = column;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int column(int index) {
+        return columns[index];
+    }
+
+    public String value(int index) {
+        byte[] bytes = new byte[lengths[index]];
+        source.get(starts[index], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Identifiers and constants share one String per name, with its SymbolTable id
+    public Token token(int index) {
+        TokenType type = type(index);
+        if (type.getText() != null) {
+            return new Token(type, type.getText(), lines[index], columns[index]);
+        } else if (type == TokenType.INVALID || type == TokenType.NUMBER) {
+            return new Token(type, value(index), lines[index], columns[index]);
+        }
+        if (symbols == null) {
+            symbols = new SymbolTable();
+        }
+        int symbol = symbols.intern(source, starts[index], lengths[index]);
+        return new Token(type, symbols.name(symbol), lines[index], columns[index], symbol);
+    }
+
+    // The EOF token that follows the last one
+    public Token end() {
+        if (endLine >= 0) {
+            return new Token(TokenType.EOF, "", endLine, endColumn);
+        }
+        int last = size - 1;
+        return new Token(TokenType.EOF, "", last < 0 ? 1 : lines[last], last < 0 ? 1 : columns[last] + lengths[last]);
+    }
+}
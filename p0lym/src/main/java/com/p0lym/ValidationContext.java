@@ -0,0 +1,102 @@
+package com.p0lym;
+
+import java.io.PrintStream;
+
+import com.p0lym.RobotLexerParser.Token;
+
+// State of one validation: the global variables and user procedures declared so far and the
+// errors found. Cheap to create and meant for a single thread; the built-in indexes it points
+// to are frozen and shared.
+public class ValidationContext {
+    private final SignatureIndex builtins;
+    private final SignatureIndex conditions;
+    private final PrintStream out;
+    private final boolean recover;
+    private final Diagnostics diagnostics;
+
+    private final Scope scope = new Scope();
+    private final SignatureIndex procedures = new SignatureIndex(false, true);
+
+    private Ast.Program program;
+
+    // Errors are printed to out by printDiagnostics(), or only recorded when out is null
+    public ValidationContext(SignatureIndex builtins, SignatureIndex conditions, PrintStream out) {
+        this(builtins, conditions, out, false);
+    }
+
+    // With recover the parser goes on after an error, so a single pass finds all of them
+    public ValidationContext(SignatureIndex builtins, SignatureIndex conditions, PrintStream out, boolean recover) {
+        this.builtins = builtins;
+        this.conditions = conditions;
+        this.out = out;
+        this.recover = recover;
+        // Without recovery parsing stops at the first error, after at most an invalid token
+        this.diagnostics = new Diagnostics(recover ? 256 : 4);
+    }
+
+    public SignatureIndex getBuiltins() {
+        return builtins;
+    }
+
+    public SignatureIndex getConditions() {
+        return conditions;
+    }
+
+    public SignatureIndex getProcedures() {
+        return procedures;
+    }
+
+    // Globals and the variables of the procedure being parsed, by slot
+    public Scope getScope() {
+        return scope;
+    }
+
+    public void declareVariable(String name) {
+        scope.declareGlobal(name);
+    }
+
+    public void declareProcedure(SignatureIndex.Signature signature) {
+        procedures.add(signature);
+    }
+
+    public void error(Diagnostics.Message message, Token token) {
+        diagnostics.add(message, token);
+    }
+
+    public void invalidToken(Token token) {
+        diagnostics.add(Diagnostics.Message.INVALID_TOKEN, token);
+    }
+
+    public boolean isRecovering() {
+        return recover;
+    }
+
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    // First error found, or null
+    public String getError() {
+        return diagnostics.isEmpty() ? null : diagnostics.format(0);
+    }
+
+    // Prints every error found to the stream given at construction, if any
+    public void printDiagnostics() {
+        if (out != null) {
+            diagnostics.print(out);
+        }
+    }
+
+    void setProgram(Ast.Program program) {
+        this.program = program;
+    }
+
+    // The parsed program, or null if it was not valid
+    public Ast.Program getProgram() {
+        return program;
+    }
+
+    public boolean isValid() {
+        return program != null;
+    }
+}
@@ -0,0 +1,536 @@
+package com.p0lym;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import com.p0lym.Diagnostics.Message;
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+import com.p0lym.SignatureIndex.Signature;
+
+// A program kept open in an editor and validated again after every edit, with the same errors
+// a RobotValidator would report for the whole text. The text is split into the parser's own
+// top level units (a |...| declaration, a procedure, the main block or any other statement)
+// and each one keeps the declarations it made, the names it used and its errors. An edit only
+// relexes and checks again the units it touches, then goes on past them until a unit starts
+// where an old one did: if the declarations made so far are the same as before, everything
+// after is kept. If not (a procedure gained a parameter, a variable was dropped), the units
+// after it are kept unless they use a name whose declarations changed, and those are checked
+// again. Units after the edit are only moved, and the declarations before it are replayed, so
+// an edit costs the size of the units it touches, not the size of the text.
+//
+// Not thread-safe: a session belongs to one editor buffer.
+public class ValidationSession {
+    // Chars lexed at a time when going through the text
+    private static final int CHUNK = 1024;
+
+    private final RobotValidator validator;
+    private final Text text;
+    private ArrayList<Unit> units = new ArrayList<>();
+    // A unit had more errors than a context keeps, so the units do not cover the text
+    private boolean overflow;
+    private int checked;
+    private Diagnostics diagnostics;
+
+    public ValidationSession(RobotValidator validator, String text) {
+        this.validator = validator;
+        this.text = new Text(text);
+        check(0, 0, 0, 0, 0, 0);
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    // Replaces length chars at offset (UTF-16 units, like String and most editors count them)
+    public void edit(int offset, int length, String replacement) {
+        if (offset < 0 || length < 0 || offset + length > text.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + length + " out of " + text.length() + " chars");
+        }
+        int oldEnd = offset + length;
+        int newEnd = offset + replacement.length();
+        int lineStart = text.lastIndexOf('\n', offset - 1) + 1;
+        String removed = text.substring(offset, oldEnd);
+        text.replace(offset, oldEnd, replacement);
+        diagnostics = null;
+        if (overflow || units.isEmpty()) {
+            check(0, 0, 0, 0, 0, 0);
+            return;
+        }
+
+        // Units after the edit move by these lines, and by these columns if they start on the
+        // line where the edit ends
+        int lines = count(replacement) - count(removed);
+        int columns = column(replacement, offset - lineStart) - column(removed, offset - lineStart);
+        int lineEnd = text.indexOf('\n', newEnd);
+        if (lineEnd < 0) {
+            lineEnd = text.length();
+        }
+
+        // The first unit the edit reaches, or the one before it when the edit may change its
+        // first token: that token is what the unit before read last
+        int first = firstEndingAfter(offset);
+        if (first == units.size() || offset <= units.get(first).firstEnd) {
+            first = Math.max(0, first - 1);
+        }
+        check(first, oldEnd, replacement.length() - length, lines, columns, lineEnd);
+    }
+
+    public void setText(String text) {
+        edit(0, this.text.length(), text);
+    }
+
+    public boolean isValid() {
+        return getDiagnostics().isEmpty();
+    }
+
+    // First error, or null
+    public String getError() {
+        Diagnostics diagnostics = getDiagnostics();
+        return diagnostics.isEmpty() ? null : diagnostics.format(0);
+    }
+
+    // The errors RobotValidator.validate() would report for the current text
+    public Diagnostics getDiagnostics() {
+        if (diagnostics == null) {
+            diagnostics = report();
+        }
+        return diagnostics;
+    }
+
+    public int getUnitCount() {
+        return units.size();
+    }
+
+    // Units checked by the last edit (all of them when the session was created)
+    public int getChecked() {
+        return checked;
+    }
+
+    // Checks the text again from unit first, taking the old units that the edit did not reach
+    // and whose names did not change back as they are
+    private void check(int first, int oldEnd, int delta, int lines, int columns, int lineEnd) {
+        ArrayList<Unit> old = units;
+        Recorder context = new Recorder();
+        units = new ArrayList<>(old.size() + 16);
+        for (int i = 0; i < first; i++) {
+            Unit unit = old.get(i);
+            context.replay(unit);
+            units.add(unit);
+        }
+        overflow = false;
+        checked = 0;
+
+        Changes changes = new Changes();
+        Source source = null;
+        AstParser parser = null;
+        int position = first == 0 ? 0 : old.get(first).start;
+        int line = first == 0 ? 1 : old.get(first).line;
+        int column = first == 0 ? 0 : old.get(first).column - 1;
+        int next = first;
+        try {
+            while (true) {
+                if (parser == null) {
+                    source = new Source(position, line, column);
+                    parser = new AstParser(source, context);
+                    if (!parser.begin()) {
+                        // Nothing but whitespace left
+                        return;
+                    }
+                    if (!units.isEmpty()) {
+                        // An invalid first token was already reported by the unit before
+                        context.getDiagnostics().clear();
+                    }
+                }
+                int start = source.start;
+
+                // Old units the edit reached, or that the new ones went past, are gone
+                while (next < old.size() && (old.get(next).start < oldEnd || old.get(next).start + delta < start)) {
+                    changes.remove(old.get(next++));
+                }
+                if (next < old.size() && old.get(next).start + delta == start) {
+                    if (changes.isEmpty()) {
+                        break;
+                    }
+                    Unit unit = old.get(next);
+                    if (!changes.affects(unit)) {
+                        unit.move(delta, lines, unit.start + delta < lineEnd ? columns : 0);
+                        context.replay(unit);
+                        units.add(unit);
+                        next++;
+                        if (next == old.size()) {
+                            break;
+                        }
+                        Unit after = old.get(next);
+                        position = after.start + delta;
+                        line = after.line + lines;
+                        column = after.column - 1 + (position < lineEnd ? columns : 0);
+                        parser = null;
+                        continue;
+                    }
+                    changes.remove(unit);
+                    next++;
+                }
+
+                Unit unit = new Unit(source);
+                context.unit = unit;
+                source.names = unit.names;
+                boolean more = parser.next(null);
+                unit.finish(source, context.getDiagnostics());
+                context.unit = null;
+                context.getDiagnostics().clear();
+                changes.add(unit);
+                units.add(unit);
+                checked++;
+                if (!more) {
+                    overflow = true;
+                    units.clear();
+                    return;
+                }
+                if (parser.atEnd()) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // The rest of the text lexes and checks as it did
+        for (int i = next; i < old.size(); i++) {
+            Unit unit = old.get(i);
+            unit.move(delta, lines, unit.start + delta < lineEnd ? columns : 0);
+            units.add(unit);
+        }
+    }
+
+    // Index of the first unit that ends at or after offset
+    private int firstEndingAfter(int offset) {
+        int low = 0;
+        int high = units.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (units.get(middle).end < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int count(String s) {
+        int lines = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    // Column just after s, when it is written at the given column
+    private static int column(String s, int column) {
+        int newline = s.lastIndexOf('\n');
+        return newline < 0 ? column + s.length() : s.length() - newline - 1;
+    }
+
+    // The errors of the units in order, cut the way the parser would cut them: after the first
+    // one that is not an invalid token without recovery, or when the context is full with it
+    private Diagnostics report() {
+        ValidationContext context = validator.newContext();
+        if (overflow || units.isEmpty()) {
+            return validateAll(context);
+        }
+        Diagnostics report = context.getDiagnostics();
+        for (Unit unit : units) {
+            for (int i = 0; i < unit.messages.length; i++) {
+                if (report.isFull()) {
+                    // Where the parser stops, and what it counts as dropped, depends on where it was
+                    return validateAll(validator.newContext());
+                }
+                Token token = unit.tokens[i];
+                if (token != null) {
+                    int line = unit.line + token.getLine();
+                    int column = token.getLine() == 0 ? unit.column + token.getColumn() : token.getColumn();
+                    token = new Token(token.getType(), token.getValue(), line, column);
+                }
+                report.add(unit.messages[i], token);
+                if (!validator.isRecovering() && unit.messages[i] != Message.INVALID_TOKEN) {
+                    return report;
+                }
+            }
+        }
+        return report;
+    }
+
+    private Diagnostics validateAll(ValidationContext context) {
+        try {
+            new AstParser(new MappedLexer(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8))), context).parse();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return context.getDiagnostics();
+    }
+
+    // The text with a gap at the last edit, so typing in one place only moves the chars
+    // between edits instead of the rest of the text
+    private static class Text {
+        private char[] chars;
+        private int gapStart;
+        private int gapEnd;
+
+        Text(String text) {
+            chars = new char[text.length() + 64];
+            text.getChars(0, text.length(), chars, 0);
+            gapStart = text.length();
+            gapEnd = chars.length;
+        }
+
+        int length() {
+            return chars.length - (gapEnd - gapStart);
+        }
+
+        char charAt(int index) {
+            return chars[index < gapStart ? index : index + gapEnd - gapStart];
+        }
+
+        String substring(int from, int to) {
+            if (to <= gapStart) {
+                return new String(chars, from, to - from);
+            }
+            int gap = gapEnd - gapStart;
+            if (from >= gapStart) {
+                return new String(chars, from + gap, to - from);
+            }
+            return new StringBuilder(to - from).append(chars, from, gapStart - from)
+                    .append(chars, gapEnd, to - gapStart).toString();
+        }
+
+        int indexOf(char c, int from) {
+            for (int i = from; i < length(); i++) {
+                if (charAt(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int lastIndexOf(char c, int from) {
+            for (int i = from; i >= 0; i--) {
+                if (charAt(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void replace(int from, int to, String replacement) {
+            int gap = gapEnd - gapStart;
+            // Move the gap to the removed chars, then let it swallow them
+            if (from < gapStart) {
+                System.arraycopy(chars, from, chars, from + gap, gapStart - from);
+            } else {
+                System.arraycopy(chars, gapEnd, chars, gapStart, from - gapStart);
+            }
+            gapStart = from;
+            gapEnd = from + gap + (to - from);
+            if (gapEnd - gapStart < replacement.length()) {
+                int size = Math.max(chars.length * 2, length() + replacement.length() + 64);
+                char[] grown = new char[size];
+                System.arraycopy(chars, 0, grown, 0, gapStart);
+                int tail = chars.length - gapEnd;
+                System.arraycopy(chars, gapEnd, grown, size - tail, tail);
+                chars = grown;
+                gapEnd = size - tail;
+            }
+            replacement.getChars(0, replacement.length(), chars, gapStart);
+            gapStart += replacement.length();
+        }
+
+        @Override
+        public String toString() {
+            return substring(0, length());
+        }
+    }
+
+    // One top level item as the parser read it. Positions of its errors are kept relative to
+    // its first token (the column only on that token's line), so the unit can move.
+    private static class Unit {
+        private int start;
+        private int firstEnd;
+        private int end;
+        private int line;
+        private int column;
+        // Identifiers read while checking it: the only names its result can depend on
+        private final HashSet<String> names = new HashSet<>();
+        private final ArrayList<String> variables = new ArrayList<>();
+        private final ArrayList<Signature> procedures = new ArrayList<>();
+        private Message[] messages;
+        private Token[] tokens;
+
+        Unit(Source source) {
+            Token first = source.last;
+            this.start = source.start;
+            this.firstEnd = source.end;
+            this.line = first.getLine();
+            this.column = first.getColumn();
+            if (first.getType() == TokenType.IDENTIFIER) {
+                names.add(first.getValue());
+            }
+        }
+
+        void finish(Source source, Diagnostics diagnostics) {
+            end = source.previousEnd;
+            messages = new Message[diagnostics.size()];
+            tokens = new Token[diagnostics.size()];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = diagnostics.getMessage(i);
+                Token token = diagnostics.getToken(i);
+                if (token != null) {
+                    int relative = token.getLine() - line;
+                    tokens[i] = new Token(token.getType(), token.getValue(), relative,
+                            relative == 0 ? token.getColumn() - column : token.getColumn());
+                }
+            }
+        }
+
+        void move(int delta, int lines, int columns) {
+            start += delta;
+            firstEnd += delta;
+            end += delta;
+            line += lines;
+            column += columns;
+        }
+    }
+
+    // Declarations of the units taken out and of the units checked in their place, by name. A
+    // name whose declarations differ may check differently from here on.
+    private static class Changes {
+        private final HashMap<String, HashSet<String>> removed = new HashMap<>();
+        private final HashMap<String, HashSet<String>> added = new HashMap<>();
+        private final HashSet<String> changed = new HashSet<>();
+
+        void remove(Unit unit) {
+            record(unit, removed);
+        }
+
+        void add(Unit unit) {
+            record(unit, added);
+        }
+
+        private void record(Unit unit, HashMap<String, HashSet<String>> side) {
+            for (String variable : unit.variables) {
+                record(variable, "", side);
+            }
+            for (Signature procedure : unit.procedures) {
+                record(procedure.getName(), procedure.key(), side);
+            }
+        }
+
+        private void record(String name, String declaration, HashMap<String, HashSet<String>> side) {
+            side.computeIfAbsent(name, k -> new HashSet<>()).add(declaration);
+            if (removed.getOrDefault(name, new HashSet<>()).equals(added.getOrDefault(name, new HashSet<>()))) {
+                changed.remove(name);
+            } else {
+                changed.add(name);
+            }
+        }
+
+        boolean isEmpty() {
+            return changed.isEmpty();
+        }
+
+        boolean affects(Unit unit) {
+            for (String name : changed) {
+                if (unit.names.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Context that hands the declarations of the unit being checked to it
+    private class Recorder extends ValidationContext {
+        private Unit unit;
+
+        Recorder() {
+            super(validator.getBuiltins(), validator.getConditions(), null, true);
+        }
+
+        void replay(Unit unit) {
+            for (String variable : unit.variables) {
+                super.declareVariable(variable);
+            }
+            for (Signature procedure : unit.procedures) {
+                super.declareProcedure(procedure);
+            }
+        }
+
+        @Override
+        public void declareVariable(String name) {
+            super.declareVariable(name);
+            if (unit != null) {
+                unit.variables.add(name);
+            }
+        }
+
+        @Override
+        public void declareProcedure(Signature signature) {
+            super.declareProcedure(signature);
+            if (unit != null) {
+                unit.procedures.add(signature);
+            }
+        }
+    }
+
+    // Lexes the text from an offset a chunk at a time, cut after whitespace so no token is
+    // split, and remembers where the last tokens were
+    private class Source implements TokenSource {
+        private MappedLexer lexer;
+        private int base;
+        private int limit;
+        private Token last;
+        private int start;
+        private int end;
+        private int previousEnd;
+        private HashSet<String> names;
+
+        Source(int offset, int line, int column) {
+            open(offset, line, column);
+        }
+
+        private void open(int offset, int line, int column) {
+            int cut = Math.min(text.length(), offset + CHUNK);
+            while (cut < text.length() && !CharClass.isWhitespace(text.charAt(cut - 1))) {
+                cut++;
+            }
+            lexer = new MappedLexer(ByteBuffer.wrap(text.substring(offset, cut).getBytes(StandardCharsets.UTF_8)), line, column);
+            base = offset;
+            limit = cut;
+        }
+
+        @Override
+        public Token nextToken() {
+            Token token = lexer.nextToken();
+            // The end of a chunk, unless a '\0' ended the input before it as it does for MappedLexer
+            while (token.getType() == TokenType.EOF && limit < text.length() && base + lexer.getOffset() == limit) {
+                open(limit, lexer.getLine(), lexer.getColumn());
+                token = lexer.nextToken();
+            }
+            previousEnd = end;
+            last = token;
+            start = base + lexer.getTokenOffset();
+            end = base + lexer.getOffset();
+            if (names != null && token.getType() == TokenType.IDENTIFIER) {
+                names.add(token.getValue());
+            }
+            return token;
+        }
+    }
+}
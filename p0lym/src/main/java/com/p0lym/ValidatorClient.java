@@ -0,0 +1,68 @@
+package com.p0lym;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// One connection to a ValidatorDaemon. Each call sends a request and blocks for its JSON
+// line, so a client kept open pays only for the round trip. Without a JVM at hand,
+// anything that writes to the socket will do: printf 'PATH /abs/prog.txt\n' | nc -U socket
+public class ValidatorClient implements Closeable {
+    private final SocketChannel channel;
+    private ByteBuffer input = ByteBuffer.allocate(4096);
+
+    public ValidatorClient(SocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+    }
+
+    // The daemon may run somewhere else, so the path goes absolute
+    public String validate(Path file) throws IOException {
+        return request(("PATH " + file.toAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String validateSource(String source) throws IOException {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        byte[] header = ("SOURCE " + bytes.length + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] request = new byte[header.length + bytes.length];
+        System.arraycopy(header, 0, request, 0, header.length);
+        System.arraycopy(bytes, 0, request, header.length, bytes.length);
+        return request(request);
+    }
+
+    public String stop() throws IOException {
+        return request("STOP\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String request(byte[] request) throws IOException {
+        ByteBuffer output = ByteBuffer.wrap(request);
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        // Nothing else is sent before the answer, so it is all there is to read
+        input.clear();
+        while (true) {
+            if (!input.hasRemaining()) {
+                input = ByteBuffer.allocate(input.capacity() * 2).put(input.flip());
+            }
+            int from = input.position();
+            if (channel.read(input) < 0) {
+                throw new EOFException("The daemon closed the connection");
+            }
+            for (int i = from; i < input.position(); i++) {
+                if (input.get(i) == '\n') {
+                    return new String(input.array(), 0, i, StandardCharsets.UTF_8);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
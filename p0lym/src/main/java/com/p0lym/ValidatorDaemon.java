@@ -0,0 +1,421 @@
+package com.p0lym;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Validates programs for clients that connect to a Unix domain socket or a loopback port, so
+// an editor or a hook pays for a JVM, its JIT and the built-in tables once instead of on
+// every save. One thread owns the selector and every connection; validation runs on a pool
+// and comes back to that thread through a queue. Requests are lines, each answered by one
+// JSON line in the order they came, like the lines of BatchValidator:
+//   PATH <file>                validates a file (absolute, or relative to the daemon)
+//   SOURCE <bytes>\n<source>    validates the given number of bytes of UTF-8 source
+//   STOP                       answers and stops the daemon, once the requests already
+//                              taken are answered
+// A connection may send many requests; they are validated one after another, while
+// requests of different connections run at the same time.
+public class ValidatorDaemon implements Closeable {
+    // Longest request line, and largest inline source
+    private static final int MAX_LINE = 64 * 1024;
+    private static final int MAX_SOURCE = 64 * 1024 * 1024;
+    // On the way out, longest wait for the validations under way and then for their answers
+    // to be sent
+    private static final long DRAIN_SECONDS = 30;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final Path socketFile;
+    // Every error of a program, not only the first one
+    private final RobotValidator validator = new RobotValidator(null, true);
+    // Answers finished by the workers, for the selector thread to send
+    private final ConcurrentLinkedQueue<Answer> answers = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+    private volatile boolean serving;
+
+    // Only a Unix domain socket or a loopback address: the daemon reads any file it is asked for
+    // and stops on request, so it must not be reachable from other machines
+    public ValidatorDaemon(SocketAddress address, int threads) throws IOException {
+        if (address instanceof InetSocketAddress && !isLoopback((InetSocketAddress) address)) {
+            throw new IllegalArgumentException("Daemon only listens on a loopback address or a Unix domain socket: " + address);
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            // A socket file left by a daemon that did not stop cleanly
+            socketFile = ((UnixDomainSocketAddress) address).getPath();
+            Files.deleteIfExists(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            socketFile = null;
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+        server.configureBlocking(false);
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "validator-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // "port" or "host:port" for TCP, anything else is the path of a Unix domain socket
+    public static SocketAddress address(String text) {
+        int colon = text.lastIndexOf(':');
+        String port = text.substring(colon + 1);
+        if (!port.isEmpty() && port.chars().allMatch(Character::isDigit) && !text.contains("/")) {
+            String host = colon < 0 ? "127.0.0.1" : text.substring(0, colon);
+            return new InetSocketAddress(host, Integer.parseInt(port));
+        }
+        return UnixDomainSocketAddress.of(text);
+    }
+
+    private static boolean isLoopback(InetSocketAddress address) {
+        return !address.isUnresolved() && address.getAddress().isLoopbackAddress();
+    }
+
+    // Where the daemon listens (with the port chosen when asked for port 0)
+    public SocketAddress getAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    // Serves requests until STOP or close()
+    public void run() throws IOException {
+        serving = true;
+        try {
+            while (running) {
+                selector.select();
+                Answer answer;
+                while ((answer = answers.poll()) != null) {
+                    Connection connection = answer.connection;
+                    connection.output.add(answer.bytes);
+                    connection.busy = false;
+                    next(connection);
+                    flush(connection);
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(connection);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            drain();
+        } finally {
+            serving = false;
+            shutdown();
+        }
+    }
+
+    // Stops the daemon; when run() is serving it closes everything on its way out
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serving) {
+            selector.wakeup();
+            return;
+        }
+        shutdown();
+    }
+
+    // Takes no more connections or requests, but answers the requests the workers already
+    // have before the connections are closed
+    private void drain() throws IOException {
+        server.close();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Answer answer;
+        while ((answer = answers.poll()) != null) {
+            answer.connection.output.add(answer.bytes);
+            answer.connection.busy = false;
+        }
+
+        ArrayList<Connection> connections = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() != null) {
+                Connection connection = (Connection) key.attachment();
+                // Whatever the client sends now goes unanswered
+                connection.ended = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                connections.add(connection);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+        while (true) {
+            boolean pending = false;
+            for (Connection connection : connections) {
+                flush(connection);
+                pending |= connection.channel.isOpen() && !connection.output.isEmpty();
+            }
+            long left = deadline - System.nanoTime();
+            if (!pending || left <= 0 || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            selector.select(TimeUnit.NANOSECONDS.toMillis(left) + 1);
+            selector.selectedKeys().clear();
+        }
+    }
+
+    private void shutdown() throws IOException {
+        workers.shutdownNow();
+        if (selector.isOpen()) {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+        server.close();
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void read(Connection connection) throws IOException {
+        ByteBuffer input = connection.input;
+        if (!input.hasRemaining()) {
+            if (input.capacity() >= MAX_LINE + MAX_SOURCE) {
+                drop(connection);
+                return;
+            }
+            connection.input = input = ByteBuffer.allocate(Math.min(input.capacity() * 2, MAX_LINE + MAX_SOURCE))
+                    .put(input.flip());
+        }
+        int read;
+        try {
+            read = connection.channel.read(input);
+        } catch (IOException e) {
+            drop(connection);
+            return;
+        }
+        if (read < 0) {
+            // The client sent everything: answer what is buffered, then close
+            connection.ended = true;
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        next(connection);
+        flush(connection);
+    }
+
+    // Answers the complete requests of an idle connection until one goes to the workers
+    private void next(Connection connection) {
+        ByteBuffer input = connection.input;
+        while (!connection.busy && connection.channel.isOpen()) {
+            int end = -1;
+            for (int i = 0; i < input.position() && i < MAX_LINE; i++) {
+                if (input.get(i) == '\n') {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0) {
+                if (input.position() >= MAX_LINE) {
+                    reply(connection, error("Petición demasiado larga"));
+                    connection.ended = true;
+                    input.clear();
+                }
+                return;
+            }
+            String line = new String(input.array(), 0, end, StandardCharsets.UTF_8).strip();
+            int consumed = end + 1;
+
+            if (line.startsWith("PATH ")) {
+                String file = line.substring(5).strip();
+                submit(connection, () -> validate(file));
+            } else if (line.startsWith("SOURCE ")) {
+                int size;
+                try {
+                    size = Integer.parseInt(line.substring(7).strip());
+                } catch (NumberFormatException e) {
+                    size = -1;
+                }
+                if (size < 0 || size > MAX_SOURCE) {
+                    reply(connection, error("Tamaño no válido: " + line));
+                } else if (input.position() - consumed < size) {
+                    // Not all the source is here yet
+                    return;
+                } else {
+                    byte[] source = new byte[size];
+                    input.get(consumed, source);
+                    consumed += size;
+                    submit(connection, () -> validate(ByteBuffer.wrap(source)));
+                }
+            } else if (line.equals("STOP")) {
+                reply(connection, "{\"stopped\":true}\n");
+                running = false;
+            } else if (!line.isEmpty()) {
+                reply(connection, error("Petición desconocida: " + line));
+            }
+
+            // Keep what follows the request for the next one
+            input.flip().position(consumed);
+            input.compact();
+        }
+    }
+
+    private void submit(Connection connection, Validation validation) {
+        connection.busy = true;
+        workers.execute(() -> {
+            String json;
+            try {
+                json = validation.run();
+            } catch (RuntimeException e) {
+                json = error("Error al validar: " + e);
+            }
+            answers.add(new Answer(connection, ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+            selector.wakeup();
+        });
+    }
+
+    private interface Validation {
+        String run();
+    }
+
+    private String validate(String file) {
+        long start = System.nanoTime();
+        try {
+            return json(file, validator.validate(Path.of(file)), start);
+        } catch (IOException | UncheckedIOException e) {
+            return error("Error al leer el archivo: " + e.getMessage());
+        }
+    }
+
+    private String validate(ByteBuffer source) {
+        long start = System.nanoTime();
+        return json(null, validator.validate(source), start);
+    }
+
+    private static String json(String file, ValidationContext context, long start) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"path\":");
+        if (file == null) {
+            sb.append("null");
+        } else {
+            BatchValidator.json(sb, file);
+        }
+        sb.append(",\"valid\":").append(context.isValid());
+        sb.append(",\"error\":");
+        if (context.getError() == null) {
+            sb.append("null");
+        } else {
+            BatchValidator.json(sb, context.getError());
+        }
+        sb.append(",\"errors\":[");
+        BatchValidator.diagnostics(context.getDiagnostics(), sb);
+        sb.append("],\"micros\":").append((System.nanoTime() - start) / 1000);
+        return sb.append("}\n").toString();
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"valid\":false,\"error\":");
+        BatchValidator.json(sb, message);
+        return sb.append("}\n").toString();
+    }
+
+    // An answer of the selector thread itself, queued behind the ones already there
+    private static void reply(Connection connection, String json) {
+        connection.output.add(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Writes what the socket takes now and waits for it to take the rest
+    private void flush(Connection connection) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+        try {
+            ArrayDeque<ByteBuffer> output = connection.output;
+            while (!output.isEmpty()) {
+                connection.channel.write(output.peek());
+                if (output.peek().hasRemaining()) {
+                    break;
+                }
+                output.poll();
+            }
+            if (output.isEmpty() && connection.ended && !connection.busy) {
+                drop(connection);
+                return;
+            }
+            int ops = connection.key.interestOps();
+            connection.key.interestOps(output.isEmpty() ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            drop(connection);
+        }
+    }
+
+    private static void drop(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Nothing more to say to this client
+        }
+    }
+
+    private static class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(8192);
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        // A request of this connection is being validated
+        private boolean busy;
+        // The client will send nothing more
+        private boolean ended;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static class Answer {
+        private final Connection connection;
+        private final ByteBuffer bytes;
+
+        Answer(Connection connection, ByteBuffer bytes) {
+            this.connection = connection;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.p0lym;
+
+// What a compiled program runs against: the robot and the board around it. Orientations go
+// clockwise, so turning right adds one. Every action returns false when the robot cannot
+// do it, which stops the program; the can* checks answer the same question without acting.
+// Moving, putting or picking 0 is always possible (AstOptimizer counts on it).
+public interface World {
+    int NORTH = 0;
+    int EAST = 1;
+    int SOUTH = 2;
+    int WEST = 3;
+
+    int BALLOONS = 0;
+    int CHIPS = 1;
+
+    int getFacing();
+
+    void setFacing(int orientation);
+
+    // Walks steps cells towards orientation, stopped by anything in the way
+    boolean move(int orientation, int steps);
+
+    // Lands steps cells away towards orientation, over whatever is in between
+    boolean jump(int orientation, int steps);
+
+    boolean canMove(int orientation, int steps);
+
+    boolean canJump(int orientation, int steps);
+
+    boolean goTo(int x, int y);
+
+    // Leaves n objects of type in the robot's cell
+    boolean put(int type, int n);
+
+    // Takes n objects of type from the robot's cell
+    boolean pick(int type, int n);
+
+    boolean canPut(int type, int n);
+
+    boolean canPick(int type, int n);
+
+    // Pops n balloons in the robot's cell
+    boolean pop(int n);
+}
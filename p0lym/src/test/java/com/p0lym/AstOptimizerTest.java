@@ -0,0 +1,221 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class AstOptimizerTest {
+    private static final String[] ORIENTATIONS = { "#north", "#east", "#south", "#west" };
+    private static final String[] DIRECTIONS = { "#front", "#right", "#back", "#left" };
+    private static final String[] TURNS = { "#right", "#left", "#around" };
+
+    // The optimized program leaves every board in the state the original one leaves it in.
+    // Merged moves may stop short of a wall at another step, so there only the outcome counts.
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void keepsWhatProgramsDo(boolean mergeMoves) {
+        RobotValidator validator = new RobotValidator();
+        RandomBoards boards = new RandomBoards(8, 8, 7);
+        int checked = 0;
+        for (long seed = 0; seed < 300; seed++) {
+            String program = new Source(seed).program();
+            ValidationContext context = validator.validate(program);
+            assertTrue(context.isValid(), program + "\n" + context.getError());
+
+            AstOptimizer optimizer = new AstOptimizer();
+            optimizer.setMergeMoves(mergeMoves);
+            Bytecode original = BytecodeCompiler.compile(context.getProgram());
+            Bytecode optimized = BytecodeCompiler.compile(optimizer.optimize(context.getProgram()));
+            for (int run = 0; run < 10; run++) {
+                GridWorld before = boards.board(seed * 100 + run, null);
+                GridWorld after = boards.board(seed * 100 + run, null);
+                Interpreter expected = new Interpreter(original, before);
+                Interpreter actual = new Interpreter(optimized, after);
+                expected.run(20_000);
+                actual.run(20_000);
+                if (expected.getStatus() == Interpreter.RUNNING) {
+                    continue;
+                }
+                checked++;
+                if (mergeMoves && expected.getStatus() == Interpreter.BLOCKED) {
+                    assertEquals(expected.getStatus(), actual.getStatus(), program);
+                } else {
+                    assertEquals(state(before, expected), state(after, actual), program);
+                }
+            }
+        }
+        assertTrue(checked > 1000, "only " + checked + " runs ended");
+    }
+
+    private static String state(GridWorld world, Interpreter interpreter) {
+        return interpreter.getStatus() + " " + world.getX() + "," + world.getY() + " facing " + world.getFacing()
+                + " carried " + world.getCarried(0) + "/" + world.getCarried(1)
+                + " picked " + world.getPicked(0) + "/" + world.getPicked(1)
+                + " n " + interpreter.getGlobal(0) + "\n" + world;
+    }
+
+    // Random programs made of the statements the optimizer rewrites: turns, faces, moves,
+    // constant conditions, short loops and small procedures with and without a parameter
+    private static final class Source {
+        private final Random random;
+        private final List<String> procedures = new ArrayList<>();
+        private final List<Integer> arities = new ArrayList<>();
+
+        Source(long seed) {
+            random = new Random(seed);
+        }
+
+        String program() {
+            StringBuilder program = new StringBuilder("|n|\n");
+            int count = random.nextInt(5);
+            for (int i = 0; i < count; i++) {
+                String name = "p" + i;
+                boolean parameter = random.nextInt(3) != 0;
+                program.append("proc ").append(name).append(parameter ? ": k [ " : " [ ");
+                // Sometimes recursive
+                boolean recursive = random.nextInt(3) == 0;
+                if (recursive) {
+                    procedures.add(name);
+                    arities.add(parameter ? 1 : 0);
+                }
+                block(program, 1 + random.nextInt(2), parameter ? "k" : null);
+                program.append("]\n");
+                if (!recursive) {
+                    procedures.add(name);
+                    arities.add(parameter ? 1 : 0);
+                }
+            }
+            block(program, 3, null);
+            return program.toString();
+        }
+
+        private void block(StringBuilder program, int depth, String parameter) {
+            int count = 1 + random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                statement(program, depth, parameter);
+            }
+        }
+
+        private void statement(StringBuilder program, int depth, String parameter) {
+            switch (random.nextInt(depth > 0 ? 22 : 16)) {
+                case 0:
+                case 1:
+                    program.append("turn: ").append(pick(TURNS)).append(" . ");
+                    break;
+                case 2:
+                    program.append("R . ");
+                    break;
+                case 3:
+                case 4:
+                    program.append("face: ").append(pick(ORIENTATIONS)).append(" . ");
+                    break;
+                case 5:
+                    program.append("nop . ");
+                    break;
+                case 6:
+                    program.append("M . ");
+                    break;
+                case 7:
+                    program.append("move: ").append(number(parameter)).append(" inDir: ").append(pick(ORIENTATIONS)).append(" . ");
+                    break;
+                case 8:
+                    program.append("move: ").append(number(parameter)).append(" toThe: ").append(pick(DIRECTIONS)).append(" . ");
+                    break;
+                case 9:
+                    program.append("pick: ").append(number(parameter)).append(" ofType: #chips . ");
+                    break;
+                case 10:
+                    program.append("put: ").append(number(parameter)).append(" ofType: #chips . ");
+                    break;
+                case 11:
+                    program.append(parameter == null ? "n := " + random.nextInt(3) + " . " : "c . ");
+                    break;
+                case 12:
+                case 13:
+                    call(program, parameter);
+                    break;
+                case 14:
+                    program.append("jump: ").append(number(parameter)).append(" toThe: ").append(pick(DIRECTIONS)).append(" . ");
+                    break;
+                case 15:
+                    program.append("b . ");
+                    break;
+                case 16:
+                case 17:
+                    program.append("if: ").append(condition(parameter)).append(" then: [ ");
+                    block(program, depth - 1, parameter);
+                    program.append("] else: [ ");
+                    if (random.nextInt(2) == 0) {
+                        block(program, depth - 1, parameter);
+                    } else {
+                        program.append("nop . ");
+                    }
+                    program.append("] ");
+                    break;
+                case 18:
+                    program.append("while: ").append(condition(parameter)).append(" do: [ ");
+                    block(program, depth - 1, parameter);
+                    program.append("] ");
+                    break;
+                default:
+                    program.append("for: ").append(random.nextInt(5) == 0 ? "n" : String.valueOf(random.nextInt(6)))
+                            .append(" repeat: [ ");
+                    block(program, depth - 1, parameter);
+                    program.append("] ");
+                    break;
+            }
+        }
+
+        private void call(StringBuilder program, String parameter) {
+            if (procedures.isEmpty()) {
+                program.append("M . ");
+                return;
+            }
+            int procedure = random.nextInt(procedures.size());
+            program.append(procedures.get(procedure));
+            if (arities.get(procedure) > 0) {
+                program.append(": ").append(number(parameter));
+            }
+            program.append(" . ");
+        }
+
+        private String condition(String parameter) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    return "facing: " + pick(ORIENTATIONS);
+                case 1:
+                    return "canMove: " + number(parameter) + " toThe: " + pick(DIRECTIONS);
+                case 2:
+                    return "canMove: " + number(parameter) + " inDir: " + pick(ORIENTATIONS);
+                case 3:
+                    return "canPick: " + number(parameter) + " ofType: #chips";
+                case 4:
+                    return "canPut: " + number(parameter) + " ofType: #balloons";
+                default:
+                    return "canJump: " + number(parameter) + " inDir: " + pick(ORIENTATIONS);
+            }
+        }
+
+        private String number(String parameter) {
+            int kind = random.nextInt(10);
+            if (kind < 2) {
+                return "0";
+            } else if (kind < 3 && parameter != null) {
+                return parameter;
+            } else if (kind < 4) {
+                return "n";
+            }
+            return String.valueOf(random.nextInt(4));
+        }
+
+        private String pick(String[] values) {
+            return values[random.nextInt(values.length)];
+        }
+    }
+}
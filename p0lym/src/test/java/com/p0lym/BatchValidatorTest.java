@@ -0,0 +1,116 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchValidatorTest {
+    @TempDir
+    Path directory;
+
+    // One line per file, with the verdict, first error and token count of the RobotValidator
+    @Test
+    void writesOneLinePerFile() throws IOException {
+        RobotValidator validator = new RobotValidator();
+        List<Path> files = new ArrayList<>();
+        Set<String> expected = new HashSet<>();
+        int valid = 0;
+        for (int p = 0; p < 150; p++) {
+            String program = p % 3 == 0 ? Programs.generate(p, 10, 3) + " ]" : Programs.generate(p, 10, 3);
+            Path file = directory.resolve("program" + p + ".txt");
+            Files.writeString(file, program, StandardCharsets.UTF_8);
+            files.add(file);
+            ValidationContext context = validator.validate(program);
+            valid += context.isValid() ? 1 : 0;
+            StringBuilder line = new StringBuilder("{\"path\":");
+            BatchValidator.json(line, file.toString());
+            line.append(",\"valid\":").append(context.isValid()).append(",\"error\":");
+            if (context.getError() == null) {
+                line.append("null");
+            } else {
+                BatchValidator.json(line, context.getError());
+            }
+            expected.add(line.toString());
+        }
+
+        StringWriter out = new StringWriter();
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        new BatchValidator(4).run(files, out, new PrintStream(summary, true, StandardCharsets.UTF_8));
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(files.size(), lines.length);
+        Set<String> written = new HashSet<>();
+        for (String line : lines) {
+            assertTrue(line.matches(".*,\"tokens\":\\d+,\"micros\":\\d+\\}"), line);
+            written.add(line.substring(0, line.indexOf(",\"tokens\":")));
+        }
+        assertEquals(expected, written);
+        String totals = summary.toString(StandardCharsets.UTF_8);
+        assertTrue(totals.matches("(?s)Archivos: 150 \\(\\S+ " + valid + ", \\S+ " + (150 - valid) + "\\) .*"), totals);
+        assertTrue(valid > 0 && valid < 150);
+    }
+
+    @Test
+    void listsEveryErrorWhenAsked() throws IOException {
+        Path file = directory.resolve("program.txt");
+        Files.writeString(file, "[ nop .\n  @ ]", StandardCharsets.UTF_8);
+        StringWriter out = new StringWriter();
+        new BatchValidator(1, null, true).run(List.of(file), out, new PrintStream(new ByteArrayOutputStream()));
+
+        String line = out.toString();
+        assertTrue(line.contains(",\"valid\":false,"), line);
+        assertTrue(line.contains(",\"errors\":[{\"kind\":"), line);
+        assertTrue(line.contains("\"line\":2,\"column\":3,"), line);
+    }
+
+    // A failing output stops the batch and its exception comes out of run(), even when the
+    // workers have filled the queue before the writer fails
+    @Test
+    void throwsWhenTheOutputFails() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int p = 0; p < 2000; p++) {
+            Path file = directory.resolve("program" + p + ".txt");
+            Files.writeString(file, "[ nop . ]", StandardCharsets.UTF_8);
+            files.add(file);
+        }
+        IOException broken = new IOException("disk full");
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw broken;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        IOException thrown = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IOException.class, () -> new BatchValidator(2).run(files, out, new PrintStream(summary))));
+        assertSame(broken, thrown);
+        assertEquals(0, summary.size());
+    }
+}
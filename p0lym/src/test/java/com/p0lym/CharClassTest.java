@@ -0,0 +1,18 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CharClassTest {
+    // The ASCII table answers what Character answers, and so does the fallback
+    @Test
+    void agreesWithCharacter() {
+        for (int c = 0; c <= Character.MAX_CODE_POINT; c++) {
+            assertEquals(Character.isWhitespace(c), CharClass.isWhitespace(c), "whitespace " + c);
+            assertEquals(Character.isLetter(c), CharClass.isLetter(c), "letter " + c);
+            assertEquals(Character.isDigit(c), CharClass.isDigit(c), "digit " + c);
+            assertEquals(Character.isLetterOrDigit(c), CharClass.isLetterOrDigit(c), "letter or digit " + c);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GridWorldTest {
+    private static final int[] DX = { 0, 1, 0, -1 };
+    private static final int[] DY = { -1, 0, 1, 0 };
+
+    @TempDir
+    Path directory;
+
+    // The bitboard checks agree with walking the cells one by one, on boards wider and taller
+    // than a word so moves cross word boundaries
+    @Test
+    void movesAndJumpsLikeACellByCellWalk() {
+        Random random = new Random(17);
+        for (int[] size : new int[][] { { 1, 1 }, { 7, 5 }, { 64, 3 }, { 65, 130 }, { 200, 70 } }) {
+            GridWorld world = new GridWorld(size[0], size[1]);
+            for (int i = 0; i < size[0] * size[1] / 6; i++) {
+                world.setObstacle(random.nextInt(size[0]), random.nextInt(size[1]), true);
+            }
+            for (int k = 0; k < 3000; k++) {
+                int x = random.nextInt(size[0]);
+                int y = random.nextInt(size[1]);
+                int orientation = random.nextInt(4);
+                int steps = random.nextInt(Math.max(size[0], size[1]) + 2);
+                world.place(x, y);
+                String at = size[0] + "x" + size[1] + " (" + x + ", " + y + ") " + orientation + " " + steps;
+                assertEquals(canMove(world, x, y, orientation, steps), world.canMove(orientation, steps), at);
+                assertEquals(canJump(world, x, y, orientation, steps), world.canJump(orientation, steps), at);
+
+                boolean moved = world.move(orientation, steps);
+                assertEquals(moved ? x + DX[orientation] * steps : x, world.getX(), at);
+                assertEquals(moved ? y + DY[orientation] * steps : y, world.getY(), at);
+            }
+        }
+    }
+
+    @Test
+    void putsPicksAndPops() {
+        GridWorld world = new GridWorld(3, 3);
+        world.place(2, 1);
+        world.setCarried(World.CHIPS, 4);
+        assertTrue(world.canPut(World.CHIPS, 4));
+        assertFalse(world.canPut(World.CHIPS, 5));
+        assertFalse(world.put(World.CHIPS, 5));
+        assertTrue(world.put(World.CHIPS, 3));
+        assertEquals(1, world.getCarried(World.CHIPS));
+        assertEquals(3, world.getCount(World.CHIPS, 2, 1));
+        assertEquals(0, world.getCount(World.BALLOONS, 2, 1));
+
+        assertFalse(world.pick(World.CHIPS, 4));
+        assertTrue(world.pick(World.CHIPS, 2));
+        assertEquals(3, world.getCarried(World.CHIPS));
+        assertEquals(2, world.getPicked(World.CHIPS));
+
+        world.setCount(World.BALLOONS, 2, 1, 2);
+        assertFalse(world.pop(3));
+        assertTrue(world.pop(2));
+        assertEquals(0, world.getCount(World.BALLOONS, 2, 1));
+        assertEquals(0, world.getCarried(World.BALLOONS));
+        // Nothing is always possible
+        assertTrue(world.put(World.BALLOONS, 0) && world.pick(World.BALLOONS, 0) && world.pop(0));
+
+        world.setCount(World.CHIPS, 0, 0, Short.MAX_VALUE);
+        world.place(0, 0);
+        assertFalse(world.canPut(World.CHIPS, 1));
+        assertThrows(IllegalArgumentException.class, () -> world.setCount(World.CHIPS, 0, 0, Short.MAX_VALUE + 1));
+    }
+
+    @Test
+    void goesOnlyToFreeCells() {
+        GridWorld world = new GridWorld(4, 4);
+        world.setObstacle(3, 3, true);
+        assertFalse(world.goTo(3, 3));
+        assertFalse(world.goTo(4, 0));
+        assertTrue(world.goTo(3, 0));
+        assertEquals(3, world.getX());
+        assertEquals(0, world.getY());
+    }
+
+    @Test
+    void copiesShareNothing() {
+        GridWorld world = new GridWorld(70, 3);
+        world.setObstacle(65, 1, true);
+        world.setCount(World.CHIPS, 2, 2, 5);
+        world.place(1, 2);
+        world.setFacing(World.WEST);
+        world.setCarried(World.BALLOONS, 3);
+        GridWorld copy = world.copy();
+        assertEquals(world.toString(), copy.toString());
+
+        copy.setObstacle(65, 1, false);
+        copy.move(World.EAST, 1);
+        copy.pick(World.CHIPS, 5);
+        assertTrue(world.isObstacle(65, 1));
+        assertEquals(1, world.getX());
+        assertEquals(5, world.getCount(World.CHIPS, 2, 2));
+        assertEquals(0, world.getPicked(World.CHIPS));
+
+        copy.copyFrom(world);
+        assertEquals(world.toString(), copy.toString());
+        assertEquals(0, copy.getPicked(World.CHIPS));
+        assertThrows(IllegalArgumentException.class, () -> new GridWorld(70, 4).copyFrom(world));
+
+        copy.clear();
+        assertEquals(new GridWorld(70, 3).toString(), copy.toString());
+        assertEquals(0, copy.getCarried(World.BALLOONS));
+    }
+
+    @Test
+    void loadsABoardFile() throws IOException {
+        Path file = directory.resolve("board.txt");
+        Files.writeString(file, "# a board\nsize 5 4\nrobot 1 2 east 3 2\n\nwall 3 0 3 2  # a column\n"
+                + "chips 0 0 4\nballoons 4 3 1\n");
+        GridWorld world = GridWorld.load(file);
+        assertEquals(5, world.getWidth());
+        assertEquals(4, world.getHeight());
+        assertEquals(1, world.getX());
+        assertEquals(2, world.getY());
+        assertEquals(World.EAST, world.getFacing());
+        assertEquals(3, world.getCarried(World.CHIPS));
+        assertEquals(2, world.getCarried(World.BALLOONS));
+        assertEquals(4, world.getCount(World.CHIPS, 0, 0));
+        assertEquals(1, world.getCount(World.BALLOONS, 4, 3));
+        assertEquals("*..#.\n...#.\n.>.#.\n....*\n", world.toString());
+
+        for (String board : new String[] { "robot 0 0\n", "size 2 2\nrobot 2 0\n", "size 2 2\nrobot 0 0 up\n",
+                "size 2 2\nlamp 0 0\n", "size 0 2\n", "# empty\n" }) {
+            Files.writeString(file, board);
+            assertThrows(IOException.class, () -> GridWorld.load(file), board);
+        }
+    }
+
+    private static boolean canMove(GridWorld world, int x, int y, int orientation, int steps) {
+        for (int i = 1; i <= steps; i++) {
+            int cx = x + DX[orientation] * i;
+            int cy = y + DY[orientation] * i;
+            if (!world.inside(cx, cy) || world.isObstacle(cx, cy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canJump(GridWorld world, int x, int y, int orientation, int steps) {
+        int cx = x + DX[orientation] * steps;
+        int cy = y + DY[orientation] * steps;
+        return world.inside(cx, cy) && !world.isObstacle(cx, cy);
+    }
+}
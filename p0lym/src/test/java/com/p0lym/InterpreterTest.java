@@ -0,0 +1,133 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class InterpreterTest {
+    @Test
+    void movesAndTurns() {
+        GridWorld world = world(6, 6, 2, 5);
+        Interpreter interpreter = run("[ move: 2 . turn: #right . move: 3 . turn: #around . M . R . ]", world);
+        assertEquals(Interpreter.HALTED, interpreter.getStatus());
+        assertEquals(4, world.getX());
+        assertEquals(3, world.getY());
+        assertEquals(World.NORTH, world.getFacing());
+
+        run("[ move: 1 toThe: #left . move: 2 inDir: #south . face: #west . ]", world);
+        assertEquals(3, world.getX());
+        assertEquals(5, world.getY());
+        assertEquals(World.WEST, world.getFacing());
+    }
+
+    @Test
+    void putsAndPicks() {
+        GridWorld world = world(3, 3, 1, 1);
+        world.setCarried(World.CHIPS, 5);
+        world.setCount(World.BALLOONS, 1, 1, 2);
+        Interpreter interpreter = run("[ put: 3 ofType: #chips . pick: 1 ofType: #chips . b . P . C . ]", world);
+        assertEquals(Interpreter.HALTED, interpreter.getStatus());
+        assertEquals(2, world.getCarried(World.CHIPS));
+        assertEquals(3, world.getCount(World.CHIPS, 1, 1));
+        assertEquals(1, world.getCarried(World.BALLOONS));
+        assertEquals(0, world.getCount(World.BALLOONS, 1, 1));
+        assertEquals(1, world.getPicked(World.CHIPS));
+        assertEquals(1, world.getPicked(World.BALLOONS));
+    }
+
+    @Test
+    void runsVariablesLoopsAndConditions() {
+        GridWorld world = world(10, 10, 0, 9);
+        Interpreter interpreter = run("|n m|\n[ n := 3 . m := n . for: m repeat: [ move: 1 . ] "
+                + "if: facing: #north then: [ turn: #right . ] else: [ turn: #left . ] "
+                + "while: canMove: 1 inDir: #east do: [ move: 1 inDir: #east . ] ]", world);
+        assertEquals(Interpreter.HALTED, interpreter.getStatus());
+        assertEquals(3, interpreter.getGlobal(0));
+        assertEquals(3, interpreter.getGlobal(1));
+        assertEquals(9, world.getX());
+        assertEquals(6, world.getY());
+        assertEquals(World.EAST, world.getFacing());
+    }
+
+    @Test
+    void callsProceduresWithTheirArguments() {
+        GridWorld world = world(10, 10, 0, 0);
+        world.setFacing(World.SOUTH);
+        Interpreter interpreter = run("|k|\nproc walk: n andThen: m [ |t| t := n . move: t . turn: #left . move: m . k := m . ]\n"
+                + "proc twice: n [ walk: n andThen: 1 . walk: n andThen: 1 . ]\n"
+                + "[ twice: 2 . ]", world);
+        assertEquals(Interpreter.HALTED, interpreter.getStatus());
+        assertEquals(1, interpreter.getGlobal(0));
+        // South 2, turn to the east, 1 on, 2 more, turn to the north, 1 on
+        assertEquals(3, world.getX());
+        assertEquals(1, world.getY());
+        assertEquals(World.NORTH, world.getFacing());
+    }
+
+    // The action that could not be done is not counted and changes nothing
+    @Test
+    void stopsWhenBlocked() {
+        GridWorld world = world(5, 5, 0, 4);
+        world.setObstacle(0, 1, true);
+        Interpreter interpreter = run("[ move: 2 . move: 2 . ]", world);
+        assertEquals(Interpreter.BLOCKED, interpreter.getStatus());
+        assertEquals(1, interpreter.getSteps());
+        assertEquals(2, world.getY());
+
+        world = world(5, 5, 0, 4);
+        world.setObstacle(0, 3, true);
+        assertEquals(Interpreter.HALTED, run("[ jump: 2 inDir: #north . ]", world).getStatus());
+        assertEquals(2, world.getY());
+        assertEquals(Interpreter.BLOCKED, run("[ pick: 1 ofType: #chips . ]", world).getStatus());
+        assertEquals(Interpreter.BLOCKED, run("[ goto: 0 with: 3 . ]", world).getStatus());
+        assertEquals(Interpreter.HALTED, run("[ goto: 4 with: 0 . ]", world).getStatus());
+        assertEquals(4, world.getX());
+        assertEquals(0, world.getY());
+    }
+
+    @Test
+    void stopsOnEndlessRecursion() {
+        Interpreter interpreter = run("proc again: n [ again: n . ]\n[ again: 1 . ]", world(3, 3, 0, 0));
+        assertEquals(Interpreter.STACK_OVERFLOW, interpreter.getStatus());
+    }
+
+    // Running in small budgets ends in the same state as running in one go
+    @Test
+    void resumesWhereTheBudgetRanOut() {
+        String program = "|n|\nproc walk: s [ for: s repeat: [ if: canMove: 1 toThe: #front then: [ move: 1 . ] "
+                + "else: [ turn: #right . ] ] n := s . ]\n[ for: 7 repeat: [ walk: 5 . walk: 3 . ] ]";
+        GridWorld once = world(8, 8, 3, 3);
+        Interpreter whole = run(program, once);
+        assertEquals(Interpreter.HALTED, whole.getStatus());
+
+        GridWorld sliced = world(8, 8, 3, 3);
+        Interpreter interpreter = new Interpreter(compile(program), sliced);
+        int slices = 0;
+        while (interpreter.run(3) == Interpreter.RUNNING) {
+            slices++;
+        }
+        assertEquals(Interpreter.HALTED, interpreter.getStatus());
+        assertEquals(whole.getSteps(), interpreter.getSteps());
+        assertEquals((whole.getSteps() - 1) / 3, slices);
+        assertEquals(once.toString(), sliced.toString());
+        assertEquals(whole.getGlobal(0), interpreter.getGlobal(0));
+    }
+
+    private static GridWorld world(int width, int height, int x, int y) {
+        GridWorld world = new GridWorld(width, height);
+        world.place(x, y);
+        return world;
+    }
+
+    private static Interpreter run(String program, World world) {
+        Interpreter interpreter = new Interpreter(compile(program), world);
+        interpreter.run(Long.MAX_VALUE);
+        return interpreter;
+    }
+
+    private static Bytecode compile(String program) {
+        ValidationContext context = new RobotValidator().validate(program);
+        assertEquals(true, context.isValid(), program + "\n" + context.getError());
+        return BytecodeCompiler.compile(context.getProgram());
+    }
+}
@@ -0,0 +1,96 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+class MappedLexerTest {
+    // Letters, digits and symbols outside ASCII, some of them outside the BMP
+    private static final String[] UNICODE = { "\u00e9", "\u00f1o", "\u0661", "\u00a0", "\u2028", "\u20ac",
+            "\ud835\udc65", "a\ud835\udc65b", "#\ud835\udc65", "1\ud835\udfd9", "\ud83d\ude00", "x\ud83d\ude00y", "\r\n", "\t" };
+
+    @Test
+    void sameTokensAsTheReaderLexer() throws IOException {
+        try (Stream<Path> paths = Files.list(Path.of("resources"))) {
+            for (Path file : paths.sorted().collect(Collectors.toList())) {
+                assertSameTokens(Files.readString(file));
+            }
+        }
+        Random random = new Random(5);
+        for (int p = 0; p < 300; p++) {
+            String program = Programs.mutate(Programs.generate(p, 40, 5), random);
+            for (int i = random.nextInt(4); i > 0; i--) {
+                int offset = random.nextInt(program.length() + 1);
+                program = program.substring(0, offset) + UNICODE[random.nextInt(UNICODE.length)] + program.substring(offset);
+            }
+            assertSameTokens(program);
+        }
+    }
+
+    @Test
+    void readsLettersOutsideTheBmpAsPartOfIdentifiers() throws IOException {
+        for (String text : UNICODE) {
+            assertSameTokens(text);
+            assertSameTokens("[ " + text + " ]");
+        }
+        List<Token> tokens = lex("a\ud835\udc65b := 1");
+        assertEquals(TokenType.IDENTIFIER, tokens.get(0).getType());
+        assertEquals("a\ud835\udc65b", tokens.get(0).getValue());
+        assertEquals(6, tokens.get(1).getColumn());
+    }
+
+    // An invalid token stays in the stream and is reported where it is
+    @Test
+    void keepsInvalidTokensForTheParser() {
+        ByteBuffer source = ByteBuffer.wrap("[ nop .\n  @ ]".getBytes(StandardCharsets.UTF_8));
+        TokenStream tokens = new MappedLexer(source).tokenize();
+        assertEquals(5, tokens.size());
+        assertEquals(TokenType.INVALID, tokens.type(3));
+
+        Diagnostics diagnostics = new RobotValidator(null, true).validate(tokens).getDiagnostics();
+        assertEquals(Diagnostics.Message.INVALID_TOKEN, diagnostics.getMessage(0));
+        assertEquals(2, diagnostics.getLine(0));
+        assertEquals(3, diagnostics.getColumn(0));
+    }
+
+    private static void assertSameTokens(String text) throws IOException {
+        List<Token> expected = lex(text);
+        MappedLexer lexer = new MappedLexer(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        List<Token> actual = new ArrayList<>();
+        for (int i = 0; i < expected.size(); i++) {
+            actual.add(lexer.nextToken());
+        }
+        assertEquals(describe(expected), describe(actual), text);
+    }
+
+    // Every token up to and with the EOF token
+    private static List<Token> lex(String text) throws IOException {
+        RobotLexerParser lexer = new RobotLexerParser(new StringReader(text));
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token);
+        } while (token.getType() != TokenType.EOF);
+        return tokens;
+    }
+
+    private static String describe(List<Token> tokens) {
+        return tokens.stream().map(Token::toString).collect(Collectors.joining("\n"));
+    }
+}
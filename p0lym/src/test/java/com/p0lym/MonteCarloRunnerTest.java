@@ -0,0 +1,79 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MonteCarloRunnerTest {
+    // Walks ahead picking chips until something is in the way, then tries to step right: some
+    // runs end, some are blocked and some run out of budget
+    private static final String PROGRAM = "[ while: canMove: 1 toThe: #front do: [ move: 1 . "
+            + "if: canPick: 1 ofType: #chips then: [ pick: 1 ofType: #chips . ] else: [ nop . ] ] "
+            + "turn: #right . move: 1 . ]";
+    private static final int RUNS = 3000;
+    private static final long BUDGET = 40;
+
+    // The merged tallies are those of running every board one after another
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void tallies(int threads) {
+        Bytecode bytecode = BytecodeCompiler.compile(new RobotValidator().validate(PROGRAM).getProgram());
+        RandomBoards boards = new RandomBoards(9, 7, 42);
+        boards.setItemPercent(30);
+        MonteCarloRunner.Goal goal = board -> board.getPicked(World.CHIPS) > 0;
+
+        long[] statuses = new long[5];
+        long successes = 0;
+        long steps = 0;
+        long minSteps = Long.MAX_VALUE;
+        long maxSteps = 0;
+        long[] stepHistogram = new long[64];
+        long[][] positions = new long[9][7];
+        long[][] picked = new long[2][MonteCarloRunner.PICKED_BUCKETS];
+        for (int run = 0; run < RUNS; run++) {
+            GridWorld board = boards.board(run, null);
+            Interpreter interpreter = new Interpreter(bytecode, board);
+            int status = interpreter.run(BUDGET);
+            statuses[status]++;
+            if (status == Interpreter.HALTED && goal.reached(board)) {
+                successes++;
+            }
+            steps += interpreter.getSteps();
+            minSteps = Math.min(minSteps, interpreter.getSteps());
+            maxSteps = Math.max(maxSteps, interpreter.getSteps());
+            stepHistogram[64 - Long.numberOfLeadingZeros(interpreter.getSteps())]++;
+            positions[board.getX()][board.getY()]++;
+            for (int type : new int[] { World.CHIPS, World.BALLOONS }) {
+                picked[type][Math.min(board.getPicked(type), MonteCarloRunner.PICKED_BUCKETS - 1)]++;
+            }
+        }
+
+        MonteCarloRunner runner = new MonteCarloRunner(bytecode, threads);
+        runner.setBudget(BUDGET);
+        runner.setGoal(goal);
+        MonteCarloRunner.Result result = runner.run(boards, RUNS);
+
+        assertEquals(RUNS, result.getRuns());
+        for (int status = 0; status < statuses.length; status++) {
+            assertEquals(statuses[status], result.getStatusCount(status), "status " + status);
+        }
+        assertTrue(statuses[Interpreter.RUNNING] > 0 && statuses[Interpreter.HALTED] > 0
+                && statuses[Interpreter.BLOCKED] > 0, "every kind of ending shows up");
+        assertEquals(successes, result.getSuccesses());
+        assertEquals((double) successes / RUNS, result.getSuccessRate());
+        assertEquals(steps, result.getTotalSteps());
+        assertEquals(minSteps, result.getMinSteps());
+        assertEquals(maxSteps, result.getMaxSteps());
+        assertArrayEquals(stepHistogram, result.getStepHistogram());
+        for (int x = 0; x < 9; x++) {
+            for (int y = 0; y < 7; y++) {
+                assertEquals(positions[x][y], result.getFinalPositions(x, y), "(" + x + ", " + y + ")");
+            }
+        }
+        assertArrayEquals(picked[World.CHIPS], result.getPickedHistogram(World.CHIPS));
+        assertArrayEquals(picked[World.BALLOONS], result.getPickedHistogram(World.BALLOONS));
+    }
+}
@@ -0,0 +1,24 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ParallelValidatorTest {
+    // Same diagnostics and, for a valid program, the same bytecode as validating in one piece
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void matchesTheSequentialValidator(boolean recover) {
+        RobotValidator validator = new RobotValidator(null, recover);
+        ParallelValidator parallel = new ParallelValidator(validator, 4);
+        for (int p = 0; p < 200; p++) {
+            Random random = new Random(p * 17 + (recover ? 1 : 0));
+            String program = Programs.mutate(Programs.generate(p, 40, 30), random);
+            assertEquals(Programs.describe(validator.validate(program)), Programs.describe(parallel.validate(program)),
+                    "program " + p + ":\n" + program);
+        }
+    }
+}
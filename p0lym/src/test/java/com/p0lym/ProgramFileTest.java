@@ -0,0 +1,81 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgramFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsWhatWasWritten() throws IOException {
+        RobotValidator validator = new RobotValidator();
+        Path file = directory.resolve("program.robc");
+        for (int p = 0; p < 100; p++) {
+            ProgramGenerator generator = new ProgramGenerator(p);
+            generator.setStatements(5 + p * 2);
+            generator.setProcedures(p % 40);
+            Ast.Program program = validator.validate(generator.generate()).getProgram();
+            if (p % 2 == 1) {
+                AstOptimizer optimizer = new AstOptimizer();
+                optimizer.setMergeMoves(p % 4 == 1);
+                program = optimizer.optimize(program);
+            }
+            Bytecode bytecode = BytecodeCompiler.compile(program);
+            ProgramFile.write(file, program, bytecode);
+
+            ProgramFile loaded = ProgramFile.load(file);
+            assertEquals(Programs.describe(bytecode), Programs.describe(loaded.getBytecode()), "program " + p);
+            assertEquals(bytecode.getProcedureCount(), loaded.getProcedureCount());
+            assertEquals(bytecode.getGlobalCount(), loaded.getGlobalNames().length);
+            int procedure = 0;
+            for (Ast.Node item : program.getItems()) {
+                if (item instanceof Ast.ProcDecl) {
+                    Ast.ProcDecl declaration = (Ast.ProcDecl) item;
+                    SignatureIndex.Signature signature = loaded.getSignature(procedure++);
+                    assertArrayEquals(values(declaration.getParts()), signature.getParts());
+                    assertArrayEquals(values(declaration.getParams()), signature.getNames());
+                }
+            }
+        }
+    }
+
+    @Test
+    void refusesDamagedFiles() throws IOException {
+        ProgramGenerator generator = new ProgramGenerator(1);
+        generator.setStatements(100);
+        generator.setProcedures(10);
+        Ast.Program program = new RobotValidator().validate(generator.generate()).getProgram();
+        Path file = directory.resolve("program.robc");
+        ProgramFile.write(file, program, BytecodeCompiler.compile(program));
+        byte[] bytes = Files.readAllBytes(file);
+
+        for (int k = 0; k < 150; k++) {
+            Random random = new Random(k);
+            byte[] damaged = bytes.clone();
+            if (k % 3 == 0) {
+                damaged[random.nextInt(damaged.length)] ^= (byte) (1 + random.nextInt(255));
+            } else if (k % 3 == 1) {
+                damaged = Arrays.copyOf(damaged, random.nextInt(damaged.length));
+            } else {
+                damaged = Arrays.copyOf(damaged, damaged.length + 1 + random.nextInt(9));
+            }
+            Files.write(file, damaged);
+            assertThrows(IOException.class, () -> ProgramFile.load(file), "damage " + k);
+        }
+    }
+
+    private static String[] values(RobotLexerParser.Token[] tokens) {
+        return Arrays.stream(tokens).map(RobotLexerParser.Token::getValue).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,38 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ProgramGeneratorTest {
+    private final RobotValidator validator = new RobotValidator();
+
+    @Test
+    void generatesValidProgramsUnlessDamaged() {
+        for (int seed = 0; seed < 100; seed++) {
+            ProgramGenerator generator = new ProgramGenerator(seed);
+            generator.setStatements(20);
+            generator.setProcedures(seed % 8);
+            String program = generator.generate();
+            assertTrue(validator.validate(program).isValid(), program);
+
+            for (ProgramGenerator.Defect defect : ProgramGenerator.Defect.values()) {
+                generator.setDefect(defect);
+                String damaged = generator.generate();
+                assertFalse(validator.validate(damaged).isValid(), defect + "\n" + damaged);
+            }
+            generator.setDefect(null);
+        }
+    }
+
+    @Test
+    void sameSeedGivesTheSameProgram() {
+        ProgramGenerator first = new ProgramGenerator(42);
+        ProgramGenerator second = new ProgramGenerator(42);
+        first.setStatements(200);
+        second.setStatements(200);
+        assertEquals(first.generate(), second.generate());
+    }
+}
@@ -0,0 +1,125 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ProgramSchedulerTest {
+    private static final Bytecode FOREVER = compile("[ while: facing: #north do: [ nop . ] ]");
+
+    // Programs still being passed between carriers when the scheduler is closed run to their end
+    @Test
+    void closeWaitsForSubmittedPrograms() {
+        Bytecode loop = compile("[ for: 100 repeat: [ nop . ] ]");
+        ProgramScheduler scheduler = new ProgramScheduler(2, 10);
+        List<ProgramScheduler.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            jobs.add(scheduler.submit(loop, new GridWorld(4, 4), 50, 1, TimeUnit.MINUTES));
+        }
+        scheduler.close();
+
+        for (ProgramScheduler.Job job : jobs) {
+            assertEquals(ProgramScheduler.Outcome.STEP_LIMIT, job.getOutcome());
+        }
+        assertEquals(jobs.size(), scheduler.getFinished());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.submit(loop, new GridWorld(4, 4), 50, 1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    void stopsAtTheStepLimit() throws InterruptedException {
+        try (ProgramScheduler scheduler = new ProgramScheduler(1, 7)) {
+            ProgramScheduler.Job job = scheduler.submit(FOREVER, new GridWorld(4, 4), 1000, 1, TimeUnit.MINUTES);
+            assertEquals(ProgramScheduler.Outcome.STEP_LIMIT, job.await());
+            assertEquals(1000, job.getSteps());
+        }
+    }
+
+    @Test
+    void stopsAtTheTimeLimit() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (ProgramScheduler scheduler = new ProgramScheduler(1, 1000)) {
+                ProgramScheduler.Job job = scheduler.submit(FOREVER, new GridWorld(4, 4), Long.MAX_VALUE, 50,
+                        TimeUnit.MILLISECONDS);
+                assertEquals(ProgramScheduler.Outcome.TIME_LIMIT, job.await());
+                assertTrue(job.getSteps() > 0);
+            }
+        });
+    }
+
+    @Test
+    void stopsACancelledProgram() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (ProgramScheduler scheduler = new ProgramScheduler(1, 1000)) {
+                ProgramScheduler.Job job = scheduler.submit(FOREVER, new GridWorld(4, 4), Long.MAX_VALUE, 1,
+                        TimeUnit.HOURS);
+                try {
+                    assertFalse(job.isDone());
+                } finally {
+                    job.cancel();
+                }
+                assertEquals(ProgramScheduler.Outcome.CANCELLED, job.await());
+            }
+        });
+    }
+
+    // A program that never ends only holds the single carrier for one slice at a time
+    @Test
+    void shortProgramsDoNotWaitForLongOnes() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (ProgramScheduler scheduler = new ProgramScheduler(1, 100)) {
+                ProgramScheduler.Job slow = scheduler.submit(FOREVER, new GridWorld(4, 4), Long.MAX_VALUE, 1,
+                        TimeUnit.HOURS);
+                Bytecode quick = compile("[ turn: #right . turn: #left . ]");
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        ProgramScheduler.Job job = scheduler.submit(quick, new GridWorld(4, 4), 1000, 1, TimeUnit.HOURS);
+                        assertEquals(ProgramScheduler.Outcome.HALTED, job.await());
+                    }
+                    assertFalse(slow.isDone());
+                } finally {
+                    slow.cancel();
+                }
+            }
+        });
+    }
+
+    // A program whose world throws ends as FAILED; the carrier goes on with the rest and
+    // close() does not wait for the failed one
+    @Test
+    void failsAProgramThatThrows() {
+        IllegalStateException broken = new IllegalStateException("broken world");
+        GridWorld world = new GridWorld(4, 4) {
+            @Override
+            public boolean move(int orientation, int steps) {
+                throw broken;
+            }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            ProgramScheduler scheduler = new ProgramScheduler(1, 10);
+            ProgramScheduler.Job failed = scheduler.submit(compile("[ move: 1 . ]"), world, 1000, 1, TimeUnit.HOURS);
+            ProgramScheduler.Job next = scheduler.submit(compile("[ nop . ]"), new GridWorld(4, 4), 1000, 1,
+                    TimeUnit.HOURS);
+            scheduler.close();
+
+            assertEquals(ProgramScheduler.Outcome.FAILED, failed.getOutcome());
+            assertSame(broken, failed.getFailure());
+            assertEquals(ProgramScheduler.Outcome.HALTED, next.getOutcome());
+            assertEquals(2, scheduler.getFinished());
+        });
+    }
+
+    private static Bytecode compile(String program) {
+        return BytecodeCompiler.compile(new RobotValidator().validate(program).getProgram());
+    }
+}
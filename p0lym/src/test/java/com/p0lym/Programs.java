@@ -0,0 +1,100 @@
+package com.p0lym;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Generated and damaged programs shared by the tests, and a comparable description of the
+// diagnostics and bytecode the validator makes for them
+final class Programs {
+    // Pieces of programs pasted over generated ones
+    static final String[] SNIPPETS = { " ", "\n", ".", "[", "]", "|", "|x|", "x", "proc ", "proc p: a [ nop . ]",
+            "move: 1 .", "nop .", "foo: 1 .", "@", ":", ":=", "x := 1 .", "#north",
+            "if: facing: #north then: [ nop . ] else: [ nop . ]", "else: [ nop . ]", "\n[ nop . ]\n", "turn: #left .",
+            "|y z|", "p: 2 .", "a", "1", "\u00e9", "proc q [ nop . ]", "for: x repeat: [ nop . ]", "\0",
+            "\nproc ", "\n  proc q: a [ move: a ]\n", "\n|zz ww|\n", "\n[ |loc| loc := 1 ]\n", "\r\n",
+            "\nproc\n", "\nprocx ", "\nproc [", "\nproc a: b and: [", "\n]\nproc z [ ]", "\nproc r: x [ r: x ]\n" };
+
+    private Programs() {
+    }
+
+    // A generated program, with a defect one time in three
+    static String generate(long seed, int maxStatements, int maxProcedures) {
+        Random random = new Random(seed);
+        ProgramGenerator generator = new ProgramGenerator(seed);
+        generator.setStatements(5 + random.nextInt(maxStatements));
+        generator.setProcedures(random.nextInt(maxProcedures + 1));
+        if (random.nextInt(3) == 0) {
+            ProgramGenerator.Defect[] defects = ProgramGenerator.Defect.values();
+            generator.setDefect(defects[random.nextInt(defects.length)]);
+        }
+        return generator.generate();
+    }
+
+    // Pastes a few snippets over the text, or swaps two procedures so one calls ahead
+    static String mutate(String text, Random random) {
+        int mutations = random.nextInt(3) == 0 ? 0 : random.nextInt(4);
+        for (int m = 0; m < mutations; m++) {
+            if (random.nextInt(4) == 0) {
+                text = swapProcedures(text, random);
+                continue;
+            }
+            int offset = random.nextInt(text.length() + 1);
+            int length = Math.min(text.length() - offset, random.nextInt(3));
+            text = text.substring(0, offset) + SNIPPETS[random.nextInt(SNIPPETS.length)] + text.substring(offset + length);
+        }
+        return text;
+    }
+
+    private static String swapProcedures(String text, Random random) {
+        int first = text.indexOf("proc ", random.nextInt(text.length() + 1));
+        int second = first < 0 ? -1 : text.indexOf("proc ", first + 1);
+        if (second < 0) {
+            return text;
+        }
+        int end = text.indexOf("\nproc ", second);
+        if (end < 0) {
+            end = text.indexOf("\n[", second);
+        }
+        if (end <= second) {
+            return text;
+        }
+        return text.substring(0, first) + text.substring(second, end + 1) + text.substring(first, second)
+                + text.substring(end + 1);
+    }
+
+    static String describe(Diagnostics diagnostics) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < diagnostics.size(); i++) {
+            description.append(diagnostics.getMessage(i)).append('@').append(diagnostics.getLine(i)).append(':')
+                    .append(diagnostics.getColumn(i)).append(' ').append(diagnostics.format(i)).append('\n');
+        }
+        return description.append("dropped ").append(diagnostics.getDropped()).toString();
+    }
+
+    // Diagnostics, verdict and, for a valid program, its bytecode
+    static String describe(ValidationContext context) {
+        StringBuilder description = new StringBuilder(describe(context.getDiagnostics()));
+        description.append(" valid ").append(context.isValid()).append(" error ").append(context.getError());
+        if (context.isValid()) {
+            description.append('\n').append(describe(BytecodeCompiler.compile(context.getProgram())));
+        }
+        return description.toString();
+    }
+
+    static String describe(Bytecode bytecode) {
+        StringBuilder description = new StringBuilder();
+        description.append("code ").append(Arrays.toString(bytecode.getCode()))
+                .append(" pool ").append(Arrays.toString(bytecode.getPool()))
+                .append(" globals ").append(bytecode.getGlobalCount())
+                .append(" frame ").append(bytecode.getFrameSize())
+                .append(" lines");
+        for (int pc = 0; pc < bytecode.size(); pc++) {
+            description.append(' ').append(bytecode.getLine(pc));
+        }
+        for (int i = 0; i < bytecode.getProcedureCount(); i++) {
+            description.append(" proc ").append(bytecode.getEntry(i)).append('/').append(bytecode.getParamCount(i))
+                    .append('/').append(bytecode.getFrameSize(i));
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void sharesResultsBetweenInstances() throws IOException {
+        Path file = directory.resolve("cache");
+        try (ResultCache first = new ResultCache(file, 1 << 20); ResultCache second = new ResultCache(file, 1 << 20)) {
+            first.put(1, new ResultCache.Result(true, null, 10));
+            second.put(2, new ResultCache.Result(false, "Error: l\u00ednea 3", 4));
+
+            assertResult(true, null, 10, second.get(1));
+            assertResult(false, "Error: l\u00ednea 3", 4, first.get(2));
+            assertNull(first.get(3));
+        }
+        try (ResultCache reopened = new ResultCache(file, 1 << 20)) {
+            assertEquals(2, reopened.size());
+            assertResult(false, "Error: l\u00ednea 3", 4, reopened.get(2));
+        }
+    }
+
+    // A record cut short (a crash in the middle of an append) is dropped with anything after
+    // it, and the records before it are kept
+    @Test
+    void repairsARecordCutShort() throws IOException {
+        Path file = directory.resolve("cache");
+        long whole;
+        try (ResultCache cache = new ResultCache(file, 1 << 20)) {
+            for (int key = 0; key < 10; key++) {
+                cache.put(key, new ResultCache.Result(key % 2 == 0, key % 2 == 0 ? null : "error " + key, key));
+            }
+            whole = Files.size(file);
+            cache.put(10, new ResultCache.Result(false, "the last one", 10));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        try (ResultCache cache = new ResultCache(file, 1 << 20)) {
+            assertEquals(whole, Files.size(file));
+            assertEquals(10, cache.size());
+            assertResult(false, "error 9", 9, cache.get(9));
+            assertNull(cache.get(10));
+            cache.put(10, new ResultCache.Result(true, null, 10));
+        }
+        try (ResultCache cache = new ResultCache(file, 1 << 20)) {
+            assertEquals(11, cache.size());
+            assertResult(true, null, 10, cache.get(10));
+        }
+    }
+
+    @Test
+    void dropsADamagedRecord() throws IOException {
+        Path file = directory.resolve("cache");
+        long whole;
+        try (ResultCache cache = new ResultCache(file, 1 << 20)) {
+            cache.put(1, new ResultCache.Result(true, null, 1));
+            whole = Files.size(file);
+            cache.put(2, new ResultCache.Result(true, null, 2));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, whole + 6);
+            last.put(0, (byte) (last.get(0) ^ 0x55)).rewind();
+            channel.write(last, whole + 6);
+        }
+        try (ResultCache cache = new ResultCache(file, 1 << 20)) {
+            assertEquals(whole, Files.size(file));
+            assertNotNull(cache.get(1));
+            assertNull(cache.get(2));
+        }
+    }
+
+    // The file is rewritten once it grows past twice maxBytes; an instance that read the old
+    // file rereads the new one
+    @Test
+    void compactsTheFileSharedByInstances() throws IOException {
+        Path file = directory.resolve("cache");
+        long maxBytes = 64 * 10;
+        try (ResultCache writer = new ResultCache(file, maxBytes); ResultCache reader = new ResultCache(file, maxBytes)) {
+            for (int key = 0; key < 500; key++) {
+                writer.put(key, new ResultCache.Result(true, null, key));
+                assertTrue(Files.size(file) <= 2 * maxBytes + 64, "size after " + key);
+                if (key % 37 == 0) {
+                    assertResult(true, null, key, reader.get(key));
+                }
+            }
+            assertResult(true, null, 499, reader.get(499));
+            assertTrue(writer.size() <= 10);
+            assertTrue(reader.size() <= 10);
+        }
+        try (ResultCache reopened = new ResultCache(file, maxBytes)) {
+            assertResult(true, null, 499, reopened.get(499));
+            assertNull(reopened.get(0));
+        }
+    }
+
+    private static void assertResult(boolean valid, String error, int tokens, ResultCache.Result result) {
+        assertNotNull(result);
+        assertEquals(valid, result.isValid());
+        assertEquals(error, result.getError());
+        assertEquals(tokens, result.getTokens());
+    }
+}
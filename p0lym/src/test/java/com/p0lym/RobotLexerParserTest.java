@@ -0,0 +1,73 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.p0lym.RobotLexerParser.Token;
+
+class RobotLexerParserTest {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private PrintStream out;
+
+    @BeforeEach
+    void captureOutput() {
+        out = System.out;
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(out);
+    }
+
+    // parser(tokens, null, null) gives the verdict RobotValidator gives
+    @Test
+    void parserValidatesWholePrograms() {
+        RobotValidator validator = new RobotValidator();
+        Random random = new Random(2);
+        for (int p = 0; p < 200; p++) {
+            String program = Programs.mutate(Programs.generate(p, 40, 6), random);
+            assertEquals(validator.validate(program).isValid(), parser(program), "program " + p + ":\n" + program);
+        }
+    }
+
+    @Test
+    void parserPrintsTheFirstError() {
+        assertFalse(parser("[ move: 1 inDir: #left . ]"));
+        assertTrue(output.toString(StandardCharsets.UTF_8).startsWith("Error: "));
+
+        output.reset();
+        assertFalse(parser(""));
+        assertEquals("Error: Invalid token", output.toString(StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    void parserOnlyTakesWholePrograms() {
+        ArrayList<Token> tokens = new RobotLexerParser(new StringReader("[ nop . ]")).lexer();
+        assertThrows(IllegalArgumentException.class,
+                () -> new RobotLexerParser(new StringReader("")).parser(tokens, tokens, null));
+        HashMap<String, Token> variables = new HashMap<>();
+        variables.put("x", null);
+        assertThrows(IllegalArgumentException.class,
+                () -> new RobotLexerParser(new StringReader("")).parser(tokens, null, variables));
+    }
+
+    private static boolean parser(String program) {
+        RobotLexerParser lexerParser = new RobotLexerParser(new StringReader(program));
+        return lexerParser.parser(lexerParser.lexer(), null, null);
+    }
+}
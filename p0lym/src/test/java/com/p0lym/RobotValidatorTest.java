@@ -0,0 +1,95 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class RobotValidatorTest {
+    private final RobotValidator validator = new RobotValidator();
+
+    // Valid2 and Valid3 put a period after conditions, which the grammar has never taken
+    @Test
+    void validatesTheSamplePrograms() throws IOException {
+        assertTrue(validator.validate(Path.of("resources", "Valid1.txt")).isValid());
+        for (int i = 1; i <= 5; i++) {
+            Path file = Path.of("resources", "Invalid" + i + ".txt");
+            assertFalse(validator.validate(file).isValid(), file.toString());
+        }
+    }
+
+    @Test
+    void refusesIndexesThatAreNotFrozen() {
+        SignatureIndex open = new SignatureIndex(false, false);
+        assertThrows(IllegalArgumentException.class,
+                () -> new RobotValidator(open, BuiltinCatalog.CONDITIONS, null, false));
+        assertFalse(open.isFrozen());
+    }
+
+    // One validator shared by several threads gives every program the result it gets alone
+    @Test
+    void sharesOneValidatorBetweenThreads() throws Exception {
+        List<ByteBuffer> sources = new ArrayList<>();
+        for (Path file : samples()) {
+            sources.add(MappedLexer.map(file));
+        }
+        Random random = new Random(1);
+        for (int seed = 0; seed < 60; seed++) {
+            String program = Programs.mutate(Programs.generate(seed, 60, 10), random);
+            sources.add(ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8)));
+        }
+        List<String> expected = results(sources);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    List<String> results = null;
+                    for (int round = 0; round < 20; round++) {
+                        results = results(sources);
+                        if (!results.equals(expected)) {
+                            break;
+                        }
+                    }
+                    return results;
+                }));
+            }
+            for (Future<List<String>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<String> results(List<ByteBuffer> sources) {
+        List<String> results = new ArrayList<>();
+        for (ByteBuffer source : sources) {
+            results.add(Programs.describe(validator.validate(source)));
+        }
+        return results;
+    }
+
+    private static List<Path> samples() throws IOException {
+        try (Stream<Path> paths = Files.list(Path.of("resources"))) {
+            return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SignatureIndexTest {
+    private final RobotValidator validator = new RobotValidator();
+
+    @Test
+    void callsProcedureWithoutParametersByItsName() {
+        ValidationContext context = validator.validate("proc a [ nop . ]\n[ a . ]");
+        assertTrue(context.isValid(), context.getError());
+
+        Interpreter interpreter = new Interpreter(BytecodeCompiler.compile(context.getProgram()), new GridWorld(4, 4));
+        assertEquals(Interpreter.HALTED, interpreter.run(1000));
+
+        assertFalse(validator.validate("proc a [ nop . ]\n[ a: 1 . ]").isValid());
+        assertFalse(validator.validate("proc a: x [ nop . ]\n[ a . ]").isValid());
+    }
+
+    @Test
+    void matchesKeywordsAndArgumentsOfUserProcedures() {
+        String procedures = "proc go: n inDir: d [ move: n inDir: #north . ]\n";
+        assertTrue(validator.validate(procedures + "[ go: 1 inDir: #north . ]").isValid());
+        assertFalse(validator.validate(procedures + "[ go: 1 toThe: #north . ]").isValid());
+        assertFalse(validator.validate(procedures + "[ go: 1 . ]").isValid());
+        assertFalse(validator.validate(procedures + "[ go: x inDir: #north . ]").isValid());
+    }
+
+    @Test
+    void checksConstantsOfBuiltins() {
+        assertTrue(validator.validate("[ move: 1 inDir: #north . ]").isValid());
+        assertFalse(validator.validate("[ move: 1 inDir: #left . ]").isValid());
+        assertTrue(validator.validate("[ if: facing: #west then: [ nop . ] else: [ nop . ] ]").isValid());
+        assertFalse(validator.validate("[ if: facing: #chips then: [ nop . ] else: [ nop . ] ]").isValid());
+    }
+}
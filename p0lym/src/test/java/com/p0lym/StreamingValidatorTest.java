@@ -0,0 +1,41 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingValidatorTest {
+    @Test
+    void givesTheVerdictOfTheWholeProgram() throws IOException {
+        RobotValidator validator = new RobotValidator();
+        Random random = new Random(3);
+        for (int p = 0; p < 200; p++) {
+            String program = Programs.mutate(Programs.generate(p, 80, 10), random);
+            ByteBuffer source = ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8));
+            boolean streamed = new StreamingValidator(new MappedLexer(source), validator).validate();
+            assertEquals(validator.validate(program).isValid(), streamed, "program " + p + ":\n" + program);
+        }
+    }
+
+    // Nesting is kept on an explicit stack, not the Java one
+    @Test
+    void validatesDeeplyNestedBlocks() throws IOException {
+        StringBuilder program = new StringBuilder("[ ");
+        for (int i = 0; i < 100_000; i++) {
+            program.append("for: 1 repeat: [ ");
+        }
+        program.append("nop . ");
+        for (int i = 0; i < 100_000; i++) {
+            program.append("] ");
+        }
+        program.append(']');
+        ByteBuffer source = ByteBuffer.wrap(program.toString().getBytes(StandardCharsets.UTF_8));
+        assertTrue(new StreamingValidator(new MappedLexer(source), new RobotValidator()).validate());
+    }
+}
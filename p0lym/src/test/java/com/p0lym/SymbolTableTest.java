@@ -0,0 +1,83 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.p0lym.RobotLexerParser.Token;
+import com.p0lym.RobotLexerParser.TokenType;
+
+class SymbolTableTest {
+    @Test
+    void givesEachNameOneDenseId() {
+        SymbolTable symbols = new SymbolTable();
+        int first = SymbolTable.builtinCount();
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            String name = "name" + i;
+            int id = symbols.intern(name);
+            assertEquals(first + i, id);
+            ids.put(name, id);
+        }
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            assertEquals(entry.getValue(), symbols.intern(entry.getKey()));
+            assertEquals(entry.getKey(), symbols.name(entry.getValue()));
+        }
+        assertEquals(first + ids.size(), symbols.size());
+    }
+
+    @Test
+    void builtinNamesHaveTheSameIdInEveryTable() {
+        for (String name : new String[] { "move", "inDir", "#north", "#chips", "canMove", "facing" }) {
+            int id = SymbolTable.builtin(name);
+            assertTrue(id >= 0 && id < SymbolTable.builtinCount(), name);
+            assertEquals(id, new SymbolTable().intern(name));
+            assertEquals(id, new SymbolTable().intern(name));
+        }
+        assertEquals(SymbolTable.UNKNOWN, SymbolTable.builtin("notBuiltin"));
+    }
+
+    // A name seen again is the same String with the same id; numbers are not interned
+    @Test
+    void lexersShareOneStringPerName() {
+        String program = "|x y| [ x := 12 . y := 12 . move: x inDir: #north . x := 3 . ]";
+        ByteBuffer source = ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8));
+
+        Map<String, Token> seen = new HashMap<>();
+        MappedLexer lexer = new MappedLexer(source.duplicate());
+        Token token;
+        while ((token = lexer.nextToken()).getType() != TokenType.EOF) {
+            check(seen, token);
+        }
+
+        seen.clear();
+        TokenStream tokens = new MappedLexer(source.duplicate()).tokenize();
+        for (int i = 0; i < tokens.size(); i++) {
+            check(seen, tokens.token(i));
+        }
+    }
+
+    private static void check(Map<String, Token> seen, Token token) {
+        if (token.getType() == TokenType.NUMBER) {
+            assertEquals(SymbolTable.UNKNOWN, token.getSymbol());
+            return;
+        }
+        if (token.getType() != TokenType.IDENTIFIER && token.getType() != TokenType.CONSTANT) {
+            return;
+        }
+        assertNotEquals(SymbolTable.UNKNOWN, token.getSymbol());
+        Token before = seen.putIfAbsent(token.getValue(), token);
+        if (before != null) {
+            assertSame(before.getValue(), token.getValue());
+            assertEquals(before.getSymbol(), token.getSymbol());
+        }
+    }
+}
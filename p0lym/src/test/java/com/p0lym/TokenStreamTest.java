@@ -0,0 +1,27 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TokenStreamTest {
+    // Parsing the stream by index reports what parsing the lexer's tokens reports
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void parsesLikeTheLexer(boolean recover) {
+        RobotValidator validator = new RobotValidator(null, recover);
+        Random random = new Random(11);
+        for (int p = 0; p < 300; p++) {
+            String program = Programs.mutate(Programs.generate(p, 60, 8), random);
+            ByteBuffer source = ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8));
+            TokenStream tokens = new MappedLexer(source).tokenize();
+            assertEquals(Programs.describe(validator.validate(program)), Programs.describe(validator.validate(tokens)),
+                    "program " + p + ":\n" + program);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ValidationSessionTest {
+    // After every edit the session reports what validating the whole new text reports
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void editsGiveTheDiagnosticsOfTheWholeText(boolean recover) {
+        RobotValidator validator = new RobotValidator(null, recover);
+        for (int p = 0; p < 60; p++) {
+            Random random = new Random(p * 31 + (recover ? 1 : 0));
+            ValidationSession session = new ValidationSession(validator, Programs.generate(p, 60, 5));
+            for (int e = 0; e < 25; e++) {
+                String before = session.getText();
+                int offset = random.nextInt(before.length() + 1);
+                int length = Math.min(before.length() - offset, random.nextInt(4) == 0 ? random.nextInt(30) : random.nextInt(3));
+                String replacement = replacement(before, random);
+                session.edit(offset, length, replacement);
+
+                String expected = before.substring(0, offset) + replacement + before.substring(offset + length);
+                assertEquals(expected, session.getText());
+                assertEquals(Programs.describe(validator.validate(expected).getDiagnostics()),
+                        Programs.describe(session.getDiagnostics()), "program " + p + ", edit " + e + ":\n" + expected);
+            }
+        }
+    }
+
+    // A snippet, nothing, or a piece of the text itself
+    private static String replacement(String text, Random random) {
+        int kind = random.nextInt(10);
+        if (kind < 6) {
+            return Programs.SNIPPETS[random.nextInt(Programs.SNIPPETS.length)];
+        } else if (kind < 8 || text.isEmpty()) {
+            return "";
+        }
+        int start = random.nextInt(text.length());
+        return text.substring(start, Math.min(text.length(), start + random.nextInt(40)));
+    }
+}
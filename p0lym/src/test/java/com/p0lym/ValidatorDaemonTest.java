@@ -0,0 +1,193 @@
+package com.p0lym;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ValidatorDaemonTest {
+    private static final RobotValidator VALIDATOR = new RobotValidator(null, true);
+
+    private ValidatorDaemon daemon;
+    private Thread serving;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (daemon != null) {
+            daemon.close();
+            serving.join(30_000);
+        }
+    }
+
+    @Test
+    void onlyListensOnLoopback() {
+        assertThrows(IllegalArgumentException.class, () -> new ValidatorDaemon(new InetSocketAddress("0.0.0.0", 0), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ValidatorDaemon(InetSocketAddress.createUnresolved("localhost", 0), 1));
+    }
+
+    @Test
+    void answersValidationRequests() throws IOException {
+        start(2);
+        try (ValidatorClient client = new ValidatorClient(daemon.getAddress())) {
+            String program = Programs.generate(1, 20, 5);
+            assertAnswers(program, client.validateSource(program));
+            String invalid = "[ nop .\n  @ ]";
+            assertAnswers(invalid, client.validateSource(invalid));
+
+            Path file = Path.of("resources", "Invalid1.txt").toAbsolutePath();
+            String answer = client.validate(file);
+            StringBuilder path = new StringBuilder("{\"path\":");
+            BatchValidator.json(path, file.toString());
+            assertTrue(answer.startsWith(path + ",\"valid\":false,"), answer);
+
+            assertTrue(client.validate(Path.of("missing.txt")).startsWith("{\"valid\":false,\"error\":"));
+        }
+    }
+
+    // Requests sent in one go are answered one line each, in the order they were sent
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        start(4);
+        List<String> programs = new ArrayList<>();
+        ByteBuffer requests = ByteBuffer.allocate(1 << 20);
+        for (int p = 0; p < 100; p++) {
+            String program = Programs.generate(p, 20, 5);
+            if (p % 2 == 1) {
+                program = Programs.mutate(program, new Random(p));
+            }
+            byte[] bytes = program.getBytes(StandardCharsets.UTF_8);
+            requests.put(("SOURCE " + bytes.length + "\n").getBytes(StandardCharsets.UTF_8)).put(bytes);
+            programs.add(program);
+        }
+        try (SocketChannel channel = SocketChannel.open(daemon.getAddress())) {
+            requests.flip();
+            while (requests.hasRemaining()) {
+                channel.write(requests);
+            }
+            List<String> answers = lines(channel, programs.size());
+            for (int p = 0; p < programs.size(); p++) {
+                assertAnswers(programs.get(p), answers.get(p));
+            }
+        }
+    }
+
+    @Test
+    void servesClientsAtTheSameTime() throws Exception {
+        start(4);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                int seed = c;
+                done.add(clients.submit(() -> {
+                    try (ValidatorClient client = new ValidatorClient(daemon.getAddress())) {
+                        for (int p = 0; p < 50; p++) {
+                            String program = Programs.mutate(Programs.generate(seed * 100 + p, 20, 5),
+                                    new Random(seed * 100 + p));
+                            assertAnswers(program, client.validateSource(program));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    // STOP from one client does not cut short the answer another client is waiting for
+    @Test
+    void answersRequestsInFlightBeforeStopping() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            start(1);
+            // Large enough to still be validated when STOP comes
+            String program = "[ " + "nop . ".repeat(4_000_000) + "]";
+            try (SocketChannel slow = SocketChannel.open(daemon.getAddress());
+                    ValidatorClient stopper = new ValidatorClient(daemon.getAddress())) {
+                byte[] bytes = program.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer request = ByteBuffer.allocate(bytes.length + 32);
+                request.put(("SOURCE " + bytes.length + "\n").getBytes(StandardCharsets.UTF_8)).put(bytes).flip();
+                while (request.hasRemaining()) {
+                    slow.write(request);
+                }
+                // Gives the daemon time to read the end of the request
+                Thread.sleep(200);
+
+                assertEquals("{\"stopped\":true}", stopper.stop());
+                assertTrue(lines(slow, 1).get(0).startsWith("{\"path\":null,\"valid\":true,"));
+            }
+            serving.join();
+        });
+    }
+
+    private void start(int threads) throws IOException {
+        daemon = new ValidatorDaemon(new InetSocketAddress("127.0.0.1", 0), threads);
+        serving = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "validator-daemon");
+        serving.start();
+    }
+
+    // The daemon's answer for a program: its verdict and every diagnostic, then the time taken
+    private static void assertAnswers(String program, String answer) {
+        ValidationContext context = VALIDATOR.validate(program);
+        StringBuilder expected = new StringBuilder("{\"path\":null,\"valid\":").append(context.isValid());
+        expected.append(",\"error\":");
+        if (context.getError() == null) {
+            expected.append("null");
+        } else {
+            BatchValidator.json(expected, context.getError());
+        }
+        expected.append(",\"errors\":[");
+        BatchValidator.diagnostics(context.getDiagnostics(), expected);
+        expected.append("],\"micros\":");
+        assertTrue(answer.startsWith(expected.toString()), "expected " + expected + "\nbut was " + answer);
+    }
+
+    private static List<String> lines(SocketChannel channel, int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer input = ByteBuffer.allocate(1 << 16);
+        while (lines.size() < count && channel.read(input.clear()) >= 0) {
+            for (int i = 0; i < input.position(); i++) {
+                if (input.get(i) == '\n') {
+                    lines.add(line.toString(StandardCharsets.UTF_8));
+                    line.reset();
+                } else {
+                    line.write(input.get(i));
+                }
+            }
+        }
+        assertEquals(count, lines.size(), "answers before the connection closed");
+        return lines;
+    }
+}